@@ -1,91 +1,127 @@
-//package io.rsocket.jmeter;
-//
-//import io.rsocket.Payload;
-//import io.rsocket.core.RSocketClient;
-//import java.util.HashMap;
-//import java.util.Map;
-//import org.apache.jmeter.protocol.java.sampler.AbstractJavaSamplerClient;
-//import org.apache.jmeter.protocol.java.sampler.JavaSamplerContext;
-//import org.apache.jmeter.samplers.SampleResult;
-//import org.apache.jmeter.threads.JMeterVariables;
-//import org.slf4j.Logger;
-//import org.slf4j.LoggerFactory;
-//import reactor.core.publisher.Mono;
-//import reactor.core.publisher.MonoProcessor;
-//
-//public abstract class AbstractReactiveJavaSamplerClient<T extends Payload> extends AbstractJavaSamplerClient {
-//
-//    private static final String CHAIN = "reactive.chain";
-//
-//    @Override
-//    public void setupTest(JavaSamplerContext context) {
-//        Logger log = LoggerFactory.getLogger(this.getClass());
-//
-//        if (log.isDebugEnabled()) {
-//            log.debug("Test setup is started");
-//        }
-//
-//        RSocketClient rSocketClient = (RSocketClient) context.getJMeterVariables().getObject(
-//            RSocketSetup.VAR_CLIENT);
-//
-//        setupTestClient(rSocketClient);
-//
-//        if (log.isDebugEnabled()) {
-//            log.debug("Retrieved broker client from context [{}]", rSocketClient);
-//        }
-//    }
-//
-//    @Override
-//    @SuppressWarnings("unchecked")
-//    public SampleResult runTest(JavaSamplerContext context) {
-//        Logger log = LoggerFactory.getLogger(this.getClass());
-//
-//        JMeterVariables variables = context.getJMeterVariables();
-//        int iteration = variables.getIteration();
-//
-//        String key = CHAIN + "." + iteration;
-//
-//        Mono<Void> chain = (Mono<Void>) variables.getObject(key);
-//
-//        chain = chain == null ? Mono.empty() : chain;
-//
-//        if (log.isDebugEnabled()) {
-//            log.debug("Running Sample");
-//            log.debug("Iteration ID [{}]", iteration);
-//            log.debug("Iteration Key [{}]", key);
-//        }
-//
-//        ReactiveSampleResult result = new ReactiveSampleResult();
-//        PublisherInstrumentation<T> instrumentation = new PublisherInstrumentation<>(result);
-//        Map<String, Object> params = extractParameters(new HashMap<>(), context);
-//
-//        if (log.isDebugEnabled()) {
-//            log.debug("Extracted Params [{}]", params);
-//        }
-//
-//        MonoProcessor<Void> processor = MonoProcessor.create();
-//        Mono<Void> chained = chain
-//            .then(Mono.defer(() -> {
-//                if (log.isDebugEnabled()) {
-//                    log.debug("Executing Sample");
-//                }
-//
-//                result.sampleStart();
-//                return prepareTestRun(params, instrumentation);
-//            }))
-//            .transform(mono -> ReactiveVariableHolder.withVariables(mono, variables));
-//
-//        result.setExecutionResult(processor);
-//        variables.putObject(key, chained.subscribeWith(processor));
-//
-//        return result;
-//    }
-//
-//    protected Map<String, Object> extractParameters(Map<String, Object> params, JavaSamplerContext context) {
-//        return params;
-//    }
-//
-//    protected abstract Mono<Void> prepareTestRun(Map<String, Object> parameters, PublisherInstrumentation<T> instrumentation);
-//
-//    protected abstract void setupTestClient(RSocketClient rSocketClient);
-//}
+package io.rsocket.jmeter;
+
+import io.rsocket.Payload;
+import io.rsocket.core.RSocketClient;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import org.apache.jmeter.protocol.java.sampler.AbstractJavaSamplerClient;
+import org.apache.jmeter.protocol.java.sampler.JavaSamplerContext;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.util.JMeterUtils;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+/**
+ * Base class of Java sampler clients returning their request as a {@link Publisher} instead of
+ * blocking on it. {@link #runTest(JavaSamplerContext)} returns right away, the
+ * {@link ReactiveResultCollector} reports the sample once the publisher terminates.
+ * <p>
+ * Requests of a thread run one after the other: each one starts when the previous one has
+ * terminated, and its timing starts then as well. The thread only keeps the completion of its
+ * latest request, nothing accumulates in the JMeter variables. At most
+ * {@code AbstractReactiveJavaSamplerClient.max_pending} requests (1 by default) are issued and
+ * not yet terminated per thread, beyond that the thread waits, so a fast loop cannot queue
+ * requests without bound.
+ *
+ * @param <T> payload type of the responses
+ */
+public abstract class AbstractReactiveJavaSamplerClient<T extends Payload> extends AbstractJavaSamplerClient {
+
+    private static final int MAX_PENDING =
+        JMeterUtils.getPropDefault("AbstractReactiveJavaSamplerClient.max_pending", 1); // $NON-NLS-1$
+
+    // completes once the latest request of this thread has terminated
+    private Mono<Void> tail = Mono.empty();
+
+    // requests issued and not yet terminated
+    private final Semaphore pending = new Semaphore(Math.max(1, MAX_PENDING));
+
+    @Override
+    public void setupTest(JavaSamplerContext context) {
+        Logger log = LoggerFactory.getLogger(this.getClass());
+
+        if (log.isDebugEnabled()) {
+            log.debug("Test setup is started");
+        }
+
+        RSocketClient rSocketClient = (RSocketClient) context.getJMeterVariables().getObject(
+            RSocketSetup.VAR_CLIENT);
+
+        setupTestClient(rSocketClient);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Retrieved client from context [{}]", rSocketClient);
+        }
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public SampleResult runTest(JavaSamplerContext context) {
+        Logger log = LoggerFactory.getLogger(this.getClass());
+
+        JMeterVariables variables = context.getJMeterVariables();
+
+        if (log.isDebugEnabled()) {
+            log.debug("Running Sample");
+            log.debug("Iteration ID [{}]", variables.getIteration());
+        }
+
+        ReactiveSampleResult result = new ReactiveSampleResult();
+        Map<String, Object> params = extractParameters(new HashMap<>(), context);
+
+        if (log.isDebugEnabled()) {
+            log.debug("Extracted Params [{}]", params);
+        }
+
+        try {
+            pending.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            result.sampleStart();
+            result.setResponseMessage("Interrupted while waiting for a pending request");
+            result.setSuccessful(false);
+            result.sampleEnd();
+            return result;
+        }
+
+        Sinks.Empty<Void> terminated = Sinks.empty();
+        Flux<Payload> chained = tail
+            .thenMany(Flux.defer(() -> {
+                if (log.isDebugEnabled()) {
+                    log.debug("Executing Sample");
+                }
+
+                // the request was queued behind the previous one until now
+                result.restartTiming();
+                return (Publisher<Payload>) prepareTestRun(params);
+            }))
+            .transform(flux -> ReactiveVariableHolder.withVariables(flux, variables))
+            .doFinally(__ -> {
+                terminated.tryEmitEmpty();
+                pending.release();
+            });
+
+        tail = terminated.asMono();
+        result.setExecutionResult(chained);
+
+        return result;
+    }
+
+    protected Map<String, Object> extractParameters(Map<String, Object> params, JavaSamplerContext context) {
+        return params;
+    }
+
+    /**
+     * @return the request to sample, subscribed once the previous request of this thread has
+     * terminated
+     */
+    protected abstract Publisher<T> prepareTestRun(Map<String, Object> parameters);
+
+    protected abstract void setupTestClient(RSocketClient rSocketClient);
+}
@@ -0,0 +1,128 @@
+package io.rsocket.jmeter;
+
+import io.rsocket.jmeter.metrics.HistogramSnapshot;
+import java.util.concurrent.TimeUnit;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * A single result standing for many samples of the same label, in the spirit of JMeter's {@code
+ * StatisticalSampleResult}: {@link #getSampleCount()} holds the number of folded samples and
+ * {@link #getTime()} the sum of their elapsed times, which is what JMeter listeners expect.
+ * <p>
+ * In addition the result carries the latency histogram of the folded samples, so percentiles
+ * can still be computed after several of them have been merged.
+ */
+public class AggregatedSampleResult extends SampleResult {
+
+  private static final long serialVersionUID = 1L;
+
+  private final HistogramSnapshot latency = new HistogramSnapshot();
+
+  private long elapsed;
+
+  private int errorCount;
+
+  private String route;
+
+  private String requestType;
+
+  public AggregatedSampleResult(String label) {
+    setSampleLabel(label);
+    setSampleCount(0);
+    setSuccessful(true);
+  }
+
+  /**
+   * Folds one more completed sample into this result.
+   */
+  public void add(SampleResult res) {
+    setSampleCount(getSampleCount() + res.getSampleCount());
+    setBytes(getBytesAsLong() + res.getBytesAsLong());
+    setSentBytes(getSentBytes() + res.getSentBytes());
+    setLatency(getLatency() + res.getLatency());
+    setConnectTime(getConnectTime() + res.getConnectTime());
+    if (!res.isSuccessful()) {
+      errorCount++;
+      setSuccessful(false);
+    }
+
+    if (getStartTime() == 0 || res.getStartTime() < getStartTime()) {
+      setStartTime(res.getStartTime());
+    }
+    if (res.getEndTime() > getEndTime()) {
+      setEndTime(res.getEndTime());
+    }
+    elapsed += res.getTime();
+
+    final long elapsedNanos;
+    if (res instanceof ReactiveSampleResult) {
+      ReactiveSampleResult reactiveResult = (ReactiveSampleResult) res;
+      elapsedNanos = reactiveResult.getElapsedNanos();
+      if (route == null && reactiveResult.getRouteMetrics() != null) {
+        route = reactiveResult.getRouteMetrics().getRoute();
+        requestType = reactiveResult.getRouteMetrics().getRequestType();
+      }
+    } else {
+      elapsedNanos = TimeUnit.MILLISECONDS.toNanos(res.getTime());
+    }
+    latency.record(elapsedNanos);
+  }
+
+  /**
+   * Sets the aggregate of a whole interval at once.
+   */
+  public void set(int sampleCount, int errorCount, long elapsed, long latency, long connectTime,
+      long bytes, long sentBytes, long startTime, long endTime, HistogramSnapshot histogram) {
+    setSampleCount(sampleCount);
+    this.errorCount = errorCount;
+    setSuccessful(errorCount == 0);
+    this.elapsed = elapsed;
+    setLatency(latency);
+    setConnectTime(connectTime);
+    setBytes(bytes);
+    setSentBytes(sentBytes);
+    setStartTime(startTime);
+    setEndTime(endTime);
+    this.latency.copyFrom(histogram);
+  }
+
+  @Override
+  public long getTime() {
+    return elapsed;
+  }
+
+  @Override
+  public long getTimeStamp() {
+    return getEndTime();
+  }
+
+  @Override
+  public int getErrorCount() {
+    return errorCount;
+  }
+
+  @Override
+  public void setErrorCount(int errorCount) {
+    this.errorCount = errorCount;
+  }
+
+  public HistogramSnapshot getLatencyHistogram() {
+    return latency;
+  }
+
+  /**
+   * @return route of the folded samples, or null if they did not come from an RSocket sampler
+   */
+  public String getRoute() {
+    return route;
+  }
+
+  public String getRequestType() {
+    return requestType;
+  }
+
+  public void setRoute(String route, String requestType) {
+    this.route = route;
+    this.requestType = requestType;
+  }
+}
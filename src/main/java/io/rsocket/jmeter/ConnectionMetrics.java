@@ -0,0 +1,188 @@
+package io.rsocket.jmeter;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Lifecycle statistics of the connection owned by a {@link RSocketSetup}: drops, reconnect
+ * attempts, downtime and the number of requests that failed while the connection was down.
+ */
+public class ConnectionMetrics {
+
+  private static final Logger log = LoggerFactory.getLogger(ConnectionMetrics.class);
+
+  private final String name;
+
+  private final LongAdder connects = new LongAdder();
+  private final LongAdder disconnects = new LongAdder();
+  private final LongAdder reconnectAttempts = new LongAdder();
+  private final LongAdder recycles = new LongAdder();
+  private final LongAdder requests = new LongAdder();
+  private final LongAdder failedDuringOutage = new LongAdder();
+
+  private final AtomicLong outageDowntimeNanos = new AtomicLong();
+  private final AtomicLong recycleDowntimeNanos = new AtomicLong();
+
+  private final AtomicLong requestsSinceRecycle = new AtomicLong();
+
+  private volatile boolean connected;
+  private volatile boolean recycling;
+  private volatile long disconnectedAtNanos;
+  private volatile long connectedAtNanos;
+  private volatile long lastDowntimeNanos;
+
+  private volatile long recycleEveryRequests;
+  private volatile Runnable recycleAction;
+
+  public ConnectionMetrics(String name) {
+    this.name = name;
+  }
+
+  void recycleEvery(long requests, Runnable recycleAction) {
+    this.recycleEveryRequests = requests;
+    this.recycleAction = recycleAction;
+  }
+
+  void onConnected() {
+    final long now = System.nanoTime();
+    final long disconnectedAt = this.disconnectedAtNanos;
+
+    connects.increment();
+    connectedAtNanos = now;
+    connected = true;
+
+    if (disconnectedAt == 0) {
+      log.info("Connection [{}] established", name);
+      return;
+    }
+
+    final long downtime = now - disconnectedAt;
+    lastDowntimeNanos = downtime;
+    if (recycling) {
+      recycling = false;
+      recycleDowntimeNanos.addAndGet(downtime);
+      if (log.isDebugEnabled()) {
+        log.debug("Connection [{}] recycled in {} ms", name,
+            TimeUnit.NANOSECONDS.toMillis(downtime));
+      }
+    } else {
+      outageDowntimeNanos.addAndGet(downtime);
+      log.info("Connection [{}] re-established after {} ms, {} requests failed during outage",
+          name, TimeUnit.NANOSECONDS.toMillis(downtime), failedDuringOutage.sum());
+    }
+  }
+
+  void onDisconnected() {
+    if (!connected) {
+      return;
+    }
+    connected = false;
+    disconnectedAtNanos = System.nanoTime();
+    disconnects.increment();
+
+    if (!recycling) {
+      log.warn("Connection [{}] lost", name);
+    }
+  }
+
+  void onReconnectAttempt(long attempt, Throwable cause) {
+    reconnectAttempts.increment();
+    log.warn("Connection [{}] reconnect attempt #{} after [{}]", name, attempt, cause.toString());
+  }
+
+  void onRecycle() {
+    recycles.increment();
+    recycling = true;
+  }
+
+  /**
+   * Called by samplers for every request sent over this connection.
+   */
+  public void onRequest() {
+    requests.increment();
+
+    final long every = this.recycleEveryRequests;
+    if (every > 0 && requestsSinceRecycle.incrementAndGet() % every == 0) {
+      recycleAction.run();
+    }
+  }
+
+  /**
+   * Called by samplers for every request that terminated with an error.
+   */
+  public void onRequestFailed() {
+    if (!connected) {
+      failedDuringOutage.increment();
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public boolean isConnected() {
+    return connected;
+  }
+
+  /**
+   * @return nanoTime at which the current connection was established, 0 if never connected
+   */
+  public long getConnectedAtNanos() {
+    return connectedAtNanos;
+  }
+
+  public long getConnects() {
+    return connects.sum();
+  }
+
+  public long getDisconnects() {
+    return disconnects.sum();
+  }
+
+  public long getReconnectAttempts() {
+    return reconnectAttempts.sum();
+  }
+
+  public long getRecycles() {
+    return recycles.sum();
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getFailedDuringOutage() {
+    return failedDuringOutage.sum();
+  }
+
+  public long getOutageDowntimeNanos() {
+    return outageDowntimeNanos.get();
+  }
+
+  public long getRecycleDowntimeNanos() {
+    return recycleDowntimeNanos.get();
+  }
+
+  public long getLastDowntimeNanos() {
+    return lastDowntimeNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "ConnectionMetrics{"
+        + "name='" + name + '\''
+        + ", connected=" + connected
+        + ", connects=" + getConnects()
+        + ", disconnects=" + getDisconnects()
+        + ", reconnectAttempts=" + getReconnectAttempts()
+        + ", recycles=" + getRecycles()
+        + ", requests=" + getRequests()
+        + ", failedDuringOutage=" + getFailedDuringOutage()
+        + ", outageDowntimeMs=" + TimeUnit.NANOSECONDS.toMillis(getOutageDowntimeNanos())
+        + ", recycleDowntimeMs=" + TimeUnit.NANOSECONDS.toMillis(getRecycleDowntimeNanos())
+        + '}';
+  }
+}
@@ -0,0 +1,332 @@
+package io.rsocket.jmeter;
+
+import io.rsocket.jmeter.metrics.MetricsRegistry;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.jmeter.util.JMeterUtils;
+import org.reactivestreams.Publisher;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.MonoSink;
+
+/**
+ * Caps the requests outstanding on a connection, and the response bytes buffered for them, so a
+ * degraded server cannot make the generator pile up pending requests and bodies until it runs
+ * out of memory. Requests beyond the cap either wait in a queue, without holding a thread, or
+ * are shed right away as failed samples. A response exceeding the byte budget keeps being
+ * measured but its body is dropped.
+ * <p>
+ * Every connection has its own limiter, all of them also go through the global one when global
+ * limits are configured by the {@code RSocketSetup.global.*} properties.
+ */
+public final class InFlightLimiter {
+
+  private static final Logger log = LoggerFactory.getLogger(InFlightLimiter.class);
+
+  public enum Policy {
+    /**
+     * Excess requests wait for a request to terminate, the wait is part of their sample time.
+     */
+    QUEUE,
+    /**
+     * Excess requests fail right away.
+     */
+    SHED
+  }
+
+  private static final int GLOBAL_MAX_IN_FLIGHT =
+      JMeterUtils.getPropDefault("RSocketSetup.global.max_in_flight", 0); // $NON-NLS-1$
+
+  private static final long GLOBAL_MAX_BUFFERED_BYTES =
+      JMeterUtils.getPropDefault("RSocketSetup.global.max_buffered_bytes", 0L); // $NON-NLS-1$
+
+  private static final String GLOBAL_OVERLOAD_POLICY =
+      "RSocketSetup.global.overload_policy"; // $NON-NLS-1$
+
+  private static final Policy GLOBAL_POLICY = globalPolicy();
+
+  private static volatile InFlightLimiter global;
+
+  private final String name;
+
+  private final int maxInFlight;
+
+  private final long maxBufferedBytes;
+
+  private final Policy policy;
+
+  private final AtomicInteger inFlight = new AtomicInteger();
+
+  private final AtomicLong bufferedBytes = new AtomicLong();
+
+  private final Queue<Waiter> waiters = new ConcurrentLinkedQueue<>();
+
+  private final LongAdder queued = new LongAdder();
+
+  private final LongAdder queueNanos = new LongAdder();
+
+  private final LongAdder shed = new LongAdder();
+
+  private final LongAdder droppedBodies = new LongAdder();
+
+  /**
+   * @param maxInFlight      requests outstanding at once, 0 for no limit
+   * @param maxBufferedBytes response bytes buffered at once, 0 for no limit
+   */
+  public InFlightLimiter(String name, int maxInFlight, long maxBufferedBytes, Policy policy) {
+    this.name = name;
+    this.maxInFlight = maxInFlight;
+    this.maxBufferedBytes = maxBufferedBytes;
+    this.policy = policy;
+  }
+
+  /**
+   * @return the limiter shared by all connections, or null without global limits
+   */
+  public static InFlightLimiter global() {
+    if (GLOBAL_MAX_IN_FLIGHT <= 0 && GLOBAL_MAX_BUFFERED_BYTES <= 0) {
+      return null;
+    }
+    InFlightLimiter limiter = global;
+    if (limiter == null) {
+      synchronized (InFlightLimiter.class) {
+        limiter = global;
+        if (limiter == null) {
+          limiter = new InFlightLimiter("global", GLOBAL_MAX_IN_FLIGHT,
+              GLOBAL_MAX_BUFFERED_BYTES, GLOBAL_POLICY);
+          // lives as long as the process, like the route statistics
+          MetricsRegistry.getInstance().register(limiter);
+          global = limiter;
+        }
+      }
+    }
+    return limiter;
+  }
+
+  private static Policy globalPolicy() {
+    final String policy =
+        JMeterUtils.getPropDefault(GLOBAL_OVERLOAD_POLICY, Policy.QUEUE.name()).trim();
+    try {
+      return Policy.valueOf(policy.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      log.warn("Invalid {} [{}], using {}", GLOBAL_OVERLOAD_POLICY, policy, Policy.QUEUE);
+      return Policy.QUEUE;
+    }
+  }
+
+  /**
+   * @param connection limiter of the connection the request is sent over, may be null
+   * @return the request, sent once it got a slot from the connection and the global limiter and
+   * giving its slots back once it terminated or was cancelled
+   */
+  public static <T> Flux<T> limit(Publisher<T> request, InFlightLimiter connection) {
+    Flux<T> limited = Flux.from(request);
+    final InFlightLimiter global = global();
+    if (global != null && global.maxInFlight > 0) {
+      limited = global.wrap(limited);
+    }
+    if (connection != null && connection.maxInFlight > 0) {
+      limited = connection.wrap(limited);
+    }
+    return limited;
+  }
+
+  private <T> Flux<T> wrap(Flux<T> request) {
+    return Flux.usingWhen(acquire(), __ -> request,
+        limiter -> Mono.fromRunnable(limiter::release));
+  }
+
+  /**
+   * Reserves budget for response bytes about to be buffered, from the connection and the global
+   * limiter.
+   *
+   * @param connection limiter of the connection, may be null
+   * @return false if a budget is exhausted, nothing was reserved then
+   */
+  public static boolean reserveBytes(InFlightLimiter connection, long bytes) {
+    if (connection != null && !connection.reserveBytes(bytes)) {
+      return false;
+    }
+    final InFlightLimiter global = global();
+    if (global != null && !global.reserveBytes(bytes)) {
+      // the drop is counted by the global limiter, whose budget ran out
+      if (connection != null) {
+        connection.releaseBytes(bytes);
+      }
+      return false;
+    }
+    return true;
+  }
+
+  /**
+   * Gives back bytes reserved by {@link #reserveBytes(InFlightLimiter, long)}.
+   */
+  public static void releaseBytes(InFlightLimiter connection, long bytes) {
+    if (connection != null) {
+      connection.releaseBytes(bytes);
+    }
+    final InFlightLimiter global = global();
+    if (global != null) {
+      global.releaseBytes(bytes);
+    }
+  }
+
+  private boolean reserveBytes(long bytes) {
+    final long max = maxBufferedBytes;
+    if (max <= 0) {
+      return true;
+    }
+    if (bufferedBytes.addAndGet(bytes) > max) {
+      bufferedBytes.addAndGet(-bytes);
+      droppedBodies.increment();
+      return false;
+    }
+    return true;
+  }
+
+  private void releaseBytes(long bytes) {
+    if (maxBufferedBytes > 0) {
+      bufferedBytes.addAndGet(-bytes);
+    }
+  }
+
+  /**
+   * @return emits this limiter once the caller holds a slot, to be given back with {@link
+   * #release()}
+   */
+  Mono<InFlightLimiter> acquire() {
+    return Mono.defer(() -> {
+      if (tryAcquire()) {
+        return Mono.just(this);
+      }
+      if (policy == Policy.SHED) {
+        shed.increment();
+        return Mono.error(new RejectedExecutionException(
+            "Shed, " + maxInFlight + " requests in flight on [" + name + "]"));
+      }
+      return Mono.create(this::enqueue);
+    });
+  }
+
+  private void enqueue(MonoSink<InFlightLimiter> sink) {
+    final Waiter waiter = new Waiter(sink);
+    sink.onCancel(() -> {
+      if (!waiter.cancel()) {
+        // granted but not delivered, the slot would be lost otherwise
+        release();
+      }
+    });
+    queued.increment();
+    waiters.offer(waiter);
+    // a slot may have been given back before the waiter was visible
+    drain();
+  }
+
+  void release() {
+    inFlight.decrementAndGet();
+    drain();
+  }
+
+  private boolean tryAcquire() {
+    for (; ; ) {
+      final int current = inFlight.get();
+      if (current >= maxInFlight) {
+        return false;
+      }
+      if (inFlight.compareAndSet(current, current + 1)) {
+        return true;
+      }
+    }
+  }
+
+  private void drain() {
+    while (!waiters.isEmpty() && tryAcquire()) {
+      final Waiter waiter = waiters.poll();
+      if (waiter == null || !waiter.grant()) {
+        inFlight.decrementAndGet();
+      }
+    }
+  }
+
+  public String getName() {
+    return name;
+  }
+
+  public int getInFlight() {
+    return inFlight.get();
+  }
+
+  public int getWaiting() {
+    return waiters.size();
+  }
+
+  public long getBufferedBytes() {
+    return bufferedBytes.get();
+  }
+
+  public long getQueued() {
+    return queued.sum();
+  }
+
+  public long getQueueNanos() {
+    return queueNanos.sum();
+  }
+
+  public long getShed() {
+    return shed.sum();
+  }
+
+  public long getDroppedBodies() {
+    return droppedBodies.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "InFlightLimiter{"
+        + "name='" + name + '\''
+        + ", maxInFlight=" + maxInFlight
+        + ", maxBufferedBytes=" + maxBufferedBytes
+        + ", policy=" + policy
+        + ", queued=" + getQueued()
+        + ", shed=" + getShed()
+        + ", droppedBodies=" + getDroppedBodies()
+        + '}';
+  }
+
+  private final class Waiter {
+
+    static final int WAITING = 0;
+    static final int GRANTED = 1;
+    static final int CANCELLED = 2;
+
+    final MonoSink<InFlightLimiter> sink;
+
+    final long enqueuedNanos = System.nanoTime();
+
+    final AtomicInteger state = new AtomicInteger(WAITING);
+
+    Waiter(MonoSink<InFlightLimiter> sink) {
+      this.sink = sink;
+    }
+
+    boolean grant() {
+      if (!state.compareAndSet(WAITING, GRANTED)) {
+        return false;
+      }
+      queueNanos.add(System.nanoTime() - enqueuedNanos);
+      sink.success(InFlightLimiter.this);
+      return true;
+    }
+
+    boolean cancel() {
+      return state.compareAndSet(WAITING, CANCELLED);
+    }
+  }
+}
@@ -0,0 +1,67 @@
+package io.rsocket.jmeter;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.core.RSocketClient;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * The {@link RSocketClient} an RSocket Setup hands out when it has limits, every request waits
+ * for a slot of the connection and the global {@link InFlightLimiter} when subscribed. Samplers,
+ * RPC stubs and Java samplers are all limited the same way, and a resubscribed request, e.g. a
+ * retry, waits for a slot of its own.
+ */
+final class LimitedRSocketClient implements RSocketClient {
+
+  private final RSocketClient client;
+
+  // null without connection limits, the global ones apply still
+  private final InFlightLimiter limiter;
+
+  LimitedRSocketClient(RSocketClient client, InFlightLimiter limiter) {
+    this.client = client;
+    this.limiter = limiter;
+  }
+
+  @Override
+  public Mono<RSocket> source() {
+    return client.source();
+  }
+
+  @Override
+  public Mono<Void> fireAndForget(Mono<Payload> payloadMono) {
+    return Mono.from(InFlightLimiter.limit(client.fireAndForget(payloadMono), limiter));
+  }
+
+  @Override
+  public Mono<Payload> requestResponse(Mono<Payload> payloadMono) {
+    return Mono.from(InFlightLimiter.limit(client.requestResponse(payloadMono), limiter));
+  }
+
+  @Override
+  public Flux<Payload> requestStream(Mono<Payload> payloadMono) {
+    return InFlightLimiter.limit(client.requestStream(payloadMono), limiter);
+  }
+
+  @Override
+  public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+    return InFlightLimiter.limit(client.requestChannel(payloads), limiter);
+  }
+
+  @Override
+  public Mono<Void> metadataPush(Mono<Payload> payloadMono) {
+    return Mono.from(InFlightLimiter.limit(client.metadataPush(payloadMono), limiter));
+  }
+
+  @Override
+  public void dispose() {
+    client.dispose();
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return client.isDisposed();
+  }
+}
@@ -0,0 +1,367 @@
+package io.rsocket.jmeter;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.netty.buffer.Unpooled;
+import io.rsocket.jmeter.codec.Compression;
+import io.rsocket.jmeter.codec.PayloadCodec;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.jmeter.engine.util.CompoundVariable;
+import org.apache.jmeter.services.FileServer;
+import org.apache.jmeter.testelement.property.FunctionProperty;
+import org.apache.jmeter.testelement.property.JMeterProperty;
+import org.apache.jmeter.threads.JMeterVariables;
+
+/**
+ * Payload text compiled once into encoded static segments and {@code ${variable}} slots, UTF-8
+ * unless another charset is given. Sampling looks up the variable values and writes segments and
+ * values straight into a pooled {@link ByteBuf}, without building the whole text as a {@link
+ * String} first.
+ * <p>
+ * Texts calling functions, or using JMeter's backslash escapes, cannot be compiled; for those the
+ * template evaluates the property as JMeter would and encodes the result.
+ * <p>
+ * Binary payloads (hex, base64 or a file) are decoded once into a read-only direct buffer shared
+ * by all threads, each sample sends a view of it without copying. Static payloads converted by a
+ * codec or compressed are converted once and cached the same way.
+ */
+public final class PayloadTemplate {
+
+  private static final String[] NO_VALUES = new String[0];
+
+  // decoded binary payloads by source, released at the end of the test
+  private static final Map<String, ByteBuf> BINARY_CACHE = new ConcurrentHashMap<>();
+
+  // static bytes around the slots, one more than there are slots
+  private final byte[][] segments;
+
+  private final String[] names;
+
+  // written in place of an undefined variable, as JMeter leaves the reference untouched
+  private final byte[][] references;
+
+  private final int staticLength;
+
+  // set when the text has to be evaluated by JMeter
+  private final JMeterProperty property;
+
+  // set for binary payloads, read-only and unreleasable
+  private final ByteBuf content;
+
+  // identifies the content in the binary cache
+  private final String key;
+
+  private final Charset charset;
+
+  // converts the written text, e.g. into the data MIME type, if set
+  private final Transform transform;
+
+  private PayloadTemplate(byte[][] segments, String[] names, byte[][] references,
+      JMeterProperty property, Charset charset) {
+    this(segments, names, references, property, null, null, charset, null);
+  }
+
+  private PayloadTemplate(byte[][] segments, String[] names, byte[][] references,
+      JMeterProperty property, ByteBuf content, String key, Charset charset,
+      Transform transform) {
+    this.segments = segments;
+    this.names = names;
+    this.references = references;
+    this.property = property;
+    this.content = content;
+    this.key = key;
+    this.charset = charset;
+    this.transform = transform;
+
+    int staticLength = 0;
+    for (byte[] segment : segments) {
+      staticLength += segment.length;
+    }
+    this.staticLength = staticLength;
+  }
+
+  /**
+   * Compiles the text of the given property, as turned into a {@link FunctionProperty} by JMeter
+   * when it references variables.
+   */
+  public static PayloadTemplate compile(JMeterProperty property) {
+    return compile(property, StandardCharsets.UTF_8);
+  }
+
+  /**
+   * @param charset charset the text is encoded with
+   */
+  public static PayloadTemplate compile(JMeterProperty property, Charset charset) {
+    if (property instanceof FunctionProperty) {
+      Object function = property.getObjectValue();
+      if (function instanceof CompoundVariable) {
+        PayloadTemplate template =
+            compile(((CompoundVariable) function).getRawParameters(), charset);
+        if (template != null) {
+          return template;
+        }
+      }
+      return new PayloadTemplate(new byte[][]{new byte[0], new byte[0]}, new String[1],
+          new byte[1][], property, charset);
+    }
+
+    return new PayloadTemplate(new byte[][]{property.getStringValue().getBytes(charset)},
+        NO_VALUES, new byte[0][], null, charset);
+  }
+
+  /**
+   * @return the compiled text, or {@code null} if it needs JMeter's function evaluation
+   */
+  static PayloadTemplate compile(String text, Charset charset) {
+    if (text.indexOf('\\') >= 0) {
+      return null;
+    }
+
+    final List<byte[]> segments = new ArrayList<>();
+    final List<String> names = new ArrayList<>();
+    int start = 0;
+    int reference;
+    while ((reference = text.indexOf("${", start)) >= 0) {
+      int end = text.indexOf('}', reference + 2);
+      if (end < 0) {
+        break;
+      }
+      String name = text.substring(reference + 2, end);
+      if (!isVariableName(name)) {
+        return null;
+      }
+      segments.add(text.substring(start, reference).getBytes(charset));
+      names.add(name);
+      start = end + 1;
+    }
+    segments.add(text.substring(start).getBytes(charset));
+
+    final byte[][] references = new byte[names.size()][];
+    for (int i = 0; i < references.length; i++) {
+      references[i] = ("${" + names.get(i) + "}").getBytes(charset);
+    }
+    return new PayloadTemplate(segments.toArray(new byte[0][]), names.toArray(NO_VALUES),
+        references, null, charset);
+  }
+
+  /**
+   * @param text hex digits, whitespace is ignored
+   */
+  public static PayloadTemplate hex(String text) {
+    return binary("hex:" + text, () -> ByteBufUtil.decodeHexDump(text.replaceAll("\\s", "")));
+  }
+
+  /**
+   * @param text base64, line breaks are ignored
+   */
+  public static PayloadTemplate base64(String text) {
+    return binary("base64:" + text, () -> Base64.getMimeDecoder().decode(text));
+  }
+
+  /**
+   * @param path file path, relative paths are resolved against the test plan directory
+   */
+  public static PayloadTemplate file(String path) throws IOException {
+    final File file = FileServer.getFileServer().getResolvedFile(path);
+    final String key = "file:" + file.getAbsolutePath() + ':' + file.lastModified();
+    try {
+      return binary(key, () -> {
+        try {
+          return Files.readAllBytes(file.toPath());
+        } catch (IOException e) {
+          throw new UncheckedIOException(e);
+        }
+      });
+    } catch (UncheckedIOException e) {
+      throw e.getCause();
+    }
+  }
+
+  private static PayloadTemplate binary(String key, BinarySource source) {
+    final ByteBuf buffer = BINARY_CACHE.computeIfAbsent(key, __ -> {
+      final byte[] bytes = source.decode();
+      return Unpooled.directBuffer(bytes.length).writeBytes(bytes);
+    });
+    return new PayloadTemplate(new byte[][]{new byte[0]}, NO_VALUES, new byte[0][], null,
+        Unpooled.unreleasableBuffer(buffer.asReadOnly()), key, StandardCharsets.UTF_8, null);
+  }
+
+  /**
+   * @return a template converting the written text with the given codec, binary payloads are
+   * left as they are
+   */
+  public PayloadTemplate withCodec(PayloadCodec codec) {
+    if (content != null || codec == null || !codec.encodesText()) {
+      return this;
+    }
+    return transformed(codec.getMimeType(),
+        (allocator, text) -> codec.encode(allocator, text, charset));
+  }
+
+  /**
+   * @return a template compressing the written payload
+   */
+  public PayloadTemplate withCompression(Compression compression) {
+    if (compression == null || compression == Compression.NONE) {
+      return this;
+    }
+    return transformed(compression.name(), compression::compress);
+  }
+
+  private PayloadTemplate transformed(String name, Transform next) {
+    if (isStatic()) {
+      final String key = content != null
+          ? this.key
+          : "text:" + charset.name() + ':' + new String(segments[0], charset);
+      return binary(key + '|' + name, () -> {
+        final ByteBuf source = write(ByteBufAllocator.DEFAULT, NO_VALUES);
+        try {
+          final ByteBuf converted = next.apply(ByteBufAllocator.DEFAULT, source);
+          try {
+            return ByteBufUtil.getBytes(converted);
+          } finally {
+            converted.release();
+          }
+        } finally {
+          source.release();
+        }
+      });
+    }
+
+    final Transform previous = this.transform;
+    final Transform transform = previous == null ? next : (allocator, buffer) -> {
+      final ByteBuf intermediate = previous.apply(allocator, buffer);
+      try {
+        return next.apply(allocator, intermediate);
+      } finally {
+        intermediate.release();
+      }
+    };
+    return new PayloadTemplate(segments, names, references, property, null, null, charset,
+        transform);
+  }
+
+  /**
+   * Releases the decoded binary payloads, once no sampler uses them anymore.
+   */
+  public static void releaseBinaries() {
+    for (String key : BINARY_CACHE.keySet()) {
+      final ByteBuf buffer = BINARY_CACHE.remove(key);
+      if (buffer != null) {
+        buffer.release();
+      }
+    }
+  }
+
+  private interface BinarySource {
+
+    byte[] decode();
+  }
+
+  private interface Transform {
+
+    /**
+     * @param buffer released by the caller
+     * @return a new buffer, owned by the caller
+     */
+    ByteBuf apply(ByteBufAllocator allocator, ByteBuf buffer);
+  }
+
+  private static boolean isVariableName(String name) {
+    if (name.isEmpty() || name.startsWith("__")) {
+      return false;
+    }
+    for (int i = 0; i < name.length(); i++) {
+      char c = name.charAt(i);
+      if (c == '(' || c == ')' || c == '$' || c == '{' || c == ',') {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  /**
+   * @return whether the text has no variables at all
+   */
+  public boolean isStatic() {
+    return names.length == 0;
+  }
+
+  /**
+   * @return whether the payload is binary data sent as is
+   */
+  public boolean isBinary() {
+    return content != null;
+  }
+
+  /**
+   * Looks up the values of the slots. Has to run on the thread owning the variables, the
+   * returned values can be written later from any thread.
+   */
+  public String[] resolve(JMeterVariables variables) {
+    if (property != null) {
+      return new String[]{property.getStringValue()};
+    }
+    if (names.length == 0) {
+      return NO_VALUES;
+    }
+
+    final String[] names = this.names;
+    final String[] values = new String[names.length];
+    for (int i = 0; i < names.length; i++) {
+      values[i] = variables.get(names[i]);
+    }
+    return values;
+  }
+
+  /**
+   * @param values as returned by {@link #resolve(JMeterVariables)}
+   * @return a new buffer holding the encoded text, owned by the caller
+   */
+  public ByteBuf write(ByteBufAllocator allocator, String[] values) {
+    final ByteBuf content = this.content;
+    if (content != null) {
+      // independent indexes over the shared bytes, releasing it is a no-op
+      return content.duplicate();
+    }
+
+    final byte[][] segments = this.segments;
+    final Charset charset = this.charset;
+    final boolean utf8 = StandardCharsets.UTF_8.equals(charset);
+    final ByteBuf buffer = allocator.buffer(staticLength + values.length * 16);
+
+    buffer.writeBytes(segments[0]);
+    for (int i = 0; i < values.length; i++) {
+      final String value = values[i];
+      if (value == null) {
+        buffer.writeBytes(references[i]);
+      } else if (utf8) {
+        ByteBufUtil.writeUtf8(buffer, value);
+      } else {
+        buffer.writeCharSequence(value, charset);
+      }
+      buffer.writeBytes(segments[i + 1]);
+    }
+
+    final Transform transform = this.transform;
+    if (transform == null) {
+      return buffer;
+    }
+    try {
+      return transform.apply(allocator, buffer);
+    } finally {
+      buffer.release();
+    }
+  }
+}
@@ -1,47 +1,177 @@
 package io.rsocket.jmeter;
 
 import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
 import io.rsocket.Payload;
+import io.rsocket.jmeter.assertions.ByteBufAssertion;
+import io.rsocket.jmeter.codec.Compression;
+import io.rsocket.jmeter.codec.PayloadCodec;
+import io.rsocket.jmeter.extractor.ResponseExtractor;
+import io.rsocket.jmeter.metrics.RouteMetrics;
+import java.io.IOException;
+import java.time.Duration;
 import java.util.Arrays;
-import java.util.function.Function;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.atomic.AtomicReferenceFieldUpdater;
+import java.util.concurrent.locks.LockSupport;
+import org.apache.jmeter.assertions.AssertionResult;
 import org.apache.jmeter.samplers.SampleResult;
 import org.reactivestreams.Publisher;
 import org.reactivestreams.Subscription;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import reactor.core.CoreSubscriber;
-import reactor.core.Fuseable;
-import reactor.core.Fuseable.QueueSubscription;
+import reactor.core.Disposable;
+import reactor.core.Exceptions;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.Operators;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
 
 public class PublisherInstrumentation<T extends Payload> {
 
+  /**
+   * Subscribes to the given request right away and returns a handle completing once the sample
+   * result has been filled in. The handle accepts any number of subscribers, {@link
+   * Mono#block()} does not count as one.
+   */
   public static Mono<Void> instrument(Publisher<Payload> publisher, ReactiveSampleResult sampleResult) {
-    return Mono.fromDirect(Operators
-        .<Payload, Void>liftPublisher((__, actual) -> new SampleResultSubscriber(actual, sampleResult))
-        .apply(publisher));
+    final SampleResultSubscriber subscriber = new SampleResultSubscriber(sampleResult);
+    final long responseTimeout = sampleResult.getResponseTimeout();
+    final long maxDuration = sampleResult.getMaxDuration();
+    // only the earlier of the two can fire, either one finishes the sample
+    if (maxDuration > 0 && (responseTimeout <= 0 || maxDuration < responseTimeout)) {
+      subscriber.timer = Schedulers.parallel()
+          .schedule(() -> subscriber.fire(subscriber::truncate), maxDuration,
+              TimeUnit.MILLISECONDS);
+    } else if (responseTimeout > 0) {
+      subscriber.timer = Schedulers.parallel()
+          .schedule(() -> subscriber.fire(subscriber::timeout), responseTimeout,
+              TimeUnit.MILLISECONDS);
+    }
+    publisher.subscribe(subscriber);
+    return subscriber;
   }
 
 
-  static final class SampleResultSubscriber implements CoreSubscriber<Payload>,
-      QueueSubscription<Void> {
+  /**
+   * Instruments the request and doubles as its completion handle, so a sample costs one object
+   * on top of the request itself instead of a processor with its own subscriber array. Only a
+   * second consumer falls back to a multicast sink.
+   */
+  static final class SampleResultSubscriber extends Mono<Void> implements CoreSubscriber<Payload>,
+      Subscription, Disposable {
 
     private static final Logger log = LoggerFactory.getLogger(PublisherInstrumentation.class);
 
-    final CoreSubscriber<? super Void> actual;
+
+    static final int HAS_SUBSCRIBER = 0b0001;
+    static final int TERMINATED = 0b0010;
+    static final int CANCELLED = 0b0100;
+    static final int BLOCKED = 0b1000;
+    static final int TERMINATING = 0b10000;
+    // claimed by the first of onComplete, onError and the response timeout to fill in the result
+    static final int FINISHED = 0b100000;
+
     final ReactiveSampleResult sampleResult;
 
+    // evaluated on every buffer before it is released, null without assertion
+    final ByteBufAssertion.Check check;
+
+    // cleared when the body is dropped for lack of buffer budget
+    boolean retainBody;
+
+    // connection limiter the buffered bytes are reserved from, null without
+    final InFlightLimiter limiter;
+
+    // stream limits, 0 for none
+    final long maxElements;
+
+    final long maxBytes;
+
+    // fed with every buffer before it is released, null without extractor
+    final ResponseExtractor.Extraction extraction;
+
+    // the extraction needs the response decompressed and decoded, it is fed once complete
+    final boolean extractDecoded;
+
+    // whether the body is kept in the result, it may be retained for the extraction only
+    final boolean keepBody;
+
+    // records the sample instead of the route metrics, null unless sent during the warm-up
+    final WarmUp warmUp;
+
     Subscription s;
 
     byte[] data = new byte[0];
 
-    SampleResultSubscriber(CoreSubscriber<? super Void> actual,
-        ReactiveSampleResult sampleResult) {
-      this.actual = actual;
+    long received;
+
+    long elements;
+
+    // bytes reserved from the limiters for the retained body, given back on termination
+    volatile long reserved;
+    static final AtomicLongFieldUpdater<SampleResultSubscriber> RESERVED =
+        AtomicLongFieldUpdater.newUpdater(SampleResultSubscriber.class, "reserved");
+
+    volatile CoreSubscriber<? super Void> actual;
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<SampleResultSubscriber, CoreSubscriber> ACTUAL =
+        AtomicReferenceFieldUpdater.newUpdater(SampleResultSubscriber.class, CoreSubscriber.class,
+            "actual");
+
+    // further consumers, e.g. a second collector in scope, created for the first of them
+    volatile Sinks.Empty<Void> others;
+    @SuppressWarnings("rawtypes")
+    static final AtomicReferenceFieldUpdater<SampleResultSubscriber, Sinks.Empty> OTHERS =
+        AtomicReferenceFieldUpdater.newUpdater(SampleResultSubscriber.class, Sinks.Empty.class,
+            "others");
+
+    // written by the thread claiming TERMINATING, published by the TERMINATED transition
+    Throwable error;
+
+    // published by the BLOCKED transition
+    Thread waiter;
+
+    // response timeout, null without
+    volatile Disposable timer;
+
+    // timer action left to the thread delivering an element when the timer fired meanwhile
+    volatile Runnable pending;
+
+    // taken by onNext while it updates the received data and by the firing timer for good, so
+    // the timer never reads the data, checks and extractions while an element is delivered
+    volatile int wip;
+    static final AtomicIntegerFieldUpdater<SampleResultSubscriber> WIP =
+        AtomicIntegerFieldUpdater.newUpdater(SampleResultSubscriber.class, "wip");
+
+    volatile int state;
+    static final AtomicIntegerFieldUpdater<SampleResultSubscriber> STATE =
+        AtomicIntegerFieldUpdater.newUpdater(SampleResultSubscriber.class, "state");
+
+    SampleResultSubscriber(ReactiveSampleResult sampleResult) {
       this.sampleResult = sampleResult;
+      final ByteBufAssertion assertion = sampleResult.getAssertion();
+      this.check = assertion == null ? null : assertion.newCheck();
+      this.limiter = sampleResult.getLimiter();
+      this.extraction = sampleResult.getExtraction();
+      final Compression compression = sampleResult.getResponseCompression();
+      final PayloadCodec codec = sampleResult.getResponseCodec();
+      this.extractDecoded = extraction != null
+          && ((compression != null && compression != Compression.NONE)
+          || (codec != null && codec.encodesText()));
+      this.keepBody = sampleResult.isRetainBody();
+      this.retainBody = keepBody || extractDecoded;
+      this.maxElements = sampleResult.getMaxElements();
+      this.maxBytes = sampleResult.getMaxBytes();
 
       sampleResult.sampleStart();
+      final WarmUp warmUp = WarmUp.current();
+      this.warmUp = warmUp != null && warmUp.isWarmUp(sampleResult) ? warmUp : null;
+      sampleResult.setWarmUp(this.warmUp != null);
     }
 
     @Override
@@ -53,28 +183,117 @@ public class PublisherInstrumentation<T extends Payload> {
           log.debug("Subscribed. Mark sample result [{}] as connected", sampleResult);
         }
 
-        this.actual.onSubscribe(this);
-
         this.sampleResult.connectEnd();
+
+        if ((state & (TERMINATING | FINISHED)) != 0) {
+          // disposed or timed out before the request was subscribed
+          s.cancel();
+          return;
+        }
+        // no more elements than needed are produced for a truncated stream
+        s.request(maxElements > 0 ? maxElements : Long.MAX_VALUE);
       }
     }
 
     @Override
     public void onNext(Payload payload) {
+      if ((state & FINISHED) != 0 || WIP.getAndIncrement(this) != 0) {
+        // in flight when the request timed out
+        payload.release();
+        return;
+      }
+      try {
+        deliver(payload);
+      } finally {
+        if (WIP.decrementAndGet(this) != 0) {
+          // the timer fired while the element was delivered
+          pending.run();
+        }
+      }
+    }
+
+    void deliver(Payload payload) {
       final ByteBuf nextDataByteBuf = payload.sliceData();
-      final byte[] currentData = this.data;
-      final byte[] nextData = new byte[nextDataByteBuf.readableBytes() + currentData.length];
+      received += nextDataByteBuf.readableBytes();
+
+      final ByteBufAssertion.Check check = this.check;
+      if (check != null) {
+        check.onNext(nextDataByteBuf);
+      }
+      final ResponseExtractor.Extraction extraction = this.extraction;
+      if (extraction != null && !extractDecoded) {
+        extraction.onNext(nextDataByteBuf);
+      }
+      if (retainBody && !reserve(nextDataByteBuf.readableBytes())) {
+        dropBody();
+      }
+      if (retainBody) {
+        final byte[] currentData = this.data;
+        final byte[] nextData = new byte[nextDataByteBuf.readableBytes() + currentData.length];
 
-      System.arraycopy(currentData, 0, nextData, 0, currentData.length);
-      nextDataByteBuf.readBytes(nextData, currentData.length, nextDataByteBuf.readableBytes());
+        System.arraycopy(currentData, 0, nextData, 0, currentData.length);
+        nextDataByteBuf.readBytes(nextData, currentData.length, nextDataByteBuf.readableBytes());
 
-      this.data = nextData;
+        this.data = nextData;
+      }
 
       payload.release();
+
+      elements++;
+      if ((maxElements > 0 && elements >= maxElements) || (maxBytes > 0 && received >= maxBytes)) {
+        truncate();
+      }
+    }
+
+    /**
+     * Runs the timer action right away unless an element is being delivered, then the delivering
+     * thread runs it once done. Elements arriving afterwards are released unread.
+     */
+    void fire(Runnable action) {
+      pending = action;
+      if (WIP.getAndIncrement(this) == 0) {
+        action.run();
+      }
+    }
+
+    /**
+     * @return whether the buffer budget of the connection and the global one allow retaining
+     * the given number of bytes more
+     */
+    boolean reserve(int bytes) {
+      if (!InFlightLimiter.reserveBytes(limiter, bytes)) {
+        return false;
+      }
+      RESERVED.addAndGet(this, bytes);
+      if ((state & TERMINATING) != 0) {
+        // terminated concurrently, e.g. by the timer, after it gave back the reservation
+        releaseReserved();
+      }
+      return true;
+    }
+
+    void releaseReserved() {
+      final long reserved = RESERVED.getAndSet(this, 0);
+      if (reserved > 0) {
+        InFlightLimiter.releaseBytes(limiter, reserved);
+      }
+    }
+
+    /**
+     * Stops retaining the body, the response is still measured, checked and extracted.
+     */
+    void dropBody() {
+      retainBody = false;
+      data = new byte[0];
+      sampleResult.setBodyDropped(true);
+      releaseReserved();
     }
 
     @Override
     public void onError(Throwable t) {
+      if (!finish()) {
+        return;
+      }
       if (log.isDebugEnabled()) {
         log.debug("Terminated[{}]. Latency end for sample result [{}]", t, sampleResult);
       }
@@ -82,8 +301,6 @@ public class PublisherInstrumentation<T extends Payload> {
 
       sampleResult.latencyEnd();
 
-      this.actual.onError(t);
-
       if (log.isErrorEnabled()) {
         log.error("Sample Result [{}] Finished with error: \n{}", sampleResult, t);
       }
@@ -95,63 +312,414 @@ public class PublisherInstrumentation<T extends Payload> {
       sampleResult.setErrorCount(1);
 
       sampleResult.sampleEnd();
+      record(sampleResult, false);
+
+      terminate(t);
     }
 
     @Override
     public void onComplete() {
+      if (!finish()) {
+        return;
+      }
+      complete(false);
+    }
+
+    /**
+     * Cancels the request once a stream limit is reached and ends the sample successfully with
+     * the elements received so far. A stream without any element by then timed out instead.
+     */
+    void truncate() {
+      if (elements == 0) {
+        timeout(sampleResult.getMaxDuration());
+        return;
+      }
+      if (!finish()) {
+        return;
+      }
+      final Subscription s = this.s;
+      if (s != null) {
+        s.cancel();
+      }
+      complete(true);
+    }
+
+    void complete(boolean truncated) {
       if (log.isDebugEnabled()) {
         log.debug("Terminated. Latency end for sample result [{}]", sampleResult);
       }
       final ReactiveSampleResult sampleResult = this.sampleResult;
       sampleResult.latencyEnd();
 
-      this.actual.onComplete();
-
       if (log.isDebugEnabled()) {
         log.debug("Finished successfully. Sample result [{}]", this.sampleResult);
       }
 
       sampleResult.setDataType(SampleResult.BINARY);
       sampleResult.setResponseData(this.data);
-      sampleResult.setBodySize((long) data.length);
+      sampleResult.setBodySize(received);
       sampleResult.setSuccessful(true);
+      if (truncated) {
+        sampleResult.setTruncated(true);
+        sampleResult.setResponseMessage(
+            "Truncated after " + elements + " elements, " + received + " bytes");
+      } else if (sampleResult.isBodyDropped()) {
+        sampleResult.setResponseMessage(
+            "Body of " + received + " bytes dropped, buffer budget exhausted");
+      }
 
       sampleResult.sampleEnd();
+      final boolean successful = check == null || verify(sampleResult);
+      final RouteMetrics routeMetrics = sampleResult.getRouteMetrics();
+      if (!truncated || warmUp != null) {
+        record(sampleResult, successful);
+      } else if (routeMetrics != null) {
+        routeMetrics.recordTruncated(sampleResult.getElapsedNanos(), successful, received,
+            sampleResult.getSentBytes());
+      }
+      if (retainBody) {
+        decompress(sampleResult);
+        decode(sampleResult);
+        if (extractDecoded) {
+          extraction.onNext(Unpooled.wrappedBuffer(sampleResult.getResponseData()));
+        }
+        if (!keepBody) {
+          sampleResult.setResponseData(new byte[0]);
+        }
+      }
+
+      terminate(null);
+    }
+
+    void timeout() {
+      timeout(sampleResult.getResponseTimeout());
+    }
+
+    /**
+     * Cancels the request once the response timeout elapsed, sending CANCEL so the server stops
+     * and the stream id is freed, and reports the sample as timed out with the data received so
+     * far. The consumer sees a completed sample, so a blocked sampler thread is released.
+     */
+    void timeout(long timeoutMillis) {
+      if (!finish()) {
+        return;
+      }
+      final Subscription s = this.s;
+      if (s != null) {
+        s.cancel();
+      }
+      final ReactiveSampleResult sampleResult = this.sampleResult;
+      sampleResult.latencyEnd();
+
+      if (log.isDebugEnabled()) {
+        log.debug("Sample result [{}] timed out after {} ms", sampleResult, timeoutMillis);
+      }
+
+      sampleResult.setDataType(SampleResult.BINARY);
+      sampleResult.setResponseData(this.data);
+      sampleResult.setBodySize(received);
+      sampleResult.setResponseCode(ReactiveSampleResult.TIMEOUT_RESPONSE_CODE);
+      sampleResult.setResponseMessage(
+          "No response within " + timeoutMillis + " ms");
+      sampleResult.setTimedOut(true);
+      sampleResult.setSuccessful(false);
+      sampleResult.setErrorCount(1);
+
+      sampleResult.sampleEnd();
+      record(sampleResult, false);
+      final RouteMetrics routeMetrics = sampleResult.getRouteMetrics();
+      if (routeMetrics != null && warmUp == null) {
+        routeMetrics.recordTimeout();
+      }
+
+      terminate(null);
+    }
+
+    /**
+     * @return whether the caller is the first to terminate the sample, which stops the timer
+     */
+    boolean finish() {
+      for (; ; ) {
+        final int state = this.state;
+        if ((state & FINISHED) != 0) {
+          return false;
+        }
+        if (STATE.compareAndSet(this, state, state | FINISHED)) {
+          break;
+        }
+      }
+      final Disposable timer = this.timer;
+      if (timer != null) {
+        timer.dispose();
+      }
+      return true;
+    }
+
+    /**
+     * Completes the assertion over all the received data, failing the sample if a check failed.
+     */
+    boolean verify(ReactiveSampleResult sampleResult) {
+      final String failure = check.verify();
+      if (failure == null) {
+        return true;
+      }
+      final AssertionResult assertionResult = new AssertionResult("RSocket Response Assertion");
+      assertionResult.setFailure(true);
+      assertionResult.setFailureMessage(failure);
+      sampleResult.addAssertionResult(assertionResult);
+      sampleResult.setResponseMessage(failure);
+      sampleResult.setSuccessful(false);
+      return false;
+    }
+
+    /**
+     * Decompresses the response after the sample ended, timed separately from the network.
+     */
+    void decompress(ReactiveSampleResult sampleResult) {
+      final Compression compression = sampleResult.getResponseCompression();
+      if (compression == null || compression == Compression.NONE || data.length == 0) {
+        return;
+      }
+      final long start = System.nanoTime();
+      try {
+        data = compression.decompress(data);
+      } catch (IOException e) {
+        // e.g. a server not compressing errors, keep the response as received
+        if (log.isDebugEnabled()) {
+          log.debug("Response of [{}] is not {} compressed", sampleResult, compression, e);
+        }
+        return;
+      }
+      final long decompressNanos = System.nanoTime() - start;
+      sampleResult.setDecompressNanos(decompressNanos);
+      sampleResult.setResponseData(data);
+
+      final RouteMetrics routeMetrics = sampleResult.getRouteMetrics();
+      if (routeMetrics != null) {
+        routeMetrics.recordDecompression(decompressNanos);
+      }
+    }
+
+    /**
+     * Turns the response into text for listeners and extractors, outside of the sample time.
+     */
+    void decode(ReactiveSampleResult sampleResult) {
+      final PayloadCodec codec = sampleResult.getResponseCodec();
+      if (codec == null) {
+        return;
+      }
+      final String text = codec.decode(data, sampleResult.getResponseCharset());
+      if (text != null) {
+        sampleResult.setDataType(SampleResult.TEXT);
+        sampleResult.setResponseData(text, sampleResult.getResponseCharset().name());
+      }
+    }
+
+    void record(ReactiveSampleResult sampleResult, boolean successful) {
+      final WarmUp warmUp = this.warmUp;
+      if (warmUp != null) {
+        warmUp.record(sampleResult);
+        return;
+      }
+      final RouteMetrics routeMetrics = sampleResult.getRouteMetrics();
+      if (routeMetrics != null) {
+        routeMetrics.record(sampleResult.getElapsedNanos(), successful, received,
+            sampleResult.getSentBytes());
+      }
+    }
+
+    /**
+     * Publishes the terminal signal once the sample result is complete, delivering it right away
+     * if the consumer is already there and waking up a blocked sampler thread.
+     */
+    void terminate(Throwable error) {
+      for (; ; ) {
+        final int state = this.state;
+        if ((state & TERMINATING) != 0) {
+          return;
+        }
+        if (STATE.compareAndSet(this, state, state | TERMINATING)) {
+          break;
+        }
+      }
+
+      this.error = error;
+      releaseReserved();
+
+      for (; ; ) {
+        final int state = this.state;
+        if (STATE.compareAndSet(this, state, state | TERMINATED)) {
+          if ((state & (HAS_SUBSCRIBER | CANCELLED)) == HAS_SUBSCRIBER) {
+            deliver(actual, error);
+          }
+          final Sinks.Empty<Void> others = this.others;
+          if (others != null) {
+            deliver(others, error);
+          }
+          if ((state & BLOCKED) != 0) {
+            LockSupport.unpark(waiter);
+          }
+          return;
+        }
+      }
+    }
+
+    static void deliver(CoreSubscriber<? super Void> actual, Throwable error) {
+      if (error == null) {
+        actual.onComplete();
+      } else {
+        actual.onError(error);
+      }
+    }
+
+    static void deliver(Sinks.Empty<Void> others, Throwable error) {
+      // emitted by whichever of terminate and subscribeOther sees the other, possibly both
+      if (error == null) {
+        others.tryEmitEmpty();
+      } else {
+        others.tryEmitError(error);
+      }
+    }
+
+    @Override
+    public void subscribe(CoreSubscriber<? super Void> actual) {
+      if (!ACTUAL.compareAndSet(this, null, actual)) {
+        subscribeOther(actual);
+        return;
+      }
+
+      actual.onSubscribe(this);
+
+      for (; ; ) {
+        final int state = this.state;
+        if (STATE.compareAndSet(this, state, state | HAS_SUBSCRIBER)) {
+          if ((state & (TERMINATED | CANCELLED)) == TERMINATED) {
+            deliver(actual, error);
+          }
+          return;
+        }
+      }
+    }
+
+    /**
+     * Subscribes a further consumer to a multicast sink replaying the terminal signal, only
+     * samples with more than one consumer pay for it.
+     */
+    @SuppressWarnings("unchecked")
+    void subscribeOther(CoreSubscriber<? super Void> actual) {
+      Sinks.Empty<Void> others = this.others;
+      if (others == null) {
+        final Sinks.Empty<Void> created = Sinks.empty();
+        others = OTHERS.compareAndSet(this, null, created) ? created : this.others;
+      }
+      others.asMono().subscribe(actual);
+      if ((state & TERMINATED) != 0) {
+        deliver(others, error);
+      }
     }
 
     @Override
     public void request(long n) {
-      this.s.request(Long.MAX_VALUE);
+      // completion only, there are no values to request
     }
 
+    /**
+     * Detaches the consumer, the request itself keeps running, see {@link #dispose()}.
+     */
     @Override
     public void cancel() {
-      this.s.cancel();
+      for (; ; ) {
+        final int state = this.state;
+        if ((state & CANCELLED) != 0
+            || STATE.compareAndSet(this, state, state | CANCELLED)) {
+          return;
+        }
+      }
     }
 
+    /**
+     * Cancels the request. The sample result is left untouched, the consumer receives a {@link
+     * CancellationException}.
+     */
     @Override
-    public int requestFusion(int requestedMode) {
-      return Fuseable.NONE;
+    public void dispose() {
+      // leaves the result to whoever finished it already, stops the timer otherwise
+      finish();
+      final Subscription s = this.s;
+      if (s != null) {
+        s.cancel();
+      }
+      terminate(new CancellationException("Disposed"));
     }
 
     @Override
-    public Void poll() {
-      return null;
+    public boolean isDisposed() {
+      return (state & TERMINATED) != 0;
     }
 
     @Override
-    public int size() {
-      return 0;
+    public Void block() {
+      awaitTermination(Long.MAX_VALUE);
+      return result();
     }
 
     @Override
-    public boolean isEmpty() {
-      return true;
+    public Void block(Duration timeout) {
+      if (!awaitTermination(timeout.toNanos())) {
+        throw new IllegalStateException("Timeout on blocking read for " + timeout.toMillis()
+            + " " + TimeUnit.MILLISECONDS);
+      }
+      return result();
     }
 
-    @Override
-    public void clear() {
+    Void result() {
+      final Throwable error = this.error;
+      if (error != null) {
+        throw Exceptions.propagate(error);
+      }
+      return null;
+    }
 
+    /**
+     * Parks the calling thread instead of waiting on a monitor, which would pin the carrier of a
+     * virtual thread. Supports a single blocking thread.
+     */
+    boolean awaitTermination(long timeoutNanos) {
+      waiter = Thread.currentThread();
+      for (; ; ) {
+        final int state = this.state;
+        if ((state & TERMINATED) != 0) {
+          return true;
+        }
+        if ((state & BLOCKED) != 0 || STATE.compareAndSet(this, state, state | BLOCKED)) {
+          break;
+        }
+      }
+
+      final long deadline = System.nanoTime() + timeoutNanos;
+      boolean interrupted = false;
+      try {
+        while ((this.state & TERMINATED) == 0) {
+          if (timeoutNanos == Long.MAX_VALUE) {
+            LockSupport.park(this);
+          } else {
+            final long remaining = deadline - System.nanoTime();
+            if (remaining <= 0) {
+              return false;
+            }
+            LockSupport.parkNanos(this, remaining);
+          }
+          if (Thread.interrupted()) {
+            interrupted = true;
+            dispose();
+          }
+        }
+        return true;
+      } finally {
+        if (interrupted) {
+          Thread.currentThread().interrupt();
+        }
+      }
     }
   }
 }
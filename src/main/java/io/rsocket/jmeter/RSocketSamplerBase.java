@@ -18,9 +18,13 @@
 package io.rsocket.jmeter;
 
 import io.rsocket.frame.FrameType;
+import io.rsocket.jmeter.codec.Compression;
+import io.rsocket.jmeter.metrics.MetricsRegistry;
+import io.rsocket.jmeter.metrics.RouteMetrics;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
@@ -41,6 +45,7 @@ import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.TestIterationListener;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.testelement.property.FunctionProperty;
 import org.apache.jmeter.testelement.property.JMeterProperty;
 import org.apache.jmeter.testelement.property.TestElementProperty;
 import org.apache.jmeter.util.JMeterUtils;
@@ -69,7 +74,9 @@ public abstract class RSocketSamplerBase extends AbstractSampler
           "org.apache.jmeter.protocol.http.gui.AuthPanel",
           "org.apache.jmeter.protocol.http.gui.CacheManagerGui",
           "org.apache.jmeter.protocol.http.gui.CookiePanel",
-          "org.apache.jmeter.testbeans.gui.TestBeanGUI"
+          "org.apache.jmeter.testbeans.gui.TestBeanGUI",
+          "io.rsocket.jmeter.assertions.ByteBufAssertionGui",
+          "io.rsocket.jmeter.extractor.ResponseExtractorGui"
       ));
 
   //+ JMX names - do not change
@@ -94,6 +101,50 @@ public abstract class RSocketSamplerBase extends AbstractSampler
 
   public static final String ROUTE = "RSocketSampler.route"; // $NON-NLS-1$
 
+  /**
+   * How the data text is turned into bytes: a template encoded per sample, or hex or base64
+   * decoded once
+   */
+  public static final String DATA_FORMAT = "RSocketSampler.data_format"; // $NON-NLS-1$
+
+  public static final String DATA_FORMAT_TEXT = "TEXT"; // $NON-NLS-1$
+
+  public static final String DATA_FORMAT_HEX = "HEX"; // $NON-NLS-1$
+
+  public static final String DATA_FORMAT_BASE64 = "BASE64"; // $NON-NLS-1$
+
+  /**
+   * Compression of request data, responses are expected to be compressed alike
+   */
+  public static final String COMPRESSION = "RSocketSampler.compression"; // $NON-NLS-1$
+
+  /**
+   * Limits after which a response stream is cancelled and the sample ends as truncated, empty for
+   * none. Only applied to REQUEST_STREAM and REQUEST_CHANNEL.
+   */
+  public static final String STREAM_MAX_ELEMENTS = "RSocketSampler.stream_max_elements"; // $NON-NLS-1$
+
+  public static final String STREAM_MAX_BYTES = "RSocketSampler.stream_max_bytes"; // $NON-NLS-1$
+
+  public static final String STREAM_MAX_DURATION = "RSocketSampler.stream_max_duration"; // $NON-NLS-1$
+
+  /**
+   * Request retries: number of retries, empty for none, backoff before the first retry doubling
+   * with every further one, jitter factor of the backoff, timeout of each attempt until its first
+   * response and comma separated names of the errors worth retrying, empty for any
+   */
+  public static final String RETRY_MAX = "RSocketSampler.retry_max"; // $NON-NLS-1$
+
+  public static final String RETRY_BACKOFF = "RSocketSampler.retry_backoff"; // $NON-NLS-1$
+
+  public static final String RETRY_JITTER = "RSocketSampler.retry_jitter"; // $NON-NLS-1$
+
+  public static final String RETRY_ATTEMPT_TIMEOUT = "RSocketSampler.retry_attempt_timeout"; // $NON-NLS-1$
+
+  public static final String RETRY_ON = "RSocketSampler.retry_on"; // $NON-NLS-1$
+
+  public static final double RETRY_JITTER_DEFAULT = 0.5;
+
   public static final String CONCURRENT_DWN = "RSocketSampler.concurrentDwn"; // $NON-NLS-1$
 
   public static final String CONCURRENT_POOL = "RSocketSampler.concurrentPool"; // $NON-NLS-1$
@@ -185,6 +236,9 @@ public abstract class RSocketSamplerBase extends AbstractSampler
     }
   }
 
+  // slot of the pre-registered route statistics, -1 when the route is only known at sample time
+  private transient int routeSlot = -1;
+
   ////////////////////// Code ///////////////////////////
 
   protected RSocketSamplerBase() {
@@ -314,6 +368,112 @@ public abstract class RSocketSamplerBase extends AbstractSampler
     return getPropertyAsString(DATA, "");
   }
 
+  public void setDataFormat(String value) {
+    setProperty(DATA_FORMAT, value, DATA_FORMAT_TEXT);
+  }
+
+  /**
+   * @return one of {@link #DATA_FORMAT_TEXT}, {@link #DATA_FORMAT_HEX} or {@link
+   * #DATA_FORMAT_BASE64}
+   */
+  public String getDataFormat() {
+    return getPropertyAsString(DATA_FORMAT, DATA_FORMAT_TEXT);
+  }
+
+  public void setCompression(String value) {
+    setProperty(COMPRESSION, value, Compression.NONE.name());
+  }
+
+  /**
+   * @return the compression of the request data, null if the value, e.g. of a variable, is not a
+   * known compression
+   */
+  public Compression getCompression() {
+    final String value = getPropertyAsString(COMPRESSION, Compression.NONE.name()).trim();
+    if (value.isEmpty()) {
+      return Compression.NONE;
+    }
+    try {
+      return Compression.valueOf(value.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      return null;
+    }
+  }
+
+  /**
+   * @return number of elements after which the response is cancelled, 0 for no limit
+   */
+  public long getStreamMaxElements() {
+    return getPropertyAsLong(STREAM_MAX_ELEMENTS, 0);
+  }
+
+  /**
+   * @return number of data bytes after which the response is cancelled, 0 for no limit
+   */
+  public long getStreamMaxBytes() {
+    return getPropertyAsLong(STREAM_MAX_BYTES, 0);
+  }
+
+  /**
+   * @return milliseconds after which the response is cancelled, 0 for no limit
+   */
+  public long getStreamMaxDuration() {
+    return getPropertyAsLong(STREAM_MAX_DURATION, 0);
+  }
+
+  /**
+   * @return whether the given request type answers with a stream, the stream limits apply to
+   * those only
+   */
+  public static boolean hasResponseStream(String requestType) {
+    return FrameType.REQUEST_STREAM.name().equals(requestType)
+        || FrameType.REQUEST_CHANNEL.name().equals(requestType);
+  }
+
+  /**
+   * @return number of times a failed request is sent again, 0 for none
+   */
+  public long getRetryMax() {
+    return getPropertyAsLong(RETRY_MAX, 0);
+  }
+
+  /**
+   * @return milliseconds before the first retry, 0 to retry right away
+   */
+  public long getRetryBackoff() {
+    return getPropertyAsLong(RETRY_BACKOFF, 0);
+  }
+
+  /**
+   * @return factor of the backoff randomly added or removed, between 0 and 1
+   */
+  public double getRetryJitter() {
+    final String jitter = getPropertyAsString(RETRY_JITTER, "").trim();
+    try {
+      return jitter.isEmpty() ? RETRY_JITTER_DEFAULT : Double.parseDouble(jitter);
+    } catch (NumberFormatException e) {
+      log.warn("Invalid retry jitter [{}] of sampler [{}], using {}", jitter, getName(),
+          RETRY_JITTER_DEFAULT);
+      return RETRY_JITTER_DEFAULT;
+    }
+  }
+
+  /**
+   * @return milliseconds an attempt may wait for its first response before it is cancelled and
+   * retried, 0 for no limit
+   */
+  public long getRetryAttemptTimeout() {
+    return getPropertyAsLong(RETRY_ATTEMPT_TIMEOUT, 0);
+  }
+
+  /**
+   * @return comma separated simple or fully qualified names of the errors to retry, a super class
+   * matches its subclasses, empty for any error
+   */
+  public String getRetryOn() {
+    return getPropertyAsString(RETRY_ON, "");
+  }
+
   @Override
   public String toString() {
     StringBuilder stringBuffer = new StringBuilder();
@@ -400,6 +560,7 @@ public abstract class RSocketSamplerBase extends AbstractSampler
     if (isConcurrentDwn()) {
 //            ResourcesDownloader.getInstance().shrink();
     }
+    PayloadTemplate.releaseBinaries();
   }
 
   /**
@@ -491,6 +652,23 @@ public abstract class RSocketSamplerBase extends AbstractSampler
   // (previously these were implemented in all TestElements)
   @Override
   public void threadStarted() {
+    // static routes are registered upfront so that sampling only does an array lookup
+    if (getProperty(ROUTE) instanceof FunctionProperty
+        || getProperty(REQUEST_TYPE) instanceof FunctionProperty) {
+      routeSlot = -1;
+    } else {
+      routeSlot = MetricsRegistry.getInstance().register(getRoute(), getRequestType());
+    }
+  }
+
+  /**
+   * @return the statistics the current sample of the given route has to be recorded into
+   */
+  protected RouteMetrics getRouteMetrics(String route, String requestType) {
+    final int routeSlot = this.routeSlot;
+    return routeSlot >= 0
+        ? MetricsRegistry.getInstance().slot(routeSlot)
+        : MetricsRegistry.getInstance().route(route, requestType);
   }
 
   @Override
@@ -1,14 +1,19 @@
 package io.rsocket.jmeter;
 
+import io.rsocket.RSocket;
 import io.rsocket.core.RSocketClient;
 import io.rsocket.core.RSocketConnector;
 import io.rsocket.frame.decoder.PayloadDecoder;
+import io.rsocket.jmeter.codec.PayloadCodec;
+import io.rsocket.jmeter.codec.PayloadCodecs;
+import io.rsocket.jmeter.metrics.MetricsRegistry;
 import io.rsocket.metadata.WellKnownMimeType;
 import io.rsocket.transport.ClientTransport;
 import io.rsocket.transport.netty.client.TcpClientTransport;
 import io.rsocket.transport.netty.client.WebsocketClientTransport;
 import java.io.Serializable;
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
 import org.apache.jmeter.engine.event.LoopIterationEvent;
 import org.apache.jmeter.engine.event.LoopIterationListener;
 import org.apache.jmeter.engine.util.NoThreadClone;
@@ -16,6 +21,11 @@ import org.apache.jmeter.testelement.AbstractTestElement;
 import org.apache.jmeter.testelement.TestStateListener;
 import org.apache.jmeter.threads.JMeterContextService;
 import org.apache.jmeter.threads.JMeterVariables;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.netty.http.client.HttpClient;
 import reactor.util.retry.Retry;
 
@@ -24,6 +34,8 @@ public class RSocketSetup extends AbstractTestElement
 
   private static final long serialVersionUID = 1L;
 
+  private static final Logger log = LoggerFactory.getLogger(RSocketSetup.class);
+
   private static final String HOST = "RSocketSetup.host"; // $NON-NLS-1$
 
   private static final String PORT = "RSocketSetup.port"; // $NON-NLS-1$
@@ -32,10 +44,49 @@ public class RSocketSetup extends AbstractTestElement
 
   private static final String TRANSPORT_WS_PATH = "RSocketSetup.transport.ws.path"; // $NON-NLS-1$
 
+  private static final String CHURN_INTERVAL = "RSocketSetup.churn.interval"; // $NON-NLS-1$
+
+  private static final String CHURN_REQUESTS = "RSocketSetup.churn.requests"; // $NON-NLS-1$
+
+  private static final String MAX_IN_FLIGHT = "RSocketSetup.max_in_flight"; // $NON-NLS-1$
+
+  private static final String MAX_BUFFERED_BYTES = "RSocketSetup.max_buffered_bytes"; // $NON-NLS-1$
+
+  private static final String OVERLOAD_POLICY = "RSocketSetup.overload_policy"; // $NON-NLS-1$
+
+  private static final String DATA_MIME_TYPE = "RSocketSetup.mime.data"; // $NON-NLS-1$
+
+  private static final String METADATA_MIME_TYPE = "RSocketSetup.mime.metadata"; // $NON-NLS-1$
+
+  public static final String DEFAULT_DATA_MIME_TYPE =
+      WellKnownMimeType.APPLICATION_OCTET_STREAM.getString();
+
+  public static final String DEFAULT_METADATA_MIME_TYPE =
+      WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString();
+
   public static final String VAR_CLIENT = "RSocketSetup.client"; // $NON-NLS-1$
 
+  public static final String VAR_DATA_CODEC = "RSocketSetup.dataCodec"; // $NON-NLS-1$
+
+  public static final String VAR_METADATA_MIME_TYPE = "RSocketSetup.metadataMimeType"; // $NON-NLS-1$
+
+  public static final String VAR_CONNECTION_METRICS = "RSocketSetup.connectionMetrics"; // $NON-NLS-1$
+
+  public static final String VAR_LIMITER = "RSocketSetup.limiter"; // $NON-NLS-1$
+
   private transient RSocketClient rSocketClient;
 
+  private transient ConnectionMetrics connectionMetrics;
+
+  // null without limits on the connection
+  private transient InFlightLimiter limiter;
+
+  private transient PayloadCodec dataCodec;
+
+  private transient AtomicReference<RSocket> currentRSocket;
+
+  private transient Disposable churn;
+
   @Override
   public void testStarted() {
     testStarted("local");
@@ -58,14 +109,69 @@ public class RSocketSetup extends AbstractTestElement
             "Unsupported ClientTransport[" + getTransport().toUpperCase() + "]");
     }
 
-    this.rSocketClient = RSocketConnector
+    final ConnectionMetrics connectionMetrics = new ConnectionMetrics(getName());
+    this.connectionMetrics = connectionMetrics;
+    MetricsRegistry.getInstance().register(connectionMetrics);
+    this.currentRSocket = new AtomicReference<>();
+    if (getMaxInFlight() > 0 || getMaxBufferedBytes() > 0) {
+      this.limiter = new InFlightLimiter(getName(), getMaxInFlight(), getMaxBufferedBytes(),
+          InFlightLimiter.Policy.valueOf(getOverloadPolicy()));
+      MetricsRegistry.getInstance().register(limiter);
+    }
+    this.dataCodec = PayloadCodecs.forMimeType(getDataMimeType());
+
+    final RSocketClient rSocketClient = RSocketConnector
         .create()
         .payloadDecoder(PayloadDecoder.ZERO_COPY)
-        .reconnect(Retry.backoff(10, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(5)))
-        .metadataMimeType(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString())
-        .dataMimeType(WellKnownMimeType.APPLICATION_OCTET_STREAM.getString())
+        .reconnect(Retry.backoff(10, Duration.ofSeconds(1))
+            .maxBackoff(Duration.ofSeconds(5))
+            .doBeforeRetry(signal -> connectionMetrics
+                .onReconnectAttempt(signal.totalRetries() + 1, signal.failure())))
+        .metadataMimeType(getMetadataMimeType())
+        .dataMimeType(getDataMimeType())
         .connect(clientTransport)
+        .doOnNext(this::onConnected)
         .as(RSocketClient::from);
+    this.rSocketClient = limiter != null || InFlightLimiter.global() != null
+        ? new LimitedRSocketClient(rSocketClient, limiter)
+        : rSocketClient;
+
+    final int churnInterval = getChurnInterval();
+    if (churnInterval > 0) {
+      log.info("Recycling connection [{}] every {} seconds", getName(), churnInterval);
+      this.churn = Flux.interval(Duration.ofSeconds(churnInterval))
+          .subscribe(__ -> recycle());
+    }
+
+    final int churnRequests = getChurnRequests();
+    if (churnRequests > 0) {
+      log.info("Recycling connection [{}] every {} requests", getName(), churnRequests);
+      connectionMetrics.recycleEvery(churnRequests, this::recycle);
+    }
+  }
+
+  private void onConnected(RSocket rSocket) {
+    // the connection Mono replays the cached RSocket, so only react to a new instance
+    if (currentRSocket.getAndSet(rSocket) == rSocket) {
+      return;
+    }
+
+    connectionMetrics.onConnected();
+    rSocket.onClose()
+        .onErrorResume(__ -> Mono.empty())
+        .doFinally(__ -> connectionMetrics.onDisconnected())
+        .subscribe();
+  }
+
+  /**
+   * Closes the current connection so the next request goes through a fresh connect.
+   */
+  private void recycle() {
+    final RSocket rSocket = currentRSocket.get();
+    if (rSocket != null && !rSocket.isDisposed()) {
+      connectionMetrics.onRecycle();
+      rSocket.dispose();
+    }
   }
 
   @Override
@@ -75,15 +181,47 @@ public class RSocketSetup extends AbstractTestElement
 
   @Override
   public void testEnded(String host) {
+    if (churn != null) {
+      churn.dispose();
+    }
     rSocketClient.dispose();
+    MetricsRegistry.getInstance().unregister(connectionMetrics);
+    if (limiter != null) {
+      MetricsRegistry.getInstance().unregister(limiter);
+      log.info("Connection [{}] limits: {}", getName(), limiter);
+      limiter = null;
+    }
+
+    log.info("Connection [{}] finished: {}", getName(), connectionMetrics);
   }
 
 
   @Override
   public void iterationStart(LoopIterationEvent iterEvent) {
-    JMeterVariables variables = JMeterContextService.getContext().getVariables();
+    putVariables(JMeterContextService.getContext().getVariables());
+  }
 
+  /**
+   * Exposes the connection and its MIME types to the samplers of a user.
+   */
+  public void putVariables(JMeterVariables variables) {
     variables.putObject(VAR_CLIENT, rSocketClient);
+    variables.putObject(VAR_CONNECTION_METRICS, connectionMetrics);
+    variables.putObject(VAR_LIMITER, limiter);
+    variables.putObject(VAR_DATA_CODEC, dataCodec);
+    variables.put(VAR_METADATA_MIME_TYPE, getMetadataMimeType());
+  }
+
+  public RSocketClient getRSocketClient() {
+    return rSocketClient;
+  }
+
+  public ConnectionMetrics getConnectionMetrics() {
+    return connectionMetrics;
+  }
+
+  public InFlightLimiter getLimiter() {
+    return limiter;
   }
 
   public void setTransport(String transport) {
@@ -102,6 +240,22 @@ public class RSocketSetup extends AbstractTestElement
     return getPropertyAsString(TRANSPORT_WS_PATH);
   }
 
+  public void setDataMimeType(String mimeType) {
+    setProperty(DATA_MIME_TYPE, mimeType, DEFAULT_DATA_MIME_TYPE);
+  }
+
+  public String getDataMimeType() {
+    return getPropertyAsString(DATA_MIME_TYPE, DEFAULT_DATA_MIME_TYPE);
+  }
+
+  public void setMetadataMimeType(String mimeType) {
+    setProperty(METADATA_MIME_TYPE, mimeType, DEFAULT_METADATA_MIME_TYPE);
+  }
+
+  public String getMetadataMimeType() {
+    return getPropertyAsString(METADATA_MIME_TYPE, DEFAULT_METADATA_MIME_TYPE);
+  }
+
   public void setHost(String host) {
     setProperty(HOST, host);
   }
@@ -117,4 +271,63 @@ public class RSocketSetup extends AbstractTestElement
   public int getPort() {
     return getPropertyAsInt(PORT);
   }
+
+  /**
+   * @param seconds interval at which the connection is deliberately closed and re-established, 0
+   *                to disable
+   */
+  public void setChurnInterval(int seconds) {
+    setProperty(CHURN_INTERVAL, seconds, 0);
+  }
+
+  public int getChurnInterval() {
+    return getPropertyAsInt(CHURN_INTERVAL, 0);
+  }
+
+  /**
+   * @param requests number of requests after which the connection is deliberately closed and
+   *                 re-established, 0 to disable
+   */
+  public void setChurnRequests(int requests) {
+    setProperty(CHURN_REQUESTS, requests, 0);
+  }
+
+  public int getChurnRequests() {
+    return getPropertyAsInt(CHURN_REQUESTS, 0);
+  }
+
+  /**
+   * @param requests requests outstanding on the connection at once, 0 for no limit
+   */
+  public void setMaxInFlight(int requests) {
+    setProperty(MAX_IN_FLIGHT, requests, 0);
+  }
+
+  public int getMaxInFlight() {
+    return getPropertyAsInt(MAX_IN_FLIGHT, 0);
+  }
+
+  /**
+   * @param bytes response bytes buffered for the requests of the connection at once, responses
+   *              beyond it are measured but their body is dropped, 0 for no limit
+   */
+  public void setMaxBufferedBytes(long bytes) {
+    setProperty(MAX_BUFFERED_BYTES, bytes, 0L);
+  }
+
+  public long getMaxBufferedBytes() {
+    return getPropertyAsLong(MAX_BUFFERED_BYTES, 0L);
+  }
+
+  /**
+   * @param policy name of an {@link InFlightLimiter.Policy}, what happens to requests beyond
+   *               the limit
+   */
+  public void setOverloadPolicy(String policy) {
+    setProperty(OVERLOAD_POLICY, policy, InFlightLimiter.Policy.QUEUE.name());
+  }
+
+  public String getOverloadPolicy() {
+    return getPropertyAsString(OVERLOAD_POLICY, InFlightLimiter.Policy.QUEUE.name());
+  }
 }
@@ -18,6 +18,7 @@
 
 package io.rsocket.jmeter;
 
+import io.rsocket.metadata.WellKnownMimeType;
 import javax.swing.Box;
 import javax.swing.JComboBox;
 import javax.swing.JComponent;
@@ -42,11 +43,20 @@ public class RSocketSetupGui extends AbstractPreProcessorGui {
   private static final String DEFAULT_PORT = "8080";
   private static final String DEFAULT_TRANSPORT = "TCP";
   private static final String DEFAULT_TRANSPORT_WEBSOCKET_PATH = "/rsocket";
+  private static final String DEFAULT_CHURN = "0";
+  private static final String DEFAULT_LIMIT = "0";
 
   private JTextField hostField;
   private JTextField portField;
   private JComboBox<String> transportField;
   private JTextField transportWebsocketPathField;
+  private JTextField churnIntervalField;
+  private JTextField churnRequestsField;
+  private JTextField maxInFlightField;
+  private JTextField maxBufferedBytesField;
+  private JComboBox<String> overloadPolicyField;
+  private JComboBox<String> dataMimeTypeField;
+  private JComboBox<String> metadataMimeTypeField;
 
   /**
    * No-arg constructor.
@@ -105,6 +115,26 @@ public class RSocketSetupGui extends AbstractPreProcessorGui {
     } catch (NumberFormatException ignored) {
     }
     RSocketSetup.setTransportWebsocketPath(transportWebsocketPathField.getText());
+    try {
+      RSocketSetup.setChurnInterval(Integer.parseInt(churnIntervalField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      RSocketSetup.setChurnRequests(Integer.parseInt(churnRequestsField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      RSocketSetup.setMaxInFlight(Integer.parseInt(maxInFlightField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      RSocketSetup.setMaxBufferedBytes(Long.parseLong(maxBufferedBytesField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    RSocketSetup.setOverloadPolicy(overloadPolicyField.getSelectedItem().toString());
+    RSocketSetup.setDataMimeType(String.valueOf(dataMimeTypeField.getSelectedItem()).trim());
+    RSocketSetup
+        .setMetadataMimeType(String.valueOf(metadataMimeTypeField.getSelectedItem()).trim());
   }
 
   /**
@@ -122,6 +152,13 @@ public class RSocketSetupGui extends AbstractPreProcessorGui {
     portField.setText(String.valueOf(RSocketSetup.getPort()));
     transportField.setSelectedItem(RSocketSetup.getTransport());
     transportWebsocketPathField.setText(RSocketSetup.getTransportWebsocketPath());
+    churnIntervalField.setText(String.valueOf(RSocketSetup.getChurnInterval()));
+    churnRequestsField.setText(String.valueOf(RSocketSetup.getChurnRequests()));
+    maxInFlightField.setText(String.valueOf(RSocketSetup.getMaxInFlight()));
+    maxBufferedBytesField.setText(String.valueOf(RSocketSetup.getMaxBufferedBytes()));
+    overloadPolicyField.setSelectedItem(RSocketSetup.getOverloadPolicy());
+    dataMimeTypeField.setSelectedItem(RSocketSetup.getDataMimeType());
+    metadataMimeTypeField.setSelectedItem(RSocketSetup.getMetadataMimeType());
   }
 
   /**
@@ -160,8 +197,62 @@ public class RSocketSetupGui extends AbstractPreProcessorGui {
         .addItemListener(e -> transportWebsocketPathField.setVisible(e.getItem().equals("WS")));
     transportPanel.add(transportWebsocketPathField);
 
+    Box churnPanel = Box.createHorizontalBox();
+    JLabel churnIntervalLabel = new JLabel("Recycle Connection Every (s)");//$NON-NLS-1$
+    churnPanel.add(churnIntervalLabel);
+    churnIntervalField = new JTextField(6);
+    churnIntervalField.setText(DEFAULT_CHURN);
+    churnPanel.add(churnIntervalField);
+    JLabel churnRequestsLabel = new JLabel("Or Every (requests)");//$NON-NLS-1$
+    churnPanel.add(churnRequestsLabel);
+    churnRequestsField = new JTextField(6);
+    churnRequestsField.setText(DEFAULT_CHURN);
+    churnPanel.add(churnRequestsField);
+
+    Box limitPanel = Box.createHorizontalBox();
+    JLabel maxInFlightLabel = new JLabel("Max In-Flight Requests");//$NON-NLS-1$
+    limitPanel.add(maxInFlightLabel);
+    maxInFlightField = new JTextField(6);
+    maxInFlightField.setText(DEFAULT_LIMIT);
+    limitPanel.add(maxInFlightField);
+    JLabel maxBufferedBytesLabel = new JLabel("Max Buffered Bytes");//$NON-NLS-1$
+    limitPanel.add(maxBufferedBytesLabel);
+    maxBufferedBytesField = new JTextField(8);
+    maxBufferedBytesField.setText(DEFAULT_LIMIT);
+    limitPanel.add(maxBufferedBytesField);
+    JLabel overloadPolicyLabel = new JLabel("When Exceeded");//$NON-NLS-1$
+    limitPanel.add(overloadPolicyLabel);
+    overloadPolicyField = new JComboBox<>(new String[]{
+        InFlightLimiter.Policy.QUEUE.name(), InFlightLimiter.Policy.SHED.name()});
+    overloadPolicyField.setSelectedItem(InFlightLimiter.Policy.QUEUE.name());
+    limitPanel.add(overloadPolicyField);
+
+    Box mimeTypePanel = Box.createHorizontalBox();
+    JLabel dataMimeTypeLabel = new JLabel("Data MIME Type");//$NON-NLS-1$
+    mimeTypePanel.add(dataMimeTypeLabel);
+    dataMimeTypeField = new JComboBox<>(new String[]{
+        WellKnownMimeType.APPLICATION_OCTET_STREAM.getString(),
+        WellKnownMimeType.APPLICATION_JSON.getString(),
+        WellKnownMimeType.APPLICATION_CBOR.getString(),
+        WellKnownMimeType.APPLICATION_PROTOBUF.getString(),
+        WellKnownMimeType.TEXT_PLAIN.getString()});
+    dataMimeTypeField.setEditable(true);
+    dataMimeTypeField.setSelectedItem(RSocketSetup.DEFAULT_DATA_MIME_TYPE);
+    mimeTypePanel.add(dataMimeTypeField);
+    JLabel metadataMimeTypeLabel = new JLabel("Metadata MIME Type");//$NON-NLS-1$
+    mimeTypePanel.add(metadataMimeTypeLabel);
+    metadataMimeTypeField = new JComboBox<>(new String[]{
+        WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString(),
+        WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString()});
+    metadataMimeTypeField.setEditable(true);
+    metadataMimeTypeField.setSelectedItem(RSocketSetup.DEFAULT_METADATA_MIME_TYPE);
+    mimeTypePanel.add(metadataMimeTypeField);
+
     add(hostAndPortPanel);
     add(transportPanel);
+    add(churnPanel);
+    add(limitPanel);
+    add(mimeTypePanel);
   }
 
   /**
@@ -173,6 +264,13 @@ public class RSocketSetupGui extends AbstractPreProcessorGui {
     transportField.setSelectedItem(DEFAULT_TRANSPORT);
     hostField.setText(DEFAULT_HOST);
     portField.setText(DEFAULT_PORT);
+    churnIntervalField.setText(DEFAULT_CHURN);
+    churnRequestsField.setText(DEFAULT_CHURN);
+    maxInFlightField.setText(DEFAULT_LIMIT);
+    maxBufferedBytesField.setText(DEFAULT_LIMIT);
+    overloadPolicyField.setSelectedItem(InFlightLimiter.Policy.QUEUE.name());
+    dataMimeTypeField.setSelectedItem(RSocketSetup.DEFAULT_DATA_MIME_TYPE);
+    metadataMimeTypeField.setSelectedItem(RSocketSetup.DEFAULT_METADATA_MIME_TYPE);
 
     super.clearGui();
   }
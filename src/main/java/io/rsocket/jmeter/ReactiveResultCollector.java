@@ -1,10 +1,28 @@
 package io.rsocket.jmeter;
 
+import io.rsocket.jmeter.metrics.HistogramSnapshot;
+import io.rsocket.jmeter.metrics.LatencyHistogram;
+import io.rsocket.jmeter.metrics.MetricsRegistry;
+import io.rsocket.jmeter.metrics.PrometheusEndpoint;
+import io.rsocket.jmeter.metrics.RouteMetrics;
+import io.rsocket.jmeter.results.BinaryResultWriter;
+import java.io.File;
+import java.io.IOException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.ToLongFunction;
 
 import org.apache.jmeter.reporters.ResultCollector;
 import org.apache.jmeter.reporters.Summariser;
 import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.util.JMeterUtils;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -17,8 +35,94 @@ public class ReactiveResultCollector extends ResultCollector {
     private static final String RAMP_DOWN_TIME = "ramp.down.time";
     private static final int RAMP_DOWN_TIME_DEFAULT = 0; // milliseconds
 
+    private static final int QUEUE_CAPACITY =
+        JMeterUtils.getPropDefault("ReactiveResultCollector.queue.capacity", 1024 * 1024); // $NON-NLS-1$
+
+    private static final long QUEUE_BYTES =
+        JMeterUtils.getPropDefault("ReactiveResultCollector.queue.bytes", 256L * 1024 * 1024); // $NON-NLS-1$
+
+    private static final int WRITER_BATCH_SIZE =
+        JMeterUtils.getPropDefault("ReactiveResultCollector.writer.batch", 256); // $NON-NLS-1$
+
+    /**
+     * When set, every sample is additionally written to this file in the compact binary format
+     * of {@link BinaryResultWriter}. Leave the JTL filename empty to skip CSV/XML formatting.
+     * A property of the collector element, falling back to the JMeter property of the same name.
+     */
+    private static final String BINARY_FILE = "ReactiveResultCollector.binary.file"; // $NON-NLS-1$
+
+    /**
+     * When greater than 0, successful samples are folded into one {@link AggregatedSampleResult}
+     * per label and written once this many samples were folded.
+     */
+    private static final String BATCH_SIZE = "ReactiveResultCollector.batch.size"; // $NON-NLS-1$
+
+    /**
+     * When greater than 0, pending batches are written at least once per this many milliseconds.
+     */
+    private static final String BATCH_INTERVAL = "ReactiveResultCollector.batch.interval"; // $NON-NLS-1$
+
+    /**
+     * Samples slower than this many milliseconds are written individually, disabled when 0.
+     */
+    private static final String BATCH_SLOW_THRESHOLD =
+        "ReactiveResultCollector.batch.slow.threshold"; // $NON-NLS-1$
+
+    /**
+     * Port of the embedded Prometheus endpoint, disabled when 0.
+     */
+    private static final String METRICS_PORT = "ReactiveResultCollector.metrics.port"; // $NON-NLS-1$
+
+    private static final String GAUGE_IN_FLIGHT = "rsocket_in_flight";
+    private static final String GAUGE_QUEUE_DEPTH = "rsocket_result_queue_depth";
+    private static final String GAUGE_DROPPED = "rsocket_result_dropped";
+    private static final String GAUGE_QUEUE_BYTES = "rsocket_result_queue_bytes";
+    private static final String GAUGE_BODIES_DROPPED = "rsocket_result_bodies_dropped";
+    private static final String GAUGE_WARMUP_SAMPLES = "rsocket_warmup_samples";
+
     final LongAdder adder = new LongAdder();
 
+    /**
+     * Samples whose request has not terminated yet, cancelled if still outstanding once the ramp
+     * down deadline passes. Also the monitor {@link #testEnded(String)} waits on.
+     */
+    final Set<ReactiveSampleResult> outstanding = ConcurrentHashMap.newKeySet();
+
+    final LongAdder cancelled = new LongAdder();
+
+    private transient volatile boolean draining;
+
+    private transient volatile SampleEventDispatcher dispatcher;
+
+    // binary writers by absolute path, shared by the collectors writing the same file
+    private static final Map<String, SharedBinaryWriter> BINARY_WRITERS = new HashMap<>();
+
+    // only touched by the writer thread once the test is running
+    private transient BinaryResultWriter binaryWriter;
+
+    private transient String binaryPath;
+
+    // collectors of the running test, the gauges sum them up and the first one registers the
+    // gauges and starts the endpoint shared by all, the last one stops them, guarded by RUNNING
+    private static final List<ReactiveResultCollector> RUNNING = new CopyOnWriteArrayList<>();
+
+    private static PrometheusEndpoint metricsEndpoint;
+
+    // pending batches by label, writer thread only
+    private transient Map<String, SampleEvent> batches;
+    private transient int batchSize;
+    private transient long batchInterval;
+    private transient long batchSlowThreshold;
+    private transient long batchStart;
+
+    // route histograms at test start, registry counters are cumulative across runs
+    private transient HistogramSnapshot[] latencyBaseline;
+
+    private transient HistogramSnapshot[] truncatedBaseline;
+
+    // null without warm-up
+    private transient volatile WarmUp warmUp;
+
     public ReactiveResultCollector() {
         this(new Summariser("summariser"));
     }
@@ -27,47 +131,546 @@ public class ReactiveResultCollector extends ResultCollector {
         super(summariser);
     }
 
+    @Override
+    public void testStarted(String host) {
+        super.testStarted(host);
+        cancelled.reset();
+
+        String binaryFile = getBinaryFile();
+        if (!binaryFile.isEmpty()) {
+            String path = new File(binaryFile).getAbsolutePath();
+            try {
+                binaryWriter = openBinaryWriter(path);
+                binaryPath = path;
+                log.info("Writing binary results to [{}]", path);
+            } catch (IOException e) {
+                log.error("Failed to open binary result file [{}]", path, e);
+            }
+        }
+
+        batchSize = JMeterUtils.getPropDefault(BATCH_SIZE, 0);
+        if (batchSize > 0) {
+            batchInterval = JMeterUtils.getPropDefault(BATCH_INTERVAL, 0L);
+            batchSlowThreshold = JMeterUtils.getPropDefault(BATCH_SLOW_THRESHOLD, 0L);
+            batchStart = System.currentTimeMillis();
+            batches = new HashMap<>();
+            log.info("Batching up to {} samples per label, interval {} ms, slow threshold {} ms",
+                batchSize, batchInterval, batchSlowThreshold);
+        }
+
+        WarmUp warmUp = WarmUp.start();
+        this.warmUp = warmUp;
+        if (warmUp != null) {
+            log.info("Keeping warm-up samples out of the results: {}", warmUp);
+        }
+
+        SampleEventDispatcher dispatcher = new SampleEventDispatcher(getName(), QUEUE_CAPACITY,
+            QUEUE_BYTES, WRITER_BATCH_SIZE, this::writeSample, this::writerIdle);
+        dispatcher.start();
+        this.dispatcher = dispatcher;
+
+        MetricsRegistry registry = MetricsRegistry.getInstance();
+        RouteMetrics[] routes = registry.getRoutes();
+        latencyBaseline = new HistogramSnapshot[routes.length];
+        truncatedBaseline = new HistogramSnapshot[routes.length];
+        for (int i = 0; i < routes.length; i++) {
+            latencyBaseline[i] = routes[i].getLatency().snapshot();
+            truncatedBaseline[i] = routes[i].getTruncatedLatency().snapshot();
+        }
+
+        startMetrics(this);
+    }
+
+    /**
+     * Registers the collector with the gauges, registering them and starting the endpoint with the
+     * first collector of the test.
+     */
+    private static void startMetrics(ReactiveResultCollector collector) {
+        synchronized (RUNNING) {
+            RUNNING.add(collector);
+            if (RUNNING.size() > 1) {
+                return;
+            }
+
+            MetricsRegistry registry = MetricsRegistry.getInstance();
+            registry.registerGauge(GAUGE_IN_FLIGHT, "Requests sent and not yet completed.",
+                () -> sum(c -> c.adder.sum()));
+            registry.registerGauge(GAUGE_QUEUE_DEPTH,
+                "Completed samples waiting for the result writer.",
+                () -> sum(ReactiveResultCollector::getQueueDepth));
+            registry.registerGauge(GAUGE_DROPPED, "Completed samples dropped by the result writer.",
+                () -> sum(ReactiveResultCollector::getDroppedSamples));
+            registry.registerGauge(GAUGE_QUEUE_BYTES,
+                "Response bytes of the samples waiting for the result writer.",
+                () -> sum(ReactiveResultCollector::getQueueBytes));
+            registry.registerGauge(GAUGE_BODIES_DROPPED,
+                "Samples queued without their body, the queue byte budget being exhausted.",
+                () -> sum(ReactiveResultCollector::getDroppedBodies));
+            if (WarmUp.current() != null) {
+                registry.registerGauge(GAUGE_WARMUP_SAMPLES,
+                    "Completed samples kept out of the results as part of the warm-up.", () -> {
+                        WarmUp warmUp = WarmUp.current();
+                        return warmUp == null ? 0 : warmUp.getSamples();
+                    });
+            }
+
+            int metricsPort = JMeterUtils.getPropDefault(METRICS_PORT, 0);
+            if (metricsPort > 0) {
+                try {
+                    metricsEndpoint = PrometheusEndpoint.start(metricsPort, registry);
+                } catch (IOException e) {
+                    log.error("Failed to start metrics endpoint on port {}", metricsPort, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes the collector from the gauges, stopping the endpoint and unregistering the gauges
+     * once the last collector of the test ended.
+     */
+    private static void stopMetrics(ReactiveResultCollector collector) {
+        synchronized (RUNNING) {
+            if (!RUNNING.remove(collector) || !RUNNING.isEmpty()) {
+                return;
+            }
+
+            PrometheusEndpoint endpoint = metricsEndpoint;
+            if (endpoint != null) {
+                metricsEndpoint = null;
+                endpoint.close();
+            }
+            MetricsRegistry registry = MetricsRegistry.getInstance();
+            registry.unregisterGauge(GAUGE_IN_FLIGHT);
+            registry.unregisterGauge(GAUGE_QUEUE_DEPTH);
+            registry.unregisterGauge(GAUGE_DROPPED);
+            registry.unregisterGauge(GAUGE_QUEUE_BYTES);
+            registry.unregisterGauge(GAUGE_BODIES_DROPPED);
+            registry.unregisterGauge(GAUGE_WARMUP_SAMPLES);
+        }
+    }
+
+    private static long sum(ToLongFunction<ReactiveResultCollector> value) {
+        long sum = 0;
+        for (ReactiveResultCollector collector : RUNNING) {
+            sum += value.applyAsLong(collector);
+        }
+        return sum;
+    }
+
     @Override
     public void sampleOccurred(SampleEvent event) {
-        ReactiveSampleResult result = (ReactiveSampleResult) event.getResult();
+        SampleResult sampleResult = event.getResult();
+        if (!(sampleResult instanceof ReactiveSampleResult)) {
+            // results shipped by remote engines arrive already completed
+            dispatch(event);
+            return;
+        }
+
+        ReactiveSampleResult result = (ReactiveSampleResult) sampleResult;
+        // classified when the request started
+        boolean warm = result.isWarmUp();
+        if (result.getExecutionResult() == null) {
+            // completed by the reactive thread group
+            complete(event, warm);
+            return;
+        }
+
         adder.add(1);
+        outstanding.add(result);
         result.getExecutionResult()
               .subscribe(
                   __ -> {},
                   t -> {
                       try {
                           if (result.isValid()) {
-                              super.sampleOccurred(event);
+                              complete(event, warm);
                           }
                           else {
                               log.debug("Invalid sample occurred");
                           }
                       } finally {
-                          adder.add(-1);
+                          terminated(result);
                       }
                   },
                   () -> {
                       try {
-                          super.sampleOccurred(event);
+                          complete(event, warm);
                       } finally {
-                          adder.add(-1);
+                          terminated(result);
                       }
                   }
               );
     }
 
+    /**
+     * Hands the sample over to the writer thread unless it belongs to the warm-up, which
+     * accounted it already.
+     */
+    private void complete(SampleEvent event, boolean warm) {
+        if (!warm) {
+            dispatch(event);
+        }
+    }
+
+    private void terminated(ReactiveSampleResult result) {
+        outstanding.remove(result);
+        adder.add(-1);
+        if (draining && adder.sum() == 0) {
+            synchronized (outstanding) {
+                outstanding.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Hands the completed event over to the writer thread. Completion callbacks usually run on
+     * Netty event loops, which must not be held up by file writes or the summariser.
+     */
+    private void dispatch(SampleEvent event) {
+        SampleEventDispatcher dispatcher = this.dispatcher;
+        if (dispatcher == null) {
+            // not started, there is no writer thread nor batches yet
+            writeSample(event);
+            return;
+        }
+
+        if (!dispatcher.offer(event) && log.isDebugEnabled()) {
+            log.debug("Result queue is full or stopped, dropped sample [{}]", event.getResult());
+        }
+    }
+
+    private void writeSample(SampleEvent event) {
+        SampleResult result = event.getResult();
+        if (result instanceof AggregatedSampleResult) {
+            mergeRemoteStatistics((AggregatedSampleResult) result);
+        }
+
+        BinaryResultWriter binaryWriter = this.binaryWriter;
+        if (binaryWriter != null) {
+            try {
+                binaryWriter.write(event.getResult());
+            } catch (IOException e) {
+                log.error("Failed to write binary result, disabling binary output", e);
+                closeBinaryWriter();
+            }
+        }
+
+        if (batches != null && !(result instanceof AggregatedSampleResult)) {
+            boolean folded = fold(event);
+            writerIdle();
+            if (folded) {
+                return;
+            }
+        }
+        super.sampleOccurred(event);
+    }
+
+    /**
+     * Folds a successful sample into the pending batch of its label. Errors and slow outliers
+     * are left to be written individually.
+     *
+     * @return {@code false} if the sample has to be written on its own
+     */
+    private boolean fold(SampleEvent event) {
+        SampleResult result = event.getResult();
+        if (!result.isSuccessful()
+            || (batchSlowThreshold > 0 && result.getTime() > batchSlowThreshold)) {
+            return false;
+        }
+
+        String label = result.getSampleLabel();
+        SampleEvent batch = batches.get(label);
+        if (batch == null) {
+            AggregatedSampleResult aggregate = new AggregatedSampleResult(label);
+            aggregate.setThreadName(result.getThreadName());
+            batch = new SampleEvent(aggregate, event.getThreadGroup());
+            batches.put(label, batch);
+        }
+
+        AggregatedSampleResult aggregate = (AggregatedSampleResult) batch.getResult();
+        aggregate.add(result);
+        if (aggregate.getSampleCount() >= batchSize) {
+            batches.remove(label);
+            super.sampleOccurred(batch);
+        }
+        return true;
+    }
+
+    /**
+     * Writes all pending batches once the batch interval has passed, writer thread only.
+     */
+    private void writerIdle() {
+        if (batches != null && batchInterval > 0
+            && System.currentTimeMillis() - batchStart >= batchInterval) {
+            flushBatches();
+        }
+    }
+
+    private void flushBatches() {
+        batchStart = System.currentTimeMillis();
+        if (batches.isEmpty()) {
+            return;
+        }
+        for (SampleEvent batch : batches.values()) {
+            super.sampleOccurred(batch);
+        }
+        batches.clear();
+    }
+
+    /**
+     * Folds an interval aggregate of a remote engine into the controller's route statistics, so
+     * the Prometheus endpoint and the end of test summary cover the whole cluster.
+     */
+    private static void mergeRemoteStatistics(AggregatedSampleResult result) {
+        String route = result.getRoute() != null ? result.getRoute() : result.getSampleLabel();
+        String requestType = result.getRequestType() != null ? result.getRequestType() : "UNKNOWN";
+        MetricsRegistry.getInstance()
+            .route(route, requestType)
+            .add(result.getSampleCount(), result.getErrorCount(), result.getBytesAsLong(),
+                result.getSentBytes(), result.getLatencyHistogram());
+    }
+
+    private void logLatencySummary() {
+        HistogramSnapshot[] baseline = latencyBaseline;
+        HistogramSnapshot[] truncatedBaseline = this.truncatedBaseline;
+        latencyBaseline = null;
+        this.truncatedBaseline = null;
+        if (baseline == null) {
+            return;
+        }
+
+        for (RouteMetrics route : MetricsRegistry.getInstance().getRoutes()) {
+            logLatencySummary(route, "", route.getLatency(), baseline);
+            logLatencySummary(route, " truncated", route.getTruncatedLatency(), truncatedBaseline);
+        }
+    }
+
+    private void logLatencySummary(RouteMetrics route, String series, LatencyHistogram latency,
+        HistogramSnapshot[] baseline) {
+        HistogramSnapshot snapshot = latency.snapshot();
+        if (route.getSlot() < baseline.length) {
+            snapshot.subtract(baseline[route.getSlot()]);
+        }
+        if (snapshot.getCount() == 0) {
+            return;
+        }
+        log.info("{} {}{}: count {}, mean {} us, p50 {} us, p90 {} us, p99 {} us, p99.9 {} us",
+            route.getRequestType(), route.getRoute(), series, snapshot.getCount(),
+            TimeUnit.NANOSECONDS.toMicros(snapshot.meanNanos()),
+            TimeUnit.NANOSECONDS.toMicros(snapshot.percentileNanos(50)),
+            TimeUnit.NANOSECONDS.toMicros(snapshot.percentileNanos(90)),
+            TimeUnit.NANOSECONDS.toMicros(snapshot.percentileNanos(99)),
+            TimeUnit.NANOSECONDS.toMicros(snapshot.percentileNanos(99.9)));
+    }
+
+    private void logWarmUpSummary() {
+        this.warmUp = null;
+        // logged by the last collector to end
+        WarmUp warmUp = WarmUp.stop();
+        if (warmUp == null || warmUp.getSamples() == 0) {
+            return;
+        }
+
+        log.info("Warm-up kept {} samples out of the results", warmUp.getSamples());
+        for (Map.Entry<Object, WarmUp.Stats> entry : warmUp.getStats().entrySet()) {
+            Object key = entry.getKey();
+            String name = key instanceof RouteMetrics
+                ? ((RouteMetrics) key).getRequestType() + " " + ((RouteMetrics) key).getRoute()
+                : String.valueOf(key);
+            HistogramSnapshot snapshot = entry.getValue().latency.snapshot();
+            log.info("Warm-up {}: count {}, errors {}, mean {} us, p50 {} us, p90 {} us, "
+                    + "p99 {} us, p99.9 {} us",
+                name, snapshot.getCount(), entry.getValue().errors.sum(),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.meanNanos()),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.percentileNanos(50)),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.percentileNanos(90)),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.percentileNanos(99)),
+                TimeUnit.NANOSECONDS.toMicros(snapshot.percentileNanos(99.9)));
+        }
+    }
+
+    private void closeBinaryWriter() {
+        BinaryResultWriter binaryWriter = this.binaryWriter;
+        if (binaryWriter != null) {
+            this.binaryWriter = null;
+            try {
+                releaseBinaryWriter(binaryPath);
+            } catch (IOException e) {
+                log.error("Failed to close binary result file", e);
+            }
+        }
+    }
+
+    /**
+     * @return the writer of the given file, opened by the first collector writing it
+     */
+    private static BinaryResultWriter openBinaryWriter(String path) throws IOException {
+        synchronized (BINARY_WRITERS) {
+            SharedBinaryWriter shared = BINARY_WRITERS.get(path);
+            if (shared == null) {
+                shared = new SharedBinaryWriter(new BinaryResultWriter(path));
+                BINARY_WRITERS.put(path, shared);
+            }
+            shared.users++;
+            return shared.writer;
+        }
+    }
+
+    /**
+     * Closes the writer of the given file once the last collector writing it is done.
+     */
+    private static void releaseBinaryWriter(String path) throws IOException {
+        BinaryResultWriter writer = null;
+        synchronized (BINARY_WRITERS) {
+            SharedBinaryWriter shared = BINARY_WRITERS.get(path);
+            if (shared != null && --shared.users == 0) {
+                BINARY_WRITERS.remove(path);
+                writer = shared.writer;
+            }
+        }
+        if (writer != null) {
+            writer.close();
+        }
+    }
+
+    private static final class SharedBinaryWriter {
+
+        final BinaryResultWriter writer;
+
+        int users;
+
+        SharedBinaryWriter(BinaryResultWriter writer) {
+            this.writer = writer;
+        }
+    }
+
+    public void setBinaryFile(String file) {
+        setProperty(BINARY_FILE, file, "");
+    }
+
+    /**
+     * @return binary result file of this collector, empty to write none
+     */
+    public String getBinaryFile() {
+        return getPropertyAsString(BINARY_FILE, JMeterUtils.getPropDefault(BINARY_FILE, "")).trim();
+    }
+
+    /**
+     * @return number of completed samples waiting for the writer thread
+     */
+    public long getQueueDepth() {
+        SampleEventDispatcher dispatcher = this.dispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDepth();
+    }
+
+    /**
+     * @return number of completed samples dropped because the writer could not keep up
+     */
+    public long getDroppedSamples() {
+        SampleEventDispatcher dispatcher = this.dispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDropped();
+    }
+
+    /**
+     * @return response bytes of the completed samples waiting for the writer thread
+     */
+    public long getQueueBytes() {
+        SampleEventDispatcher dispatcher = this.dispatcher;
+        return dispatcher == null ? 0 : dispatcher.getBytes();
+    }
+
+    /**
+     * @return number of completed samples whose body was dropped because the queued bodies
+     * exceeded the byte budget
+     */
+    public long getDroppedBodies() {
+        SampleEventDispatcher dispatcher = this.dispatcher;
+        return dispatcher == null ? 0 : dispatcher.getDroppedBodies();
+    }
+
+    /**
+     * @return number of requests cancelled because they were still outstanding at the end of the
+     * ramp down
+     */
+    public long getCancelledSamples() {
+        return cancelled.sum();
+    }
+
+    /**
+     * Waits until every outstanding request has terminated or the ramp down time has passed,
+     * whichever comes first, then cancels whatever is still outstanding.
+     */
+    private void awaitOutstanding() {
+        int rampDownTime = getPropertyAsInt(RAMP_DOWN_TIME,
+            JMeterUtils.getPropDefault(RAMP_DOWN_TIME, RAMP_DOWN_TIME_DEFAULT));
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(rampDownTime);
+
+        draining = true;
+        try {
+            synchronized (outstanding) {
+                long remaining;
+                while (adder.sum() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+                    TimeUnit.NANOSECONDS.timedWait(outstanding, remaining);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            draining = false;
+        }
+
+        for (ReactiveSampleResult result : outstanding) {
+            if (outstanding.remove(result)) {
+                cancelled.increment();
+                // cancelled requests are not samples, cancel keeps them out of the results
+                result.cancel();
+            }
+        }
+
+        long cancelledSamples = cancelled.sum();
+        if (cancelledSamples > 0) {
+            log.warn("Cancelled {} requests still outstanding after ramp down of {} ms",
+                cancelledSamples, rampDownTime);
+        }
+    }
+
     @Override
     public void testEnded(String host) {
-        long counter = adder.longValue();
-        int rampDownTime = getPropertyAsInt(RAMP_DOWN_TIME, RAMP_DOWN_TIME_DEFAULT);
-        while (counter > 0 && rampDownTime > 0) {
-            rampDownTime -= 100;
-            try {
-                Thread.sleep(100);
-            } catch (InterruptedException e) {
-                e.printStackTrace();
+        awaitOutstanding();
+
+        SampleEventDispatcher dispatcher = this.dispatcher;
+        if (dispatcher != null) {
+            // kept until the next test, samples completing late on an event loop are rejected
+            // instead of racing the flush of the batches below
+            dispatcher.stop();
+
+            long dropped = dispatcher.getDropped();
+            if (dropped > 0) {
+                log.warn("Result writer dropped {} samples, consider increasing "
+                    + "ReactiveResultCollector.queue.capacity", dropped);
+            }
+            long rejected = dispatcher.getRejected();
+            if (rejected > 0) {
+                log.warn("Result writer dropped {} samples completing after the end of the test",
+                    rejected);
+            }
+            long droppedBodies = dispatcher.getDroppedBodies();
+            if (droppedBodies > 0) {
+                log.warn("Result writer dropped the body of {} samples, consider increasing "
+                    + "ReactiveResultCollector.queue.bytes", droppedBodies);
             }
         }
+        // the writer thread has terminated, pending batches are ours now
+        if (batches != null) {
+            flushBatches();
+            batches = null;
+        }
+        closeBinaryWriter();
+        logLatencySummary();
+        logWarmUpSummary();
+
+        stopMetrics(this);
 
         super.testEnded(host);
     }
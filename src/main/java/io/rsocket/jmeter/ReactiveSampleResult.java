@@ -1,29 +1,340 @@
 package io.rsocket.jmeter;
 
 import io.rsocket.Payload;
+import io.rsocket.jmeter.assertions.ByteBufAssertion;
+import io.rsocket.jmeter.codec.Compression;
+import io.rsocket.jmeter.codec.PayloadCodec;
+import io.rsocket.jmeter.extractor.ResponseExtractor;
+import io.rsocket.jmeter.metrics.RouteMetrics;
+import java.nio.charset.Charset;
 import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
 import org.reactivestreams.Publisher;
+import reactor.core.Disposable;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.MonoProcessor;
 
 @SuppressWarnings("unchecked")
 public class ReactiveSampleResult extends SampleResult {
 
   private static final long serialVersionUID = 1L;
 
-  private boolean isValid;
-  private Mono<Void> executionResult;
+  /**
+   * Response code of samples whose response did not terminate within the response timeout.
+   */
+  public static final String TIMEOUT_RESPONSE_CODE = "Timeout"; // $NON-NLS-1$
+
+  // cleared for requests cancelled before they terminated, which are not samples
+  private boolean isValid = true;
+  private transient Mono<Void> executionResult;
+  private String route;
+  private transient RouteMetrics routeMetrics;
+  private transient PayloadCodec responseCodec;
+  private transient Charset responseCharset;
+  private transient Compression responseCompression;
+  private transient ByteBufAssertion assertion;
+  private transient boolean retainBody = true;
+  private transient ResponseExtractor.Extraction extraction;
+  private transient long responseTimeout;
+  private boolean timedOut;
+  private transient long maxElements;
+  private transient long maxBytes;
+  private transient long maxDuration;
+  private boolean truncated;
+  private int attempts;
+  private transient InFlightLimiter limiter;
+  private transient ConnectionMetrics connectionMetrics;
+  private boolean bodyDropped;
+  private boolean warmUp;
+
+  // SampleResult only keeps millisecond resolution, keep nanosecond timings alongside
+  private long startNanos;
+  private long connectNanos;
+  private long latencyNanos;
+  private long elapsedNanos;
+  private long decompressNanos;
 
   public void setExecutionResult(Publisher<?> executionResult) {
     this.executionResult =
-        PublisherInstrumentation.instrument((Publisher<Payload>) executionResult, this)
-            .subscribeWith(MonoProcessor.create());
+        PublisherInstrumentation.instrument((Publisher<Payload>) executionResult, this);
   }
 
+  /**
+   * @return completion of the request, null once detached
+   */
   public Mono<Void> getExecutionResult() {
     return this.executionResult;
   }
 
+  /**
+   * Drops the execution result once its single consumer has seen it terminate, so listeners
+   * treat this result as an already completed one.
+   */
+  public void detachExecutionResult() {
+    this.executionResult = null;
+  }
+
+  /**
+   * Blocks until the request terminated. A failed request is part of the result, which ends as
+   * a failed sample even if the request was cancelled before it terminated.
+   */
+  public void awaitResult() {
+    try {
+      executionResult.block();
+    } catch (RuntimeException e) {
+      if (getEndTime() == 0) {
+        setResponseMessage(String.valueOf(e.getMessage()));
+        setSuccessful(false);
+        setErrorCount(1);
+        sampleEnd();
+      }
+    }
+  }
+
+  /**
+   * Cancels the underlying request if it is still outstanding, the result is not a sample then.
+   */
+  public void cancel() {
+    isValid = false;
+    final Mono<Void> executionResult = this.executionResult;
+    if (executionResult instanceof Disposable) {
+      ((Disposable) executionResult).dispose();
+    }
+  }
+
+  public String getRoute() {
+    return route;
+  }
+
+  public void setRoute(String route) {
+    this.route = route;
+  }
+
+  /**
+   * @return per-route statistics this sample is recorded into once it terminates, or null
+   */
+  public RouteMetrics getRouteMetrics() {
+    return routeMetrics;
+  }
+
+  public void setRouteMetrics(RouteMetrics routeMetrics) {
+    this.routeMetrics = routeMetrics;
+  }
+
+  /**
+   * @return codec turning the response data into text once the sample completed, or null
+   */
+  public PayloadCodec getResponseCodec() {
+    return responseCodec;
+  }
+
+  public Charset getResponseCharset() {
+    return responseCharset;
+  }
+
+  public void setResponseCodec(PayloadCodec responseCodec, Charset responseCharset) {
+    this.responseCodec = responseCodec;
+    this.responseCharset = responseCharset;
+  }
+
+  /**
+   * @return compression of the response data, or null
+   */
+  public Compression getResponseCompression() {
+    return responseCompression;
+  }
+
+  public void setResponseCompression(Compression responseCompression) {
+    this.responseCompression = responseCompression;
+  }
+
+  /**
+   * @return assertion evaluated on the response data as it arrives, or null
+   */
+  public ByteBufAssertion getAssertion() {
+    return assertion;
+  }
+
+  /**
+   * @return whether the response data is kept in the result, the assertion still sees all of it
+   */
+  public boolean isRetainBody() {
+    return retainBody;
+  }
+
+  /**
+   * Has to be set before the execution result.
+   */
+  public void setAssertion(ByteBufAssertion assertion, boolean retainBody) {
+    this.assertion = assertion;
+    this.retainBody = retainBody;
+  }
+
+  /**
+   * @return extraction fed with the response data as it arrives, or null
+   */
+  public ResponseExtractor.Extraction getExtraction() {
+    return extraction;
+  }
+
+  /**
+   * Has to be set before the execution result.
+   *
+   * @param charset charset the response text is decoded with by the extractor
+   */
+  public void setExtractor(ResponseExtractor extractor, Charset charset) {
+    this.extraction = extractor == null ? null : extractor.newExtraction(charset);
+  }
+
+  /**
+   * Sets the variables extracted from the response, once the sample terminated. Has to run on
+   * the thread owning the variables.
+   */
+  public void applyExtraction(JMeterVariables variables) {
+    final ResponseExtractor.Extraction extraction = this.extraction;
+    if (extraction != null) {
+      extraction.apply(variables);
+    }
+  }
+
+  /**
+   * @return milliseconds after which the request is cancelled, 0 for none
+   */
+  public long getResponseTimeout() {
+    return responseTimeout;
+  }
+
+  /**
+   * Has to be set before the execution result.
+   */
+  public void setResponseTimeout(long responseTimeout) {
+    this.responseTimeout = responseTimeout;
+  }
+
+  /**
+   * @return whether the request was cancelled by the response timeout
+   */
+  public boolean isTimedOut() {
+    return timedOut;
+  }
+
+  public void setTimedOut(boolean timedOut) {
+    this.timedOut = timedOut;
+  }
+
+  /**
+   * @return number of elements after which the response is cancelled, 0 for no limit
+   */
+  public long getMaxElements() {
+    return maxElements;
+  }
+
+  /**
+   * @return number of data bytes after which the response is cancelled, 0 for no limit
+   */
+  public long getMaxBytes() {
+    return maxBytes;
+  }
+
+  /**
+   * @return milliseconds after which the response is cancelled, 0 for no limit
+   */
+  public long getMaxDuration() {
+    return maxDuration;
+  }
+
+  /**
+   * Limits the response stream, has to be set before the execution result. Reaching a limit
+   * cancels the request and ends the sample successfully as truncated.
+   */
+  public void setStreamLimits(long maxElements, long maxBytes, long maxDuration) {
+    this.maxElements = maxElements;
+    this.maxBytes = maxBytes;
+    this.maxDuration = maxDuration;
+  }
+
+  /**
+   * @return whether the response was cancelled after reaching a stream limit
+   */
+  public boolean isTruncated() {
+    return truncated;
+  }
+
+  public void setTruncated(boolean truncated) {
+    this.truncated = truncated;
+  }
+
+  /**
+   * @return limiter of the connection the response bytes are reserved from, null if the
+   * connection has none
+   */
+  public InFlightLimiter getLimiter() {
+    return limiter;
+  }
+
+  /**
+   * Has to be set before the execution result.
+   */
+  public void setLimiter(InFlightLimiter limiter) {
+    this.limiter = limiter;
+  }
+
+  /**
+   * @return connection the request was sent over, null if unknown
+   */
+  public ConnectionMetrics getConnectionMetrics() {
+    return connectionMetrics;
+  }
+
+  public void setConnectionMetrics(ConnectionMetrics connectionMetrics) {
+    this.connectionMetrics = connectionMetrics;
+  }
+
+  /**
+   * @return whether the response body was dropped as it exceeded the buffer budget
+   */
+  public boolean isBodyDropped() {
+    return bodyDropped;
+  }
+
+  public void setBodyDropped(boolean bodyDropped) {
+    this.bodyDropped = bodyDropped;
+  }
+
+  /**
+   * @return whether the request was sent during the warm-up, the sample is then kept out of the
+   * route metrics and the results
+   */
+  public boolean isWarmUp() {
+    return warmUp;
+  }
+
+  public void setWarmUp(boolean warmUp) {
+    this.warmUp = warmUp;
+  }
+
+  /**
+   * Starts timing the next attempt of a retried request, kept as a sub result of this sample.
+   * Attempts run one after the other.
+   *
+   * @param label label of the sample, the attempt number is appended
+   * @return the attempt, to be ended once it terminated
+   */
+  public SampleResult startAttempt(String label) {
+    final SampleResult attempt = new SampleResult();
+    attempt.setSampleLabel(label + "-attempt-" + ++attempts);
+    attempt.setThreadName(getThreadName());
+    attempt.sampleStart();
+    addRawSubResult(attempt);
+    return attempt;
+  }
+
+  /**
+   * @return number of times the request was sent, 0 if it was not retryable
+   */
+  public int getAttempts() {
+    return attempts;
+  }
+
   public boolean isValid() {
     return isValid;
   }
@@ -31,4 +342,77 @@ public class ReactiveSampleResult extends SampleResult {
   public void setValid(boolean valid) {
     isValid = valid;
   }
+
+  @Override
+  public void sampleStart() {
+    startNanos = System.nanoTime();
+    super.sampleStart();
+  }
+
+  /**
+   * Starts the timing over, for a request that was queued behind another one after the sample
+   * started. The request counts as connected right away.
+   */
+  public void restartTiming() {
+    startNanos = System.nanoTime();
+    setStartTime(currentTimeInMillis());
+    connectEnd();
+  }
+
+  @Override
+  public void connectEnd() {
+    connectNanos = System.nanoTime() - startNanos;
+    super.connectEnd();
+  }
+
+  @Override
+  public void latencyEnd() {
+    latencyNanos = System.nanoTime() - startNanos;
+    super.latencyEnd();
+  }
+
+  @Override
+  public void sampleEnd() {
+    elapsedNanos = System.nanoTime() - startNanos;
+    super.sampleEnd();
+  }
+
+  /**
+   * @return {@link System#nanoTime()} at sample start
+   */
+  public long getStartNanos() {
+    return startNanos;
+  }
+
+  /**
+   * @return time from sample start until the request was subscribed, in nanoseconds
+   */
+  public long getConnectNanos() {
+    return connectNanos;
+  }
+
+  /**
+   * @return time from sample start until the response terminated, in nanoseconds
+   */
+  public long getLatencyNanos() {
+    return latencyNanos;
+  }
+
+  /**
+   * @return total sample time, in nanoseconds
+   */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /**
+   * @return time spent decompressing the response after the sample ended, in nanoseconds
+   */
+  public long getDecompressNanos() {
+    return decompressNanos;
+  }
+
+  public void setDecompressNanos(long decompressNanos) {
+    this.decompressNanos = decompressNanos;
+  }
 }
@@ -0,0 +1,21 @@
+package io.rsocket.jmeter;
+
+import org.apache.jmeter.threads.JMeterVariables;
+
+/**
+ * A sampler which can send its request without blocking the calling thread, as required by
+ * {@link io.rsocket.jmeter.threads.ReactiveThreadGroup}.
+ */
+public interface ReactiveSampler {
+
+  /**
+   * Sends the request of this sampler. Properties are evaluated against the calling thread's
+   * {@link org.apache.jmeter.threads.JMeterContext}, which the caller sets up for the virtual
+   * user beforehand.
+   *
+   * @param variables variables of the virtual user, holding the {@link RSocketSetup} client
+   * @return the labelled sample result, its execution result completes once the response has
+   * terminated and the result has been filled in
+   */
+  ReactiveSampleResult sampleAsync(JMeterVariables variables);
+}
@@ -4,6 +4,7 @@ import java.util.Map;
 import java.util.concurrent.ConcurrentHashMap;
 
 import org.apache.jmeter.threads.JMeterVariables;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 public class ReactiveVariableHolder {
@@ -16,8 +17,20 @@ public class ReactiveVariableHolder {
                    .map(c -> c.get(KEY));
     }
 
-    @SuppressWarnings("unchecked")
     public static <T> Mono<T> withVariables(Mono<T> in, JMeterVariables variables) {
+        Map<String, Object> context = context(variables);
+
+        return in.subscriberContext(c -> c.hasKey(KEY) ? c : c.put(KEY, context));
+    }
+
+    public static <T> Flux<T> withVariables(Flux<T> in, JMeterVariables variables) {
+        Map<String, Object> context = context(variables);
+
+        return in.subscriberContext(c -> c.hasKey(KEY) ? c : c.put(KEY, context));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Map<String, Object> context(JMeterVariables variables) {
         Map<String, Object> context;
 
         if (variables.getObject(KEY) == null) {
@@ -26,7 +39,6 @@ public class ReactiveVariableHolder {
         } else {
             context = (Map<String, Object>) variables.getObject(KEY);
         }
-
-        return in.subscriberContext(c -> c.hasKey(KEY) ? c : c.put(KEY, context));
+        return context;
     }
 }
@@ -0,0 +1,207 @@
+package io.rsocket.jmeter;
+
+import java.util.Queue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.util.concurrent.Queues;
+
+/**
+ * Moves completed {@link SampleEvent}s off the threads that complete them (usually Netty event
+ * loops) onto a single dedicated writer thread, so that disk and formatting work never runs on
+ * I/O threads.
+ * <p>
+ * Producers append to a lock-free multi-producer queue; the writer drains it in batches. Once the
+ * configured capacity is reached further events are dropped and counted instead of growing the
+ * queue without bound. Response bodies are bounded as well: once the queued bodies reach the byte
+ * budget, further samples are queued without their body, so the measurements still reach the
+ * results. Events offered once the dispatcher is stopping are rejected and counted as well.
+ */
+final class SampleEventDispatcher implements Runnable {
+
+  private static final Logger log = LoggerFactory.getLogger(SampleEventDispatcher.class);
+
+  private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(10);
+
+  private final Queue<SampleEvent> queue = Queues.<SampleEvent>unboundedMultiproducer().get();
+
+  private final AtomicLong depth = new AtomicLong();
+
+  private final LongAdder dropped = new LongAdder();
+
+  private final AtomicLong bytes = new AtomicLong();
+
+  private final LongAdder droppedBodies = new LongAdder();
+
+  private final LongAdder rejected = new LongAdder();
+
+  private final int capacity;
+
+  private final long maxBytes;
+
+  private final int batchSize;
+
+  private final Consumer<SampleEvent> consumer;
+
+  private final Runnable idle;
+
+  private final Thread thread;
+
+  private volatile boolean running = true;
+
+  private volatile boolean parked;
+
+  /**
+   * @param maxBytes response bytes queued at once, 0 for no limit
+   * @param idle     invoked on the writer thread whenever the queue has been drained, at least
+   *                 every 10 ms while the writer is running
+   */
+  SampleEventDispatcher(String name, int capacity, long maxBytes, int batchSize,
+      Consumer<SampleEvent> consumer, Runnable idle) {
+    this.capacity = capacity;
+    this.maxBytes = maxBytes;
+    this.batchSize = batchSize;
+    this.consumer = consumer;
+    this.idle = idle;
+    this.thread = new Thread(this, "rsocket-result-writer-" + name);
+    this.thread.setDaemon(true);
+  }
+
+  void start() {
+    thread.start();
+  }
+
+  /**
+   * Enqueues the given event for the writer thread. Never blocks.
+   *
+   * @return {@code false} if the event was dropped because the queue is full or the dispatcher
+   * is stopping
+   */
+  boolean offer(SampleEvent event) {
+    if (depth.incrementAndGet() > capacity) {
+      depth.decrementAndGet();
+      dropped.increment();
+      return false;
+    }
+    // the depth is raised before the flag is read, so the writer awaits the event unless it is
+    // rejected here
+    if (!running) {
+      depth.decrementAndGet();
+      rejected.increment();
+      return false;
+    }
+
+    final SampleResult result = event.getResult();
+    final int size = result.getResponseData().length;
+    if (size > 0 && maxBytes > 0 && bytes.addAndGet(size) > maxBytes) {
+      bytes.addAndGet(-size);
+      droppedBodies.increment();
+      result.setResponseData(new byte[0]);
+    }
+
+    queue.offer(event);
+
+    if (parked) {
+      LockSupport.unpark(thread);
+    }
+    return true;
+  }
+
+  /**
+   * Stops accepting new work, waits for the writer to drain the queue and terminates it. Events
+   * offered from now on are rejected.
+   */
+  void stop() {
+    running = false;
+    LockSupport.unpark(thread);
+    try {
+      thread.join();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+  }
+
+  long getDepth() {
+    return depth.get();
+  }
+
+  long getDropped() {
+    return dropped.sum();
+  }
+
+  long getBytes() {
+    return bytes.get();
+  }
+
+  long getDroppedBodies() {
+    return droppedBodies.sum();
+  }
+
+  /**
+   * @return number of events offered once the dispatcher was stopping
+   */
+  long getRejected() {
+    return rejected.sum();
+  }
+
+  @Override
+  public void run() {
+    final Queue<SampleEvent> queue = this.queue;
+
+    for (; ; ) {
+      if (drain(queue) > 0) {
+        continue;
+      }
+
+      if (!running) {
+        // producers that raised the depth before the flag flipped are still enqueueing
+        if (depth.get() == 0) {
+          return;
+        }
+        Thread.yield();
+        continue;
+      }
+
+      try {
+        idle.run();
+      } catch (Throwable t) {
+        log.error("Result writer idle task failed", t);
+      }
+
+      parked = true;
+      if (queue.isEmpty()) {
+        LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+      }
+      parked = false;
+    }
+  }
+
+  private int drain(Queue<SampleEvent> queue) {
+    int drained = 0;
+    SampleEvent event;
+    while (drained < batchSize && (event = queue.poll()) != null) {
+      drained++;
+      // as accounted by offer, the body is written as is
+      final int size = maxBytes > 0 ? event.getResult().getResponseData().length : 0;
+      try {
+        consumer.accept(event);
+      } catch (Throwable t) {
+        log.error("Failed to process sample event [{}]", event, t);
+      }
+      if (size > 0) {
+        bytes.addAndGet(-size);
+      }
+    }
+
+    if (drained > 0) {
+      depth.addAndGet(-drained);
+    }
+    return drained;
+  }
+}
@@ -0,0 +1,216 @@
+package io.rsocket.jmeter;
+
+import io.rsocket.jmeter.metrics.LatencyHistogram;
+import io.rsocket.jmeter.metrics.RouteMetrics;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Tells the warm-up samples of a test apart, those sent while the JIT compilers, connections and
+ * pools on both sides are still settling. Load is not reduced during the warm-up, its samples are
+ * only kept out of the results and accounted separately.
+ * <p>
+ * The warm-up lasts for a duration and/or a number of requests, counted per route or per
+ * connection. A connection starts warming up when it connects, so every reconnect warms up again.
+ * <p>
+ * Samples are classified when their request starts, warm-up samples are then recorded here
+ * instead of into the route metrics. A single warm-up is shared by all collectors of the process.
+ */
+final class WarmUp {
+
+  private static final Logger log = LoggerFactory.getLogger(WarmUp.class);
+
+  // the warm-up of the running test, null without
+  private static volatile WarmUp active;
+
+  // collectors of the running test, guarded by the class
+  private static int collectors;
+
+  /**
+   * Seconds of warm-up, disabled when 0.
+   */
+  private static final String DURATION = "ReactiveResultCollector.warmup.duration"; // $NON-NLS-1$
+
+  /**
+   * Number of warm-up requests, disabled when 0.
+   */
+  private static final String REQUESTS = "ReactiveResultCollector.warmup.requests"; // $NON-NLS-1$
+
+  /**
+   * What the warm-up is counted per, ROUTE or CONNECTION.
+   */
+  private static final String SCOPE = "ReactiveResultCollector.warmup.scope"; // $NON-NLS-1$
+
+  enum Scope {
+    ROUTE,
+    CONNECTION
+  }
+
+  private final long durationNanos;
+
+  private final long requests;
+
+  private final Scope scope;
+
+  private final Map<Object, Phase> phases = new ConcurrentHashMap<>();
+
+  private final Map<Object, Stats> stats = new ConcurrentHashMap<>();
+
+  private final LongAdder samples = new LongAdder();
+
+  WarmUp(long durationNanos, long requests, Scope scope) {
+    this.durationNanos = durationNanos;
+    this.requests = requests;
+    this.scope = scope;
+  }
+
+  /**
+   * Starts the warm-up configured by the JMeter properties with the first collector of a test.
+   *
+   * @return the warm-up of the test, null without
+   */
+  static synchronized WarmUp start() {
+    if (collectors++ == 0) {
+      active = fromProperties();
+    }
+    return active;
+  }
+
+  /**
+   * @return the warm-up once the last collector of the test ended, null before or without
+   */
+  static synchronized WarmUp stop() {
+    if (collectors == 0 || --collectors > 0) {
+      return null;
+    }
+    final WarmUp warmUp = active;
+    active = null;
+    return warmUp;
+  }
+
+  /**
+   * @return the warm-up of the running test, null without
+   */
+  static WarmUp current() {
+    return active;
+  }
+
+  /**
+   * @return the warm-up configured by the JMeter properties, null without
+   */
+  static WarmUp fromProperties() {
+    final long duration = JMeterUtils.getPropDefault(DURATION, 0L);
+    final long requests = JMeterUtils.getPropDefault(REQUESTS, 0L);
+    if (duration <= 0 && requests <= 0) {
+      return null;
+    }
+    return new WarmUp(TimeUnit.SECONDS.toNanos(duration), requests, scope());
+  }
+
+  private static Scope scope() {
+    final String scope = JMeterUtils.getPropDefault(SCOPE, Scope.ROUTE.name()).trim();
+    try {
+      return Scope.valueOf(scope.toUpperCase(Locale.ROOT));
+    } catch (IllegalArgumentException e) {
+      log.warn("Invalid {} [{}], counting the warm-up per {}", SCOPE, scope, Scope.ROUTE);
+      return Scope.ROUTE;
+    }
+  }
+
+  /**
+   * Classifies a sample once, when its request starts.
+   *
+   * @return whether the sample belongs to the warm-up
+   */
+  boolean isWarmUp(ReactiveSampleResult result) {
+    final ConnectionMetrics connection = result.getConnectionMetrics();
+    final boolean perConnection = scope == Scope.CONNECTION && connection != null;
+    final long startNanos = result.getStartNanos();
+    final Phase phase = phases.computeIfAbsent(perConnection ? connection : routeKey(result),
+        __ -> new Phase(startNanos));
+
+    if (perConnection) {
+      final long connectedAt = connection.getConnectedAtNanos();
+      if (connectedAt != 0 && connectedAt != phase.startNanos) {
+        phase.restart(connectedAt);
+      }
+    }
+
+    final long count = phase.count.incrementAndGet();
+    return (requests > 0 && count <= requests)
+        || (durationNanos > 0 && startNanos - phase.startNanos < durationNanos);
+  }
+
+  /**
+   * Accounts a completed warm-up sample.
+   */
+  void record(ReactiveSampleResult result) {
+    samples.increment();
+    final Object key = routeKey(result);
+    final Stats stats = this.stats.computeIfAbsent(key, __ -> new Stats());
+    (result.isTruncated() ? stats.truncatedLatency : stats.latency)
+        .recordNanos(result.getElapsedNanos());
+    if (!result.isSuccessful()) {
+      stats.errors.increment();
+    }
+  }
+
+  private static Object routeKey(ReactiveSampleResult result) {
+    final RouteMetrics routeMetrics = result.getRouteMetrics();
+    return routeMetrics != null ? routeMetrics : result.getSampleLabel();
+  }
+
+  /**
+   * @return warm-up statistics by route, or by sample label for samples without route
+   */
+  Map<Object, Stats> getStats() {
+    return stats;
+  }
+
+  long getSamples() {
+    return samples.sum();
+  }
+
+  @Override
+  public String toString() {
+    return "WarmUp{"
+        + "durationMs=" + TimeUnit.NANOSECONDS.toMillis(durationNanos)
+        + ", requests=" + requests
+        + ", scope=" + scope
+        + '}';
+  }
+
+  static final class Stats {
+
+    final LatencyHistogram latency = new LatencyHistogram();
+
+    final LatencyHistogram truncatedLatency = new LatencyHistogram();
+
+    final LongAdder errors = new LongAdder();
+  }
+
+  private static final class Phase {
+
+    volatile long startNanos;
+
+    final AtomicLong count = new AtomicLong();
+
+    Phase(long startNanos) {
+      this.startNanos = startNanos;
+    }
+
+    synchronized void restart(long startNanos) {
+      if (this.startNanos != startNanos) {
+        this.startNanos = startNanos;
+        count.set(0);
+      }
+    }
+  }
+}
@@ -0,0 +1,245 @@
+package io.rsocket.jmeter.assertions;
+
+import io.netty.buffer.ByteBuf;
+import java.nio.charset.StandardCharsets;
+import org.apache.jmeter.testelement.TestElement;
+
+/**
+ * Checks on the response data evaluated on every incoming buffer before it is released: length
+ * range, prefix, contained bytes, CRC32C checksum and number of elements. Nothing has to be
+ * retained, so responses can be validated at full throughput.
+ * <p>
+ * Compiled once from the properties of a {@link ByteBufAssertionGui} configuration, shared by
+ * all samples; each sample evaluates it through its own {@link Check}.
+ */
+public final class ByteBufAssertion {
+
+  //+ JMX names - do not change
+  public static final String MIN_LENGTH = "ByteBufAssertion.min_length"; // $NON-NLS-1$
+
+  public static final String MAX_LENGTH = "ByteBufAssertion.max_length"; // $NON-NLS-1$
+
+  public static final String PREFIX = "ByteBufAssertion.prefix"; // $NON-NLS-1$
+
+  public static final String CONTAINS = "ByteBufAssertion.contains"; // $NON-NLS-1$
+
+  public static final String CRC32C = "ByteBufAssertion.crc32c"; // $NON-NLS-1$
+
+  public static final String MIN_ELEMENTS = "ByteBufAssertion.min_elements"; // $NON-NLS-1$
+
+  public static final String MAX_ELEMENTS = "ByteBufAssertion.max_elements"; // $NON-NLS-1$
+
+  public static final String RETAIN_BODY = "ByteBufAssertion.retain_body"; // $NON-NLS-1$
+  //- JMX names
+
+  private static final String[] CHECKS = {
+      MIN_LENGTH, MAX_LENGTH, PREFIX, CONTAINS, CRC32C, MIN_ELEMENTS, MAX_ELEMENTS
+  };
+
+  private final long minLength;
+
+  private final long maxLength;
+
+  private final byte[] prefix;
+
+  private final byte[] contains;
+
+  // KMP failure function of contains
+  private final int[] containsFailure;
+
+  private final long crc32c;
+
+  private final long minElements;
+
+  private final long maxElements;
+
+  private final String key;
+
+  private ByteBufAssertion(long minLength, long maxLength, byte[] prefix, byte[] contains,
+      long crc32c, long minElements, long maxElements, String key) {
+    this.minLength = minLength;
+    this.maxLength = maxLength;
+    this.prefix = prefix;
+    this.contains = contains;
+    this.containsFailure = failure(contains);
+    this.crc32c = crc32c;
+    this.minElements = minElements;
+    this.maxElements = maxElements;
+    this.key = key;
+  }
+
+  /**
+   * @param cached the assertion compiled for the previous sample, reused if the properties did not
+   *               change
+   * @return the assertion configured on the given element, or null if there is none
+   */
+  public static ByteBufAssertion from(TestElement element, ByteBufAssertion cached) {
+    if (!isConfigured(element)) {
+      return null;
+    }
+    final String minLength = element.getPropertyAsString(MIN_LENGTH).trim();
+    final String maxLength = element.getPropertyAsString(MAX_LENGTH).trim();
+    final String prefix = element.getPropertyAsString(PREFIX);
+    final String contains = element.getPropertyAsString(CONTAINS);
+    final String crc32c = element.getPropertyAsString(CRC32C).trim();
+    final String minElements = element.getPropertyAsString(MIN_ELEMENTS).trim();
+    final String maxElements = element.getPropertyAsString(MAX_ELEMENTS).trim();
+
+    final String key = minLength + '\0' + maxLength + '\0' + prefix + '\0' + contains + '\0'
+        + crc32c + '\0' + minElements + '\0' + maxElements;
+    if (cached != null && cached.key.equals(key)) {
+      return cached;
+    }
+    if (key.length() == 6) {
+      return null;
+    }
+
+    return new ByteBufAssertion(
+        parse(minLength, -1),
+        parse(maxLength, -1),
+        prefix.getBytes(StandardCharsets.UTF_8),
+        contains.getBytes(StandardCharsets.UTF_8),
+        crc32c.isEmpty() ? -1 : Long.parseLong(crc32c, 16),
+        parse(minElements, -1),
+        parse(maxElements, -1),
+        key);
+  }
+
+  /**
+   * @return whether any check is set, without building anything as most samplers have none
+   */
+  private static boolean isConfigured(TestElement element) {
+    for (String name : CHECKS) {
+      if (!element.getPropertyAsString(name).isEmpty()) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return whether the response data has to be kept, true unless configured otherwise
+   */
+  public static boolean isRetainBody(TestElement element) {
+    return element.getPropertyAsBoolean(RETAIN_BODY, true);
+  }
+
+  private static long parse(String value, long dflt) {
+    return value.isEmpty() ? dflt : Long.parseLong(value);
+  }
+
+  private static int[] failure(byte[] pattern) {
+    final int[] failure = new int[pattern.length];
+    for (int i = 1, k = 0; i < pattern.length; i++) {
+      while (k > 0 && pattern[i] != pattern[k]) {
+        k = failure[k - 1];
+      }
+      if (pattern[i] == pattern[k]) {
+        k++;
+      }
+      failure[i] = k;
+    }
+    return failure;
+  }
+
+  public Check newCheck() {
+    return new Check();
+  }
+
+  /**
+   * Evaluation state of a single response, driven by the thread delivering it.
+   */
+  public final class Check {
+
+    private long length;
+
+    private long elements;
+
+    private int prefixMatched;
+
+    private boolean prefixMismatch;
+
+    private int containsMatched;
+
+    private boolean found = contains.length == 0;
+
+    private final Crc32c crc = crc32c >= 0 ? new Crc32c() : null;
+
+    private Check() {
+    }
+
+    /**
+     * @param data the data of the next element, its indexes are left untouched
+     */
+    public void onNext(ByteBuf data) {
+      elements++;
+      final int readerIndex = data.readerIndex();
+      final int readable = data.readableBytes();
+      length += readable;
+
+      final byte[] prefix = ByteBufAssertion.this.prefix;
+      while (!prefixMismatch && prefixMatched < prefix.length
+          && prefixMatched - (length - readable) < readable) {
+        final int index = readerIndex + (int) (prefixMatched - (length - readable));
+        if (data.getByte(index) != prefix[prefixMatched]) {
+          prefixMismatch = true;
+        } else {
+          prefixMatched++;
+        }
+      }
+
+      if (!found) {
+        final byte[] contains = ByteBufAssertion.this.contains;
+        final int[] failure = containsFailure;
+        int k = containsMatched;
+        for (int i = 0; i < readable; i++) {
+          final byte b = data.getByte(readerIndex + i);
+          while (k > 0 && b != contains[k]) {
+            k = failure[k - 1];
+          }
+          if (b == contains[k]) {
+            k++;
+          }
+          if (k == contains.length) {
+            found = true;
+            break;
+          }
+        }
+        containsMatched = k;
+      }
+
+      if (crc != null) {
+        data.forEachByte(crc);
+      }
+    }
+
+    /**
+     * @return a description of the first failed check, or null if all passed
+     */
+    public String verify() {
+      if (minLength >= 0 && length < minLength) {
+        return "Response length " + length + " is below " + minLength;
+      }
+      if (maxLength >= 0 && length > maxLength) {
+        return "Response length " + length + " is above " + maxLength;
+      }
+      if (prefixMismatch || prefixMatched < prefix.length) {
+        return "Response does not start with expected prefix";
+      }
+      if (!found) {
+        return "Response does not contain expected bytes";
+      }
+      if (crc != null && crc.getValue() != crc32c) {
+        return "Response CRC32C " + Long.toHexString(crc.getValue()) + " differs from "
+            + Long.toHexString(crc32c);
+      }
+      if (minElements >= 0 && elements < minElements) {
+        return "Response has " + elements + " elements, expected at least " + minElements;
+      }
+      if (maxElements >= 0 && elements > maxElements) {
+        return "Response has " + elements + " elements, expected at most " + maxElements;
+      }
+      return null;
+    }
+  }
+}
@@ -0,0 +1,138 @@
+package io.rsocket.jmeter.assertions;
+
+import javax.swing.Box;
+import javax.swing.JCheckBox;
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.config.gui.AbstractConfigGui;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jorphan.gui.layout.VerticalLayout;
+
+/**
+ * The GUI for {@link ByteBufAssertion}, a configuration element applying to the RSocket samplers
+ * in its scope. Empty fields are not checked.
+ */
+public class ByteBufAssertionGui extends AbstractConfigGui {
+
+  private static final long serialVersionUID = 1L;
+
+  private JTextField minLengthField;
+  private JTextField maxLengthField;
+  private JTextField prefixField;
+  private JTextField containsField;
+  private JTextField crc32cField;
+  private JTextField minElementsField;
+  private JTextField maxElementsField;
+  private JCheckBox retainBodyField;
+
+  public ByteBufAssertionGui() {
+    init();
+  }
+
+  @Override
+  public String getStaticLabel() {
+    return "RSocket Response Assertion";
+  }
+
+  @Override
+  public String getLabelResource() {
+    return "assertion_title"; // $NON-NLS-1$
+  }
+
+  @Override
+  public TestElement createTestElement() {
+    ConfigTestElement element = new ConfigTestElement();
+    modifyTestElement(element);
+    return element;
+  }
+
+  @Override
+  public void modifyTestElement(TestElement el) {
+    super.configureTestElement(el);
+
+    el.setProperty(ByteBufAssertion.MIN_LENGTH, minLengthField.getText());
+    el.setProperty(ByteBufAssertion.MAX_LENGTH, maxLengthField.getText());
+    el.setProperty(ByteBufAssertion.PREFIX, prefixField.getText());
+    el.setProperty(ByteBufAssertion.CONTAINS, containsField.getText());
+    el.setProperty(ByteBufAssertion.CRC32C, crc32cField.getText());
+    el.setProperty(ByteBufAssertion.MIN_ELEMENTS, minElementsField.getText());
+    el.setProperty(ByteBufAssertion.MAX_ELEMENTS, maxElementsField.getText());
+    el.setProperty(ByteBufAssertion.RETAIN_BODY, retainBodyField.isSelected());
+  }
+
+  @Override
+  public void configure(TestElement el) {
+    super.configure(el);
+
+    minLengthField.setText(el.getPropertyAsString(ByteBufAssertion.MIN_LENGTH));
+    maxLengthField.setText(el.getPropertyAsString(ByteBufAssertion.MAX_LENGTH));
+    prefixField.setText(el.getPropertyAsString(ByteBufAssertion.PREFIX));
+    containsField.setText(el.getPropertyAsString(ByteBufAssertion.CONTAINS));
+    crc32cField.setText(el.getPropertyAsString(ByteBufAssertion.CRC32C));
+    minElementsField.setText(el.getPropertyAsString(ByteBufAssertion.MIN_ELEMENTS));
+    maxElementsField.setText(el.getPropertyAsString(ByteBufAssertion.MAX_ELEMENTS));
+    retainBodyField.setSelected(ByteBufAssertion.isRetainBody(el));
+  }
+
+  private void init() { // WARNING: called from ctor so must not be overridden (i.e. must be private or final)
+    setLayout(new VerticalLayout(5, VerticalLayout.BOTH, VerticalLayout.TOP));
+
+    setBorder(makeBorder());
+    add(makeTitlePanel());
+
+    Box lengthPanel = Box.createHorizontalBox();
+    lengthPanel.add(new JLabel("Length At Least (bytes)"));//$NON-NLS-1$
+    minLengthField = new JTextField(6);
+    lengthPanel.add(minLengthField);
+    lengthPanel.add(new JLabel("At Most"));//$NON-NLS-1$
+    maxLengthField = new JTextField(6);
+    lengthPanel.add(maxLengthField);
+
+    Box prefixPanel = Box.createHorizontalBox();
+    prefixPanel.add(new JLabel("Starts With"));//$NON-NLS-1$
+    prefixField = new JTextField(6);
+    prefixPanel.add(prefixField);
+
+    Box containsPanel = Box.createHorizontalBox();
+    containsPanel.add(new JLabel("Contains"));//$NON-NLS-1$
+    containsField = new JTextField(6);
+    containsPanel.add(containsField);
+
+    Box crcPanel = Box.createHorizontalBox();
+    crcPanel.add(new JLabel("CRC32C (hex)"));//$NON-NLS-1$
+    crc32cField = new JTextField(6);
+    crcPanel.add(crc32cField);
+
+    Box elementsPanel = Box.createHorizontalBox();
+    elementsPanel.add(new JLabel("Elements At Least"));//$NON-NLS-1$
+    minElementsField = new JTextField(6);
+    elementsPanel.add(minElementsField);
+    elementsPanel.add(new JLabel("At Most"));//$NON-NLS-1$
+    maxElementsField = new JTextField(6);
+    elementsPanel.add(maxElementsField);
+
+    retainBodyField = new JCheckBox("Keep Response Body", true);//$NON-NLS-1$
+
+    add(lengthPanel);
+    add(prefixPanel);
+    add(containsPanel);
+    add(crcPanel);
+    add(elementsPanel);
+    add(retainBodyField);
+  }
+
+  @Override
+  public void clearGui() {
+    super.clearGui();
+
+    minLengthField.setText("");
+    maxLengthField.setText("");
+    prefixField.setText("");
+    containsField.setText("");
+    crc32cField.setText("");
+    minElementsField.setText("");
+    maxElementsField.setText("");
+    retainBodyField.setSelected(true);
+  }
+}
@@ -0,0 +1,35 @@
+package io.rsocket.jmeter.assertions;
+
+import io.netty.util.ByteProcessor;
+
+/**
+ * Table driven CRC32C (Castagnoli), which {@code java.util.zip} only offers from Java 9 on.
+ * Feeds on {@link io.netty.buffer.ByteBuf#forEachByte(ByteProcessor)}, so response buffers are
+ * checksummed in place.
+ */
+final class Crc32c implements ByteProcessor {
+
+  private static final int[] TABLE = new int[256];
+
+  static {
+    for (int i = 0; i < 256; i++) {
+      int crc = i;
+      for (int bit = 0; bit < 8; bit++) {
+        crc = (crc & 1) != 0 ? (crc >>> 1) ^ 0x82F63B78 : crc >>> 1;
+      }
+      TABLE[i] = crc;
+    }
+  }
+
+  private int crc = 0xFFFFFFFF;
+
+  @Override
+  public boolean process(byte value) {
+    crc = (crc >>> 8) ^ TABLE[(crc ^ value) & 0xFF];
+    return true;
+  }
+
+  long getValue() {
+    return ~crc & 0xFFFFFFFFL;
+  }
+}
@@ -0,0 +1,41 @@
+package io.rsocket.jmeter.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.nio.charset.Charset;
+
+/**
+ * Sends data as written and keeps responses binary, or decodes them as text for textual MIME
+ * types.
+ */
+final class BinaryCodec implements PayloadCodec {
+
+  private final String mimeType;
+
+  private final boolean textual;
+
+  BinaryCodec(String mimeType, boolean textual) {
+    this.mimeType = mimeType;
+    this.textual = textual;
+  }
+
+  @Override
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  @Override
+  public boolean encodesText() {
+    return false;
+  }
+
+  @Override
+  public ByteBuf encode(ByteBufAllocator allocator, ByteBuf text, Charset charset) {
+    return text.retain();
+  }
+
+  @Override
+  public String decode(byte[] data, Charset charset) {
+    return textual ? new String(data, charset) : null;
+  }
+}
@@ -0,0 +1,74 @@
+package io.rsocket.jmeter.codec;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufInputStream;
+import io.netty.buffer.ByteBufOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+
+/**
+ * Encodes request data written as JSON into CBOR, and decodes CBOR responses back into JSON.
+ */
+final class CborCodec implements PayloadCodec {
+
+  /**
+   * Mappers are created on first use, so plans not using CBOR never load Jackson.
+   */
+  private static final class Mappers {
+
+    static final ObjectMapper JSON = new ObjectMapper();
+
+    static final ObjectMapper CBOR = new ObjectMapper(new CBORFactory());
+  }
+
+  private final String mimeType;
+
+  CborCodec(String mimeType) {
+    this.mimeType = mimeType;
+  }
+
+  @Override
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  @Override
+  public boolean encodesText() {
+    return true;
+  }
+
+  @Override
+  public ByteBuf encode(ByteBufAllocator allocator, ByteBuf text, Charset charset) {
+    final ByteBuf buffer = allocator.buffer(text.readableBytes());
+    try {
+      final JsonNode tree = Mappers.JSON.readTree(
+          new InputStreamReader(new ByteBufInputStream(text.duplicate()), charset));
+      // ByteBufOutputStream is a DataOutput as well
+      Mappers.CBOR.writeValue((OutputStream) new ByteBufOutputStream(buffer), tree);
+      return buffer;
+    } catch (IOException e) {
+      buffer.release();
+      throw new UncheckedIOException("Data is not valid JSON", e);
+    }
+  }
+
+  @Override
+  public String decode(byte[] data, Charset charset) {
+    if (data.length == 0) {
+      return "";
+    }
+    try {
+      return Mappers.JSON.writeValueAsString(Mappers.CBOR.readTree(data));
+    } catch (IOException e) {
+      // not CBOR after all, e.g. an error message
+      return null;
+    }
+  }
+}
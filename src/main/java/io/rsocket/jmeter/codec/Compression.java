@@ -0,0 +1,108 @@
+package io.rsocket.jmeter.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+import net.jpountz.lz4.LZ4FrameInputStream;
+import net.jpountz.lz4.LZ4FrameOutputStream;
+
+/**
+ * Compression of request data and decompression of response data. LZ4 uses the frame format of
+ * lz4-java, which falls back to its pure Java implementation when no native library is available.
+ */
+public enum Compression {
+
+  NONE {
+    @Override
+    OutputStream compressing(OutputStream out) {
+      return out;
+    }
+
+    @Override
+    InputStream decompressing(InputStream in) {
+      return in;
+    }
+  },
+
+  GZIP {
+    @Override
+    OutputStream compressing(OutputStream out) throws IOException {
+      return new GZIPOutputStream(out);
+    }
+
+    @Override
+    InputStream decompressing(InputStream in) throws IOException {
+      return new GZIPInputStream(in);
+    }
+  },
+
+  DEFLATE {
+    @Override
+    OutputStream compressing(OutputStream out) {
+      return new DeflaterOutputStream(out);
+    }
+
+    @Override
+    InputStream decompressing(InputStream in) {
+      return new InflaterInputStream(in);
+    }
+  },
+
+  LZ4 {
+    @Override
+    OutputStream compressing(OutputStream out) throws IOException {
+      return new LZ4FrameOutputStream(out);
+    }
+
+    @Override
+    InputStream decompressing(InputStream in) throws IOException {
+      return new LZ4FrameInputStream(in);
+    }
+  };
+
+  // the decompression buffer starts at twice the compressed size, capped at this many bytes
+  private static final int MAX_INITIAL_SIZE = 64 * 1024;
+
+  abstract OutputStream compressing(OutputStream out) throws IOException;
+
+  abstract InputStream decompressing(InputStream in) throws IOException;
+
+  /**
+   * @param data released by the caller
+   * @return a new buffer holding the compressed data, owned by the caller
+   */
+  public ByteBuf compress(ByteBufAllocator allocator, ByteBuf data) {
+    final ByteBuf buffer = allocator.buffer(data.readableBytes() / 2 + 64);
+    try (OutputStream out = compressing(new ByteBufOutputStream(buffer))) {
+      data.getBytes(data.readerIndex(), out, data.readableBytes());
+    } catch (IOException e) {
+      buffer.release();
+      throw new UncheckedIOException(e);
+    }
+    return buffer;
+  }
+
+  public byte[] decompress(byte[] data) throws IOException {
+    // grows as needed, the ratio of a response is unknown upfront
+    final ByteArrayOutputStream out =
+        new ByteArrayOutputStream((int) Math.min(data.length * 2L, MAX_INITIAL_SIZE));
+    try (InputStream in = decompressing(new ByteArrayInputStream(data))) {
+      final byte[] chunk = new byte[8192];
+      int read;
+      while ((read = in.read(chunk)) >= 0) {
+        out.write(chunk, 0, read);
+      }
+    }
+    return out.toByteArray();
+  }
+}
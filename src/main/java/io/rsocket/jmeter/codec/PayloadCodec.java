@@ -0,0 +1,32 @@
+package io.rsocket.jmeter.codec;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.nio.charset.Charset;
+
+/**
+ * Converts request data written as text into the data MIME type of the connection, and response
+ * data back into text for listeners and extractors. Instances are shared by all threads.
+ */
+public interface PayloadCodec {
+
+  String getMimeType();
+
+  /**
+   * @return whether {@link #encode(ByteBufAllocator, ByteBuf, Charset)} transforms the text, if
+   * not data is sent as written
+   */
+  boolean encodesText();
+
+  /**
+   * @param text    request data as written by the template, released by the caller
+   * @param charset charset of the text
+   * @return a new buffer in the wire format, owned by the caller
+   */
+  ByteBuf encode(ByteBufAllocator allocator, ByteBuf text, Charset charset);
+
+  /**
+   * @return the response data as text, or {@code null} to keep it as binary
+   */
+  String decode(byte[] data, Charset charset);
+}
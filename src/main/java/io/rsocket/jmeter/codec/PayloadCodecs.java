@@ -0,0 +1,75 @@
+package io.rsocket.jmeter.codec;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+import java.util.concurrent.ConcurrentHashMap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Codecs by data MIME type, created once and shared.
+ * <p>
+ * Codecs for further MIME types are either registered with {@link #register(PayloadCodec)}
+ * before the test starts or found on the class path as {@link ServiceLoader} providers of {@link
+ * PayloadCodec}, listed in {@code META-INF/services/io.rsocket.jmeter.codec.PayloadCodec}. Both
+ * take precedence over the built-in codecs of the same MIME type.
+ */
+public final class PayloadCodecs {
+
+  private static final Logger log = LoggerFactory.getLogger(PayloadCodecs.class);
+
+  private static final Map<String, PayloadCodec> CODECS = new ConcurrentHashMap<>();
+
+  static {
+    final Iterator<PayloadCodec> providers =
+        ServiceLoader.load(PayloadCodec.class, PayloadCodecs.class.getClassLoader()).iterator();
+    for (; ; ) {
+      try {
+        if (!providers.hasNext()) {
+          break;
+        }
+        final PayloadCodec codec = providers.next();
+        CODECS.put(codec.getMimeType(), codec);
+        log.info("Registered codec [{}] for [{}]", codec.getClass().getName(),
+            codec.getMimeType());
+      } catch (ServiceConfigurationError e) {
+        log.error("Failed to load a payload codec", e);
+      }
+    }
+  }
+
+  private PayloadCodecs() {
+  }
+
+  public static PayloadCodec forMimeType(String mimeType) {
+    return CODECS.computeIfAbsent(mimeType, PayloadCodecs::create);
+  }
+
+  /**
+   * Uses the given codec for its MIME type from now on, connections set up already keep theirs.
+   */
+  public static void register(PayloadCodec codec) {
+    CODECS.put(codec.getMimeType(), codec);
+  }
+
+  private static PayloadCodec create(String mimeType) {
+    switch (mimeType) {
+      case "application/cbor":
+        return new CborCodec(mimeType);
+      case "application/protobuf":
+      case "application/x-protobuf":
+      case "application/vnd.google.protobuf":
+        return new ProtobufCodec(mimeType);
+      default:
+        return new BinaryCodec(mimeType, isTextual(mimeType));
+    }
+  }
+
+  private static boolean isTextual(String mimeType) {
+    return mimeType.startsWith("text/")
+        || mimeType.endsWith("json")
+        || mimeType.endsWith("xml");
+  }
+}
@@ -0,0 +1,44 @@
+package io.rsocket.jmeter.codec;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.UnknownFieldSet;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import java.nio.charset.Charset;
+
+/**
+ * Protocol buffers without schema: request data is sent as given, typically hex, base64 or a
+ * file, and responses are decoded into the text format with field numbers instead of names.
+ */
+final class ProtobufCodec implements PayloadCodec {
+
+  private final String mimeType;
+
+  ProtobufCodec(String mimeType) {
+    this.mimeType = mimeType;
+  }
+
+  @Override
+  public String getMimeType() {
+    return mimeType;
+  }
+
+  @Override
+  public boolean encodesText() {
+    return false;
+  }
+
+  @Override
+  public ByteBuf encode(ByteBufAllocator allocator, ByteBuf text, Charset charset) {
+    return text.retain();
+  }
+
+  @Override
+  public String decode(byte[] data, Charset charset) {
+    try {
+      return UnknownFieldSet.parseFrom(data).toString();
+    } catch (InvalidProtocolBufferException e) {
+      return null;
+    }
+  }
+}
@@ -36,6 +36,12 @@ public class RSocketRPCConfig extends ConfigTestElement implements Serializable
 
     private static final long serialVersionUID = 240L;
 
+    /** Service method of the generated client class. */
+    public static final String METHOD = "RSocketRPCConfig.method"; // $NON-NLS-1$
+
+    /** Request message in the protobuf JSON format. */
+    public static final String MESSAGE = "RSocketRPCConfig.message"; // $NON-NLS-1$
+
     /**
      * Constructor for the JavaConfig object
      */
@@ -68,6 +74,22 @@ public class RSocketRPCConfig extends ConfigTestElement implements Serializable
         return getPropertyAsString(JavaSampler.CLASSNAME);
     }
 
+    public void setMethodName(String methodName) {
+        setProperty(METHOD, methodName);
+    }
+
+    public String getMethodName() {
+        return getPropertyAsString(METHOD);
+    }
+
+    public void setMessage(String message) {
+        setProperty(MESSAGE, message);
+    }
+
+    public String getMessage() {
+        return getPropertyAsString(MESSAGE);
+    }
+
     /**
      * Adds an argument to the list of arguments for this JavaConfig object. The
      * {@link org.apache.jmeter.protocol.java.sampler.JavaSamplerClient}
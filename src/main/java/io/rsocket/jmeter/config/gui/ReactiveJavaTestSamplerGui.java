@@ -20,30 +20,34 @@ package io.rsocket.jmeter.config.gui;
 
 import java.awt.BorderLayout;
 
-import org.apache.jmeter.protocol.java.config.JavaConfig;
-import org.apache.jmeter.protocol.java.sampler.JavaSampler;
+import io.rsocket.jmeter.rpc.RSocketRPCSampler;
 import org.apache.jmeter.samplers.gui.AbstractSamplerGui;
 import org.apache.jmeter.testelement.TestElement;
 
 /**
- * The <code>JavaTestSamplerGui</code> class provides the user interface for
- * the {@link JavaSampler}.
+ * The <code>ReactiveJavaTestSamplerGui</code> class provides the user interface for
+ * the {@link RSocketRPCSampler}.
  *
  */
 public class ReactiveJavaTestSamplerGui extends AbstractSamplerGui {
     private static final long serialVersionUID = 240L;
 
     /** Panel containing the configuration options. */
-//    private RSocketRPCConfigGui javaPanel = null;
+    private RSocketRPCConfigGui javaPanel = null;
 
     /**
-     * Constructor for JavaTestSamplerGui
+     * Constructor for ReactiveJavaTestSamplerGui
      */
     public ReactiveJavaTestSamplerGui() {
         super();
         init();
     }
 
+    @Override
+    public String getStaticLabel() {
+        return "RSocket RPC Request";
+    }
+
     @Override
     public String getLabelResource() {
         return "java_request"; // $NON-NLS-1$
@@ -58,15 +62,15 @@ public class ReactiveJavaTestSamplerGui extends AbstractSamplerGui {
 
         add(makeTitlePanel(), BorderLayout.NORTH);
 
-//        javaPanel = new RSocketRPCConfigGui(false);
+        javaPanel = new RSocketRPCConfigGui(false);
 
-//        add(javaPanel, BorderLayout.CENTER);
+        add(javaPanel, BorderLayout.CENTER);
     }
 
     /* Implements JMeterGuiComponent.createTestElement() */
     @Override
     public TestElement createTestElement() {
-        JavaSampler sampler = new JavaSampler();
+        RSocketRPCSampler sampler = new RSocketRPCSampler();
         modifyTestElement(sampler);
         return sampler;
     }
@@ -75,16 +79,15 @@ public class ReactiveJavaTestSamplerGui extends AbstractSamplerGui {
     @Override
     public void modifyTestElement(TestElement sampler) {
         sampler.clear();
-//        JavaConfig config = (JavaConfig) javaPanel.createTestElement();
-//        configureTestElement(sampler);
-//        sampler.addTestElement(config);
+        configureTestElement(sampler);
+        javaPanel.modifyTestElement(sampler);
     }
 
     /* Overrides AbstractJMeterGuiComponent.configure(TestElement) */
     @Override
     public void configure(TestElement el) {
         super.configure(el);
-//        javaPanel.configure(el);
+        javaPanel.configure(el);
     }
 
     /* (non-Javadoc)
@@ -93,6 +96,6 @@ public class ReactiveJavaTestSamplerGui extends AbstractSamplerGui {
     @Override
     public void clearGui() {
         super.clearGui();
-//        javaPanel.clearGui();
+        javaPanel.clearGui();
     }
 }
@@ -18,6 +18,7 @@
 package io.rsocket.jmeter.config.gui;
 
 import io.rsocket.jmeter.RSocketSamplerBase;
+import io.rsocket.jmeter.codec.Compression;
 import io.rsocket.jmeter.gui.CompositeMetadataPanel;
 import java.awt.BorderLayout;
 import java.awt.Component;
@@ -30,11 +31,12 @@ import javax.swing.event.ChangeEvent;
 import javax.swing.event.ChangeListener;
 import org.apache.jmeter.config.Arguments;
 import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.gui.util.FilePanelEntry;
 import org.apache.jmeter.gui.util.HorizontalPanel;
 import org.apache.jmeter.gui.util.JSyntaxTextArea;
 import org.apache.jmeter.gui.util.JTextScrollPane;
 import org.apache.jmeter.protocol.http.config.gui.UrlConfigDefaults;
-import org.apache.jmeter.protocol.http.gui.HTTPFileArgsPanel;
+import org.apache.jmeter.protocol.http.util.HTTPFileArg;
 import org.apache.jmeter.testelement.TestElement;
 import org.apache.jmeter.testelement.property.TestElementProperty;
 import org.apache.jmeter.util.JMeterUtils;
@@ -66,10 +68,30 @@ public class RequestConfigGui extends JPanel implements ChangeListener {
   private int tabFileUploadIndex = 2;
 
   private CompositeMetadataPanel metadataPanel;
-  private HTTPFileArgsPanel filesPanel;
+  private FilePanelEntry bodyFile;
 
   private JLabeledTextField contentEncoding;
 
+  private JLabeledChoice dataFormat;
+
+  private JLabeledChoice compression;
+
+  private JLabeledTextField streamMaxElements;
+
+  private JLabeledTextField streamMaxBytes;
+
+  private JLabeledTextField streamMaxDuration;
+
+  private JLabeledTextField retryMax;
+
+  private JLabeledTextField retryBackoff;
+
+  private JLabeledTextField retryJitter;
+
+  private JLabeledTextField retryAttemptTimeout;
+
+  private JLabeledTextField retryOn;
+
   private JLabeledTextField route;
 
   private JLabeledChoice requestType;
@@ -129,9 +151,19 @@ public class RequestConfigGui extends JPanel implements ChangeListener {
     }
     route.setText(""); // $NON-NLS-1$
     contentEncoding.setText(""); // $NON-NLS-1$
+    dataFormat.setText(RSocketSamplerBase.DATA_FORMAT_TEXT);
+    compression.setText(Compression.NONE.name());
+    streamMaxElements.setText(""); // $NON-NLS-1$
+    streamMaxBytes.setText(""); // $NON-NLS-1$
+    streamMaxDuration.setText(""); // $NON-NLS-1$
+    retryMax.setText(""); // $NON-NLS-1$
+    retryBackoff.setText(""); // $NON-NLS-1$
+    retryJitter.setText(""); // $NON-NLS-1$
+    retryAttemptTimeout.setText(""); // $NON-NLS-1$
+    retryOn.setText(""); // $NON-NLS-1$
     metadataPanel.clear();
     if (showFileUploadPane) {
-      filesPanel.clear();
+      bodyFile.setFilename(""); // $NON-NLS-1$
     }
     if (showRawBodyPane) {
       postBodyContent.setInitialText("");// $NON-NLS-1$
@@ -158,10 +190,24 @@ public class RequestConfigGui extends JPanel implements ChangeListener {
     String data = postBodyContent.getText();
     Arguments metadata = (Arguments) metadataPanel.createTestElement();
 
-//    if (showFileUploadPane) {
-//      filesPanel.modifyTestElement(element);
-//    }
+    if (showFileUploadPane && element instanceof RSocketSamplerBase) {
+      // a single file without parameter name is sent as the data
+      String path = bodyFile.getFilename().trim();
+      ((RSocketSamplerBase) element).setHTTPFiles(path.isEmpty()
+          ? new HTTPFileArg[0]
+          : new HTTPFileArg[]{new HTTPFileArg(path)});
+    }
     element.setProperty(RSocketSamplerBase.DATA, data);
+    element.setProperty(RSocketSamplerBase.DATA_FORMAT, dataFormat.getText());
+    element.setProperty(RSocketSamplerBase.COMPRESSION, compression.getText());
+    element.setProperty(RSocketSamplerBase.STREAM_MAX_ELEMENTS, streamMaxElements.getText().trim());
+    element.setProperty(RSocketSamplerBase.STREAM_MAX_BYTES, streamMaxBytes.getText().trim());
+    element.setProperty(RSocketSamplerBase.STREAM_MAX_DURATION, streamMaxDuration.getText().trim());
+    element.setProperty(RSocketSamplerBase.RETRY_MAX, retryMax.getText().trim());
+    element.setProperty(RSocketSamplerBase.RETRY_BACKOFF, retryBackoff.getText().trim());
+    element.setProperty(RSocketSamplerBase.RETRY_JITTER, retryJitter.getText().trim());
+    element.setProperty(RSocketSamplerBase.RETRY_ATTEMPT_TIMEOUT, retryAttemptTimeout.getText().trim());
+    element.setProperty(RSocketSamplerBase.RETRY_ON, retryOn.getText().trim());
     element.setProperty(new TestElementProperty(RSocketSamplerBase.METADATA, metadata));
     element.setProperty(RSocketSamplerBase.CONTENT_ENCODING, contentEncoding.getText());
     element.setProperty(RSocketSamplerBase.ROUTE, route.getText());
@@ -187,14 +233,42 @@ public class RequestConfigGui extends JPanel implements ChangeListener {
     metadataPanel.configure(arguments);
 
     if (showFileUploadPane) {
-      filesPanel.configure(el);
+      bodyFile.setFilename(el instanceof RSocketSamplerBase
+          && ((RSocketSamplerBase) el).getSendFileAsPostBody()
+          ? ((RSocketSamplerBase) el).getHTTPFiles()[0].getPath()
+          : ""); // $NON-NLS-1$
     }
 
+    dataFormat.setText(el.getPropertyAsString(RSocketSamplerBase.DATA_FORMAT,
+        RSocketSamplerBase.DATA_FORMAT_TEXT));
+    compression.setText(el.getPropertyAsString(RSocketSamplerBase.COMPRESSION,
+        Compression.NONE.name()));
+    streamMaxElements.setText(el.getPropertyAsString(RSocketSamplerBase.STREAM_MAX_ELEMENTS));
+    streamMaxBytes.setText(el.getPropertyAsString(RSocketSamplerBase.STREAM_MAX_BYTES));
+    streamMaxDuration.setText(el.getPropertyAsString(RSocketSamplerBase.STREAM_MAX_DURATION));
+    retryMax.setText(el.getPropertyAsString(RSocketSamplerBase.RETRY_MAX));
+    retryBackoff.setText(el.getPropertyAsString(RSocketSamplerBase.RETRY_BACKOFF));
+    retryJitter.setText(el.getPropertyAsString(RSocketSamplerBase.RETRY_JITTER));
+    retryAttemptTimeout.setText(el.getPropertyAsString(RSocketSamplerBase.RETRY_ATTEMPT_TIMEOUT));
+    retryOn.setText(el.getPropertyAsString(RSocketSamplerBase.RETRY_ON));
     contentEncoding.setText(el.getPropertyAsString(RSocketSamplerBase.CONTENT_ENCODING));
     route.setText(el.getPropertyAsString(RSocketSamplerBase.ROUTE));
     if (notConfigOnly) {
       requestType.setText(el.getPropertyAsString(RSocketSamplerBase.REQUEST_TYPE));
     }
+    updateStreamLimits();
+  }
+
+  /**
+   * Stream limits only apply to interactions with a response stream, a config element may apply
+   * to any of them.
+   */
+  private void updateStreamLimits() {
+    final boolean enabled = requestType == null
+        || RSocketSamplerBase.hasResponseStream(requestType.getText());
+    streamMaxElements.setEnabled(enabled);
+    streamMaxBytes.setEnabled(enabled);
+    streamMaxDuration.setEnabled(enabled);
   }
 
   private void init() {// called from ctor, so must not be overridable
@@ -248,6 +322,24 @@ public class RequestConfigGui extends JPanel implements ChangeListener {
     // CONTENT_ENCODING
     contentEncoding = new JLabeledTextField(JMeterUtils.getResString("content_encoding"),
         7); // $NON-NLS-1$
+    dataFormat = new JLabeledChoice("Data format", // $NON-NLS-1$
+        new String[]{RSocketSamplerBase.DATA_FORMAT_TEXT, RSocketSamplerBase.DATA_FORMAT_HEX,
+            RSocketSamplerBase.DATA_FORMAT_BASE64}, false, false);
+    final Compression[] compressions = Compression.values();
+    final String[] compressionNames = new String[compressions.length];
+    for (int i = 0; i < compressions.length; i++) {
+      compressionNames[i] = compressions[i].name();
+    }
+    compression = new JLabeledChoice("Compression", // $NON-NLS-1$
+        compressionNames, false, false);
+    streamMaxElements = new JLabeledTextField("Stop stream after elements", 6); // $NON-NLS-1$
+    streamMaxBytes = new JLabeledTextField("bytes", 6); // $NON-NLS-1$
+    streamMaxDuration = new JLabeledTextField("ms", 6); // $NON-NLS-1$
+    retryMax = new JLabeledTextField("Retries", 4); // $NON-NLS-1$
+    retryBackoff = new JLabeledTextField("Backoff (ms)", 6); // $NON-NLS-1$
+    retryJitter = new JLabeledTextField("Jitter", 4); // $NON-NLS-1$
+    retryAttemptTimeout = new JLabeledTextField("Attempt timeout (ms)", 6); // $NON-NLS-1$
+    retryOn = new JLabeledTextField("Retry on errors", 20); // $NON-NLS-1$
 
     if (notConfigOnly) {
       requestType = new JLabeledChoice(JMeterUtils.getResString("requestTypes"), // $NON-NLS-1$
@@ -261,9 +353,23 @@ public class RequestConfigGui extends JPanel implements ChangeListener {
     }
     pathPanel.add(route);
     pathPanel.add(contentEncoding);
+    pathPanel.add(dataFormat);
+    pathPanel.add(compression);
     JPanel panel = new JPanel();
     panel.setLayout(new BoxLayout(panel, BoxLayout.Y_AXIS));
     panel.add(pathPanel);
+    JPanel streamPanel = new HorizontalPanel();
+    streamPanel.add(streamMaxElements);
+    streamPanel.add(streamMaxBytes);
+    streamPanel.add(streamMaxDuration);
+    panel.add(streamPanel);
+    JPanel retryPanel = new HorizontalPanel();
+    retryPanel.add(retryMax);
+    retryPanel.add(retryBackoff);
+    retryPanel.add(retryJitter);
+    retryPanel.add(retryAttemptTimeout);
+    retryPanel.add(retryOn);
+    panel.add(retryPanel);
     if (notConfigOnly) {
       JPanel optionPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
       optionPanel.setMinimumSize(optionPanel.getPreferredSize());
@@ -289,14 +395,18 @@ public class RequestConfigGui extends JPanel implements ChangeListener {
 
     if (showFileUploadPane) {
       tabFileUploadIndex = ++indx;
-      filesPanel = new HTTPFileArgsPanel();
-      postContentTabbedPane.add(JMeterUtils.getResString("post_files_upload"), filesPanel);
+      bodyFile = new FilePanelEntry("File sent as data, overrides the body data"); // $NON-NLS-1$
+      JPanel filePanel = new JPanel(new BorderLayout());
+      filePanel.add(bodyFile, BorderLayout.NORTH);
+      postContentTabbedPane.add(JMeterUtils.getResString("post_files_upload"), filePanel);
     }
     return postContentTabbedPane;
   }
 
   @Override
   public void stateChanged(ChangeEvent e) {
-
+    if (e.getSource() == requestType) {
+      updateStreamLimits();
+    }
   }
 }
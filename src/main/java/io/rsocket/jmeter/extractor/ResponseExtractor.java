@@ -0,0 +1,414 @@
+package io.rsocket.jmeter.extractor;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonPointer;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.async.ByteArrayFeeder;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufUtil;
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import org.apache.jmeter.config.Argument;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.FunctionProperty;
+import org.apache.jmeter.threads.JMeterVariables;
+
+/**
+ * Extracts fields of the response data into variables while it arrives, on every incoming buffer
+ * before it is released. Only the requested fields are materialized:
+ * <ul>
+ *   <li>{@code json:/pointer} streams the data through a non-blocking JSON parser and keeps the
+ *   value at the pointer, the text of a scalar or the JSON of an object or array</li>
+ *   <li>{@code bytes:offset:length} keeps the given bytes, as hex</li>
+ *   <li>{@code regex:pattern} matches the text of each element, keeping group 1 or the whole
+ *   match</li>
+ * </ul>
+ * Fields are looked for in the data as received, every field keeps its first match. Samples
+ * without extractor in scope pay nothing.
+ */
+public final class ResponseExtractor {
+
+  //+ JMX names - do not change
+  public static final String EXTRACTIONS = "ResponseExtractor.extractions"; // $NON-NLS-1$
+  //- JMX names
+
+  static final String JSON_PREFIX = "json:"; // $NON-NLS-1$
+
+  static final String BYTES_PREFIX = "bytes:"; // $NON-NLS-1$
+
+  static final String REGEX_PREFIX = "regex:"; // $NON-NLS-1$
+
+  private static final JsonFactory JSON = new JsonFactory();
+
+  private final String[] variables;
+
+  private final String[] expressions;
+
+  private final String key;
+
+  // the merged extractor configuration compiled, reused as is unless its rows use variables
+  private final Arguments source;
+
+  private final boolean dynamic;
+
+  private ResponseExtractor(String[] variables, String[] expressions, String key,
+      Arguments source, boolean dynamic) {
+    this.variables = variables;
+    this.expressions = expressions;
+    this.key = key;
+    this.source = source;
+    this.dynamic = dynamic;
+  }
+
+  /**
+   * @param cached the extractor compiled for the previous sample, reused if the properties did
+   *               not change
+   * @return the extractor configured on the given element, or null if there is none
+   * @throws IllegalArgumentException if an expression is invalid
+   */
+  public static ResponseExtractor from(TestElement element, ResponseExtractor cached) {
+    final Object extractions = element.getProperty(EXTRACTIONS).getObjectValue();
+    if (!(extractions instanceof Arguments)) {
+      return null;
+    }
+    final Arguments arguments = (Arguments) extractions;
+    if (cached != null && cached.source == arguments && !cached.dynamic) {
+      // the same configuration element is merged on every sample of a thread
+      return cached;
+    }
+    final int count = arguments.getArgumentCount();
+    if (count == 0) {
+      return null;
+    }
+
+    final StringBuilder key = new StringBuilder();
+    final List<String> variables = new ArrayList<>(count);
+    final List<String> expressions = new ArrayList<>(count);
+    boolean dynamic = false;
+    for (int i = 0; i < count; i++) {
+      final Argument argument = arguments.getArgument(i);
+      dynamic |= argument.getProperty(Argument.ARG_NAME) instanceof FunctionProperty
+          || argument.getProperty(Argument.VALUE) instanceof FunctionProperty;
+      final String variable = argument.getName().trim();
+      if (variable.isEmpty()) {
+        continue;
+      }
+      variables.add(variable);
+      expressions.add(argument.getValue());
+      key.append(variable).append('\0').append(argument.getValue()).append('\0');
+    }
+    if (cached != null && cached.key.contentEquals(key)) {
+      return cached;
+    }
+    if (variables.isEmpty()) {
+      return null;
+    }
+
+    final ResponseExtractor extractor = new ResponseExtractor(variables.toArray(new String[0]),
+        expressions.toArray(new String[0]), key.toString(), arguments, dynamic);
+    // fail on invalid expressions once, not on every response
+    extractor.newExtraction(Charset.defaultCharset());
+    return extractor;
+  }
+
+  /**
+   * @param charset charset the text of the response is decoded with by regular expressions
+   */
+  public Extraction newExtraction(Charset charset) {
+    final Field[] fields = new Field[expressions.length];
+    for (int i = 0; i < fields.length; i++) {
+      fields[i] = field(expressions[i], charset);
+    }
+    return new Extraction(fields);
+  }
+
+  private static Field field(String expression, Charset charset) {
+    if (expression.startsWith(JSON_PREFIX)) {
+      return new JsonPointerField(JsonPointer.compile(expression.substring(JSON_PREFIX.length())));
+    }
+    if (expression.startsWith(BYTES_PREFIX)) {
+      final String[] range = expression.substring(BYTES_PREFIX.length()).split(":");
+      if (range.length != 2) {
+        throw new IllegalArgumentException("Expected bytes:offset:length, got " + expression);
+      }
+      return new ByteRangeField(Long.parseLong(range[0].trim()),
+          Integer.parseInt(range[1].trim()));
+    }
+    if (expression.startsWith(REGEX_PREFIX)) {
+      return new RegexField(Pattern.compile(expression.substring(REGEX_PREFIX.length())), charset);
+    }
+    throw new IllegalArgumentException("Unknown extraction " + expression
+        + ", expected json:, bytes: or regex:");
+  }
+
+  /**
+   * Extraction state of a single response, driven by the thread delivering it.
+   */
+  public final class Extraction {
+
+    private final Field[] fields;
+
+    private int remaining;
+
+    private Extraction(Field[] fields) {
+      this.fields = fields;
+      this.remaining = fields.length;
+    }
+
+    /**
+     * @param data the data of the next element, its indexes are left untouched
+     */
+    public void onNext(ByteBuf data) {
+      if (remaining == 0) {
+        return;
+      }
+      for (Field field : fields) {
+        if (!field.isDone() && field.onNext(data)) {
+          remaining--;
+        }
+      }
+    }
+
+    /**
+     * Sets the extracted variables, removing the ones that were not found so no stale value of
+     * a previous response is used. Has to run on the thread owning the variables.
+     */
+    public void apply(JMeterVariables variables) {
+      final String[] names = ResponseExtractor.this.variables;
+      for (int i = 0; i < names.length; i++) {
+        final String value = fields[i].value();
+        if (value == null) {
+          variables.remove(names[i]);
+        } else {
+          variables.put(names[i], value);
+        }
+      }
+    }
+  }
+
+  private abstract static class Field {
+
+    String value;
+
+    boolean done;
+
+    /**
+     * @return true once the field has been found or cannot be found anymore
+     */
+    abstract boolean onNext(ByteBuf data);
+
+    boolean isDone() {
+      return done;
+    }
+
+    String value() {
+      return value;
+    }
+  }
+
+  private static final class ByteRangeField extends Field {
+
+    private final long offset;
+
+    private final byte[] bytes;
+
+    private long position;
+
+    private int filled;
+
+    ByteRangeField(long offset, int length) {
+      this.offset = offset;
+      this.bytes = new byte[length];
+    }
+
+    @Override
+    boolean onNext(ByteBuf data) {
+      final int readable = data.readableBytes();
+      final long start = Math.max(offset + filled, position);
+      final long end = Math.min(offset + bytes.length, position + readable);
+      if (start < end) {
+        data.getBytes(data.readerIndex() + (int) (start - position), bytes, filled,
+            (int) (end - start));
+        filled += (int) (end - start);
+      }
+      position += readable;
+      if (filled == bytes.length) {
+        value = ByteBufUtil.hexDump(bytes);
+        done = true;
+      }
+      return done;
+    }
+  }
+
+  private static final class RegexField extends Field {
+
+    private final Pattern pattern;
+
+    private final Charset charset;
+
+    RegexField(Pattern pattern, Charset charset) {
+      this.pattern = pattern;
+      this.charset = charset;
+    }
+
+    @Override
+    boolean onNext(ByteBuf data) {
+      final Matcher matcher = pattern.matcher(data.toString(charset));
+      if (matcher.find()) {
+        value = matcher.group(matcher.groupCount() > 0 ? 1 : 0);
+        done = true;
+      }
+      return done;
+    }
+  }
+
+  /**
+   * Follows the path of the parser through the data, so that only the value at the pointer is
+   * materialized. Containers on the pointer path are always the outermost open ones.
+   */
+  private static final class JsonPointerField extends Field {
+
+    private final String[] names;
+
+    private final int[] indexes;
+
+    private JsonParser parser;
+
+    private ByteArrayFeeder feeder;
+
+    private byte[] scratch;
+
+    private int depth;
+
+    private int onPathDepth;
+
+    // set while copying an object or array at the pointer
+    private StringWriter captured;
+
+    private JsonGenerator generator;
+
+    JsonPointerField(JsonPointer pointer) {
+      final List<String> names = new ArrayList<>();
+      final List<Integer> indexes = new ArrayList<>();
+      for (JsonPointer segment = pointer; !segment.matches(); segment = segment.tail()) {
+        names.add(segment.getMatchingProperty());
+        indexes.add(segment.getMatchingIndex());
+      }
+      this.names = names.toArray(new String[0]);
+      this.indexes = new int[indexes.size()];
+      for (int i = 0; i < this.indexes.length; i++) {
+        this.indexes[i] = indexes.get(i);
+      }
+    }
+
+    @Override
+    boolean onNext(ByteBuf data) {
+      final int length = data.readableBytes();
+      try {
+        if (parser == null) {
+          parser = JSON.createNonBlockingByteArrayParser();
+          feeder = (ByteArrayFeeder) parser.getNonBlockingInputFeeder();
+        }
+        if (data.hasArray()) {
+          final int offset = data.arrayOffset() + data.readerIndex();
+          feeder.feedInput(data.array(), offset, offset + length);
+        } else {
+          byte[] scratch = this.scratch;
+          if (scratch == null || scratch.length < length) {
+            scratch = this.scratch = new byte[length];
+          }
+          data.getBytes(data.readerIndex(), scratch, 0, length);
+          feeder.feedInput(scratch, 0, length);
+        }
+        JsonToken token;
+        while (!done && (token = parser.nextToken()) != null
+            && token != JsonToken.NOT_AVAILABLE) {
+          onToken(token);
+        }
+      } catch (IOException e) {
+        // not JSON, or not anymore
+        done = true;
+      }
+      if (done) {
+        close();
+      }
+      return done;
+    }
+
+    private void onToken(JsonToken token) throws IOException {
+      if (generator != null) {
+        generator.copyCurrentEvent(parser);
+        if (token.isStructEnd() && --depth == onPathDepth) {
+          generator.close();
+          value = captured.toString();
+          done = true;
+        } else if (token.isStructStart()) {
+          depth++;
+        }
+        return;
+      }
+
+      if (token.isStructEnd()) {
+        if (onPathDepth == depth) {
+          onPathDepth--;
+        }
+        depth--;
+        return;
+      }
+      if (token == JsonToken.FIELD_NAME) {
+        return;
+      }
+
+      final boolean onPath = depth == 0 || (onPathDepth == depth && depth <= names.length
+          && matches(depth - 1, token.isStructStart()
+          ? parser.getParsingContext().getParent()
+          : parser.getParsingContext()));
+      if (onPath && depth == names.length) {
+        if (token.isStructStart()) {
+          captured = new StringWriter();
+          generator = JSON.createGenerator(captured);
+          generator.copyCurrentEvent(parser);
+          onPathDepth = depth++;
+        } else {
+          value = parser.getText();
+          done = true;
+        }
+      } else if (token.isStructStart()) {
+        depth++;
+        if (onPath) {
+          onPathDepth = depth;
+        }
+      }
+    }
+
+    private boolean matches(int segment, JsonStreamContext container) {
+      if (container.inObject()) {
+        return names[segment].equals(container.getCurrentName());
+      }
+      return container.inArray() && indexes[segment] == container.getCurrentIndex();
+    }
+
+    private void close() {
+      try {
+        if (parser != null) {
+          parser.close();
+        }
+      } catch (IOException ignored) {
+      }
+      parser = null;
+      feeder = null;
+      scratch = null;
+      generator = null;
+      captured = null;
+    }
+  }
+}
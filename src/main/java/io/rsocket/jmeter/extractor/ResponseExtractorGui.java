@@ -0,0 +1,81 @@
+package io.rsocket.jmeter.extractor;
+
+import java.awt.BorderLayout;
+import javax.swing.JLabel;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.config.gui.AbstractConfigGui;
+import org.apache.jmeter.config.gui.ArgumentsPanel;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.testelement.property.TestElementProperty;
+
+/**
+ * The GUI for {@link ResponseExtractor}, a configuration element applying to the RSocket samplers
+ * in its scope. Each row names a variable and the field extracted into it.
+ */
+public class ResponseExtractorGui extends AbstractConfigGui {
+
+  private static final long serialVersionUID = 1L;
+
+  private ArgumentsPanel extractionsPanel;
+
+  public ResponseExtractorGui() {
+    init();
+  }
+
+  @Override
+  public String getStaticLabel() {
+    return "RSocket Response Extractor";
+  }
+
+  @Override
+  public String getLabelResource() {
+    return "regex_extractor_title"; // $NON-NLS-1$
+  }
+
+  @Override
+  public TestElement createTestElement() {
+    ConfigTestElement element = new ConfigTestElement();
+    modifyTestElement(element);
+    return element;
+  }
+
+  @Override
+  public void modifyTestElement(TestElement el) {
+    super.configureTestElement(el);
+
+    Arguments extractions = (Arguments) extractionsPanel.createTestElement();
+    el.setProperty(new TestElementProperty(ResponseExtractor.EXTRACTIONS, extractions));
+  }
+
+  @Override
+  public void configure(TestElement el) {
+    super.configure(el);
+
+    Object extractions = el.getProperty(ResponseExtractor.EXTRACTIONS).getObjectValue();
+    if (extractions instanceof Arguments) {
+      extractionsPanel.configure((Arguments) extractions);
+    } else {
+      extractionsPanel.clear();
+    }
+  }
+
+  private void init() { // WARNING: called from ctor so must not be overridden (i.e. must be private or final)
+    setLayout(new BorderLayout(0, 5));
+
+    setBorder(makeBorder());
+    add(makeTitlePanel(), BorderLayout.NORTH);
+
+    extractionsPanel = new ArgumentsPanel("Variable / json:/pointer, bytes:offset:length or regex:pattern"); //$NON-NLS-1$
+    add(extractionsPanel, BorderLayout.CENTER);
+    add(new JLabel("Fields are extracted from the response data as received; "
+        + "variables not found are removed."), BorderLayout.SOUTH); //$NON-NLS-1$
+  }
+
+  @Override
+  public void clearGui() {
+    super.clearGui();
+
+    extractionsPanel.clear();
+  }
+}
@@ -44,7 +44,7 @@ public class RSocketTestSampleGui extends AbstractSamplerGui {
 
   private RequestConfigGui requestConfigGui;
 //  private JTextField connectTimeOut;
-//  private JTextField responseTimeOut;
+  private JTextField responseTimeOut;
 
   private final boolean isAJP;
 
@@ -69,7 +69,7 @@ public class RSocketTestSampleGui extends AbstractSamplerGui {
     requestConfigGui.configure(element);
     if (!isAJP) {
 //      connectTimeOut.setText(samplerBase.getPropertyAsString(RSocketSamplerBase.CONNECT_TIMEOUT));
-//      responseTimeOut.setText(samplerBase.getPropertyAsString(RSocketSamplerBase.RESPONSE_TIMEOUT));
+      responseTimeOut.setText(samplerBase.getPropertyAsString(RSocketSamplerBase.RESPONSE_TIMEOUT));
     }
   }
 
@@ -95,7 +95,7 @@ public class RSocketTestSampleGui extends AbstractSamplerGui {
     final RSocketSamplerBase samplerBase = (RSocketSamplerBase) sampler;
     if (!isAJP) {
 //      samplerBase.setProperty(RSocketSamplerBase.CONNECT_TIMEOUT, connectTimeOut.getText());
-//      samplerBase.setProperty(RSocketSamplerBase.RESPONSE_TIMEOUT, responseTimeOut.getText());
+      samplerBase.setProperty(RSocketSamplerBase.RESPONSE_TIMEOUT, responseTimeOut.getText());
     }
     super.configureTestElement(sampler);
   }
@@ -118,6 +118,10 @@ public class RSocketTestSampleGui extends AbstractSamplerGui {
     JPanel wrapper = new JPanel(new BorderLayout());
     wrapper.setBorder(makeBorder());
     wrapper.add(makeTitlePanel(), BorderLayout.CENTER);
+    if (!isAJP) {
+      // requests are cancelled once the timeout elapsed, the connection is set up elsewhere
+      wrapper.add(getResponseTimeOutPanel(), BorderLayout.SOUTH);
+    }
 
     JSplitPane splitPane = new JSplitPane(JSplitPane.VERTICAL_SPLIT, wrapper, requestConfigGui);
     splitPane.setBorder(BorderFactory.createEmptyBorder());
@@ -177,19 +181,19 @@ public class RSocketTestSampleGui extends AbstractSamplerGui {
 //    return panel;
 //  }
 
-//  private JPanel getResponseTimeOutPanel() {
-//    responseTimeOut = new JTextField(10);
-//
-//    JLabel label = new JLabel(
-//        JMeterUtils.getResString("web_server_timeout_response")); // $NON-NLS-1$
-//    label.setLabelFor(responseTimeOut);
-//
-//    JPanel panel = new JPanel(new BorderLayout(5, 0));
-//    panel.add(label, BorderLayout.WEST);
-//    panel.add(responseTimeOut, BorderLayout.CENTER);
-//
-//    return panel;
-//  }
+  private JPanel getResponseTimeOutPanel() {
+    responseTimeOut = new JTextField(10);
+
+    JLabel label = new JLabel(
+        JMeterUtils.getResString("web_server_timeout_response")); // $NON-NLS-1$
+    label.setLabelFor(responseTimeOut);
+
+    JPanel panel = new JPanel(new BorderLayout(5, 0));
+    panel.add(label, BorderLayout.WEST);
+    panel.add(responseTimeOut, BorderLayout.CENTER);
+
+    return panel;
+  }
 
   private JTextField addTextFieldWithLabel(JPanel panel, String labelText) {
     JLabel label = new JLabel(labelText); // $NON-NLS-1$
@@ -225,7 +229,7 @@ public class RSocketTestSampleGui extends AbstractSamplerGui {
     requestConfigGui.clear();
     if (!isAJP) {
 //      connectTimeOut.setText(""); // $NON-NLS-1$
-//      responseTimeOut.setText(""); // $NON-NLS-1$
+      responseTimeOut.setText(""); // $NON-NLS-1$
     }
   }
 
@@ -1,81 +1,402 @@
 package io.rsocket.jmeter.gui;
 
 import static io.rsocket.jmeter.RSocketSetup.VAR_CLIENT;
+import static io.rsocket.jmeter.RSocketSetup.VAR_CONNECTION_METRICS;
+import static io.rsocket.jmeter.RSocketSetup.VAR_DATA_CODEC;
+import static io.rsocket.jmeter.RSocketSetup.VAR_LIMITER;
+import static io.rsocket.jmeter.RSocketSetup.VAR_METADATA_MIME_TYPE;
 
+import io.netty.buffer.ByteBuf;
 import io.netty.buffer.ByteBufAllocator;
-import io.netty.buffer.ByteBufUtil;
 import io.netty.buffer.CompositeByteBuf;
 import io.rsocket.Payload;
 import io.rsocket.core.RSocketClient;
 import io.rsocket.frame.FrameType;
+import io.rsocket.jmeter.ConnectionMetrics;
+import io.rsocket.jmeter.InFlightLimiter;
+import io.rsocket.jmeter.PayloadTemplate;
 import io.rsocket.jmeter.RSocketSamplerBase;
+import io.rsocket.jmeter.ReactiveSampler;
 import io.rsocket.jmeter.ReactiveSampleResult;
+import io.rsocket.jmeter.assertions.ByteBufAssertion;
+import io.rsocket.jmeter.codec.Compression;
+import io.rsocket.jmeter.codec.PayloadCodec;
+import io.rsocket.jmeter.extractor.ResponseExtractor;
+import io.rsocket.jmeter.metrics.RouteMetrics;
 import io.rsocket.metadata.CompositeMetadataCodec;
 import io.rsocket.metadata.RoutingMetadata;
 import io.rsocket.metadata.TaggingMetadataCodec;
 import io.rsocket.metadata.WellKnownMimeType;
 import io.rsocket.util.ByteBufPayload;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.util.Collections;
-import org.apache.jmeter.testelement.property.JMeterProperty;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.function.Predicate;
+import org.apache.jmeter.config.Argument;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
-public class SimpleRSocketSampler extends RSocketSamplerBase {
+public class SimpleRSocketSampler extends RSocketSamplerBase implements ReactiveSampler {
+
+  private transient PayloadTemplate dataTemplate;
+
+  private transient Charset charset;
+
+  // data template converted by the codec of the connection and compressed, compiled on first use
+  private transient PayloadTemplate encodedDataTemplate;
+
+  private transient PayloadCodec encodedCodec;
+
+  private transient Compression encodedCompression;
+
+  private transient String[] metadataTypes;
+
+  private transient PayloadTemplate[] metadataTemplates;
+
+  private transient ByteBufAssertion assertion;
+
+  private transient ResponseExtractor extractor;
+
+  private transient String retryOn;
+
+  private transient Set<String> retryOnNames;
+
+  @Override
+  public void threadStarted() {
+    super.threadStarted();
+    compileTemplates();
+  }
+
+  /**
+   * Compiles data and metadata values once per thread, JMeter has turned values referencing
+   * variables into function properties by now.
+   */
+  private void compileTemplates() {
+    final Arguments metadataArguments = getMetadata();
+    final int count = metadataArguments.getArgumentCount();
+    final String[] metadataTypes = new String[count];
+    final PayloadTemplate[] metadataTemplates = new PayloadTemplate[count];
+    for (int i = 0; i < count; i++) {
+      final Argument argument = metadataArguments.getArgument(i);
+      metadataTypes[i] = argument.getName();
+      metadataTemplates[i] = PayloadTemplate.compile(argument.getProperty(Argument.VALUE));
+    }
+
+    final String contentEncoding = getContentEncoding();
+    this.charset = contentEncoding.isEmpty()
+        ? StandardCharsets.UTF_8
+        : Charset.forName(contentEncoding);
+    this.metadataTypes = metadataTypes;
+    this.metadataTemplates = metadataTemplates;
+    this.dataTemplate = compileData();
+    this.encodedDataTemplate = null;
+    this.encodedCodec = null;
+    this.encodedCompression = null;
+  }
+
+  /**
+   * Binary data is decoded once and shared by all threads, so functions and variables in it are
+   * evaluated once as well.
+   */
+  private PayloadTemplate compileData() {
+    try {
+      if (getSendFileAsPostBody()) {
+        return PayloadTemplate.file(getHTTPFiles()[0].getPath());
+      }
+      switch (getDataFormat()) {
+        case DATA_FORMAT_HEX:
+          return PayloadTemplate.hex(getData());
+        case DATA_FORMAT_BASE64:
+          return PayloadTemplate.base64(getData());
+        default:
+          return PayloadTemplate.compile(getProperty(DATA), charset);
+      }
+    } catch (IOException | IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid data of sampler [" + getName() + "]", e);
+    }
+  }
 
   @Override
   protected ReactiveSampleResult sample(String route, String requestType) {
-    final RSocketClient rSocketClient = (RSocketClient) getThreadContext().getVariables()
-        .getObject(VAR_CLIENT);
+    final ReactiveSampleResult sampleResult =
+        execute(getThreadContext().getVariables(), route, requestType);
+
+    sampleResult.awaitResult();
+    sampleResult.applyExtraction(getThreadContext().getVariables());
+
+    return sampleResult;
+  }
+
+  @Override
+  public ReactiveSampleResult sampleAsync(JMeterVariables variables) {
+    final ReactiveSampleResult sampleResult = execute(variables, getRoute(), getRequestType());
+    sampleResult.setSampleLabel(getName());
+    return sampleResult;
+  }
+
+  /**
+   * @return the data template converted by the given codec and compressed, cached as long as
+   * neither the codec nor the compression change
+   */
+  private PayloadTemplate dataTemplate(PayloadCodec codec, Compression compression) {
+    if (dataTemplate == null) {
+      compileTemplates();
+    }
+    PayloadTemplate encodedDataTemplate = this.encodedDataTemplate;
+    if (encodedDataTemplate == null || encodedCodec != codec
+        || encodedCompression != compression) {
+      try {
+        encodedDataTemplate = dataTemplate.withCodec(codec).withCompression(compression);
+      } catch (UncheckedIOException e) {
+        throw new IllegalArgumentException("Invalid data of sampler [" + getName() + "]", e);
+      }
+      this.encodedDataTemplate = encodedDataTemplate;
+      this.encodedCodec = codec;
+      this.encodedCompression = compression;
+    }
+    return encodedDataTemplate;
+  }
+
+  /**
+   * @return the assertion merged into this sampler by a configuration in scope, compiled again
+   * only when its properties change
+   */
+  private ByteBufAssertion assertion() {
+    try {
+      final ByteBufAssertion assertion = ByteBufAssertion.from(this, this.assertion);
+      this.assertion = assertion;
+      return assertion;
+    } catch (NumberFormatException e) {
+      throw new IllegalArgumentException("Invalid assertion of sampler [" + getName() + "]", e);
+    }
+  }
+
+  /**
+   * @return the extractor merged into this sampler by a configuration in scope, compiled again
+   * only when its properties change
+   */
+  private ResponseExtractor extractor() {
+    try {
+      final ResponseExtractor extractor = ResponseExtractor.from(this, this.extractor);
+      this.extractor = extractor;
+      return extractor;
+    } catch (IllegalArgumentException e) {
+      throw new IllegalArgumentException("Invalid extractor of sampler [" + getName() + "]", e);
+    }
+  }
+
+  /**
+   * Sends the request again on retryable errors, after a jittered exponential backoff. Every
+   * attempt is kept as a sub result of the sample, which ends with the outcome of the last one.
+   */
+  private Publisher<?> withRetries(Publisher<?> request, ReactiveSampleResult sampleResult) {
+    final long maxRetries = getRetryMax();
+    if (maxRetries <= 0) {
+      return request;
+    }
+    final String label = getName();
+    final long attemptTimeout = getRetryAttemptTimeout();
+    final Set<String> retryOn = retryOnNames();
+    final RouteMetrics routeMetrics = sampleResult.getRouteMetrics();
+
+    // the client sends a new request, with a new payload, on every subscription
+    final Flux<Object> attempts = Flux.defer(() -> {
+      final SampleResult attempt = sampleResult.startAttempt(label);
+      Flux<Object> attemptRequest = Flux.from(request);
+      if (attemptTimeout > 0) {
+        // cancels the attempt when its first response is late
+        attemptRequest = attemptRequest.timeout(Mono.delay(Duration.ofMillis(attemptTimeout)));
+      }
+      return attemptRequest
+          .doOnComplete(() -> endAttempt(attempt, null))
+          .doOnError(t -> endAttempt(attempt, t.toString()))
+          .doOnCancel(() -> endAttempt(attempt, "Cancelled"));
+    });
+
+    final Predicate<Throwable> retryable = t -> isRetryable(t, retryOn);
+    final long backoff = getRetryBackoff();
+    final Retry retry = backoff > 0
+        ? Retry.backoff(maxRetries, Duration.ofMillis(backoff))
+            .jitter(Math.max(0, Math.min(1, getRetryJitter())))
+            .filter(retryable)
+            .doBeforeRetry(__ -> recordRetry(routeMetrics))
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure())
+        : Retry.max(maxRetries)
+            .filter(retryable)
+            .doBeforeRetry(__ -> recordRetry(routeMetrics))
+            .onRetryExhaustedThrow((spec, signal) -> signal.failure());
+    return attempts.retryWhen(retry);
+  }
+
+  private static void endAttempt(SampleResult attempt, String failure) {
+    attempt.sampleEnd();
+    attempt.setSuccessful(failure == null);
+    if (failure != null) {
+      attempt.setResponseMessage(failure);
+    }
+  }
+
+  private static void recordRetry(RouteMetrics routeMetrics) {
+    if (routeMetrics != null) {
+      routeMetrics.recordRetry();
+    }
+  }
+
+  private static boolean isRetryable(Throwable error, Set<String> retryOn) {
+    if (retryOn.isEmpty()) {
+      return true;
+    }
+    for (Class<?> type = error.getClass(); type != Object.class; type = type.getSuperclass()) {
+      if (retryOn.contains(type.getSimpleName()) || retryOn.contains(type.getName())) {
+        return true;
+      }
+    }
+    return false;
+  }
+
+  /**
+   * @return the names of the errors to retry, split again only when the property changes
+   */
+  private Set<String> retryOnNames() {
+    final String retryOn = getRetryOn();
+    if (!retryOn.equals(this.retryOn)) {
+      final Set<String> names = new HashSet<>();
+      for (String name : retryOn.split(",")) {
+        if (!name.trim().isEmpty()) {
+          names.add(name.trim());
+        }
+      }
+      this.retryOnNames = names;
+      this.retryOn = retryOn;
+    }
+    return retryOnNames;
+  }
+
+  private ReactiveSampleResult execute(JMeterVariables variables, String route,
+      String requestType) {
+    final RSocketClient rSocketClient = (RSocketClient) variables.getObject(VAR_CLIENT);
+    final ConnectionMetrics connectionMetrics =
+        (ConnectionMetrics) variables.getObject(VAR_CONNECTION_METRICS);
+    final InFlightLimiter limiter = (InFlightLimiter) variables.getObject(VAR_LIMITER);
+    final PayloadCodec dataCodec = (PayloadCodec) variables.getObject(VAR_DATA_CODEC);
+    final String metadataMimeType = variables.get(VAR_METADATA_MIME_TYPE);
 
     final ReactiveSampleResult sampleResult = new ReactiveSampleResult();
+    sampleResult.setRoute(route);
+    sampleResult.setRouteMetrics(getRouteMetrics(route, requestType));
+
+    final Compression compression = getCompression();
+    if (compression == null) {
+      // fails the sample, not the thread, a variable may resolve differently next time
+      sampleResult.setExecutionResult(Mono.error(new IllegalArgumentException(
+          "Unknown compression [" + getPropertyAsString(COMPRESSION) + "] of sampler ["
+              + getName() + "]")));
+      return sampleResult;
+    }
+
+    final PayloadTemplate dataTemplate = dataTemplate(dataCodec, compression);
+    sampleResult.setResponseCodec(dataCodec, charset);
+    sampleResult.setResponseCompression(compression);
+    sampleResult.setAssertion(assertion(), ByteBufAssertion.isRetainBody(this));
+    sampleResult.setExtractor(extractor(), charset);
+    sampleResult.setResponseTimeout(getResponseTimeout());
+    if (hasResponseStream(requestType)) {
+      sampleResult.setStreamLimits(getStreamMaxElements(), getStreamMaxBytes(),
+          getStreamMaxDuration());
+    }
+    sampleResult.setLimiter(limiter);
+    sampleResult.setConnectionMetrics(connectionMetrics);
+    final String[] metadataTypes = this.metadataTypes;
+    final PayloadTemplate[] metadataTemplates = this.metadataTemplates;
+
+    // look variables up now, the payload may be built later on another thread
+    final String[] dataValues = dataTemplate.resolve(variables);
+    final String[][] metadataValues = new String[metadataTemplates.length][];
+    for (int i = 0; i < metadataTemplates.length; i++) {
+      metadataValues[i] = metadataTemplates[i].resolve(variables);
+    }
 
     Mono<Payload> source = Mono.fromCallable(() -> {
-      final String data = getData();
-      final CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
-      CompositeMetadataCodec.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT,
-          WellKnownMimeType.MESSAGE_RSOCKET_ROUTING,
-          TaggingMetadataCodec
-              .createTaggingContent(ByteBufAllocator.DEFAULT, Collections.singleton(getRoute())));
-      for (JMeterProperty metadatum : getMetadata()) {
-        CompositeMetadataCodec
-            .encodeAndAddMetadataWithCompression(metadata, ByteBufAllocator.DEFAULT,
-                metadatum.getName(),
-                ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, metadatum.getStringValue()));
-      }
-      return ByteBufPayload
-          .create(ByteBufUtil.writeUtf8(ByteBufAllocator.DEFAULT, data), metadata);
+      final ByteBuf metadata = encodeMetadata(metadataMimeType, route, metadataTypes,
+          metadataTemplates, metadataValues);
+      final ByteBuf dataByteBuf = dataTemplate.write(ByteBufAllocator.DEFAULT, dataValues);
+      sampleResult.setSentBytes(dataByteBuf.readableBytes() + metadata.readableBytes());
+      return ByteBufPayload.create(dataByteBuf, metadata);
     });
 
-    switch (FrameType.valueOf(getRequestType())) {
+    Publisher<?> request = null;
+    switch (FrameType.valueOf(requestType)) {
       case REQUEST_FNF:
-        sampleResult.setExecutionResult(
-            rSocketClient
-                .fireAndForget(source));
+        request = rSocketClient
+            .fireAndForget(source);
         break;
       case REQUEST_RESPONSE:
-        sampleResult.setExecutionResult(
-            rSocketClient
-                .requestResponse(source));
+        request = rSocketClient
+            .requestResponse(source);
         break;
       case REQUEST_STREAM:
-        sampleResult.setExecutionResult(
-            rSocketClient
-                .requestStream(source));
+        request = rSocketClient
+            .requestStream(source);
         break;
       case REQUEST_CHANNEL:
-        sampleResult.setExecutionResult(
-            rSocketClient
-                .requestChannel(source));
+        request = rSocketClient
+            .requestChannel(source);
         break;
       case METADATA_PUSH:
-        sampleResult.setExecutionResult(
-            rSocketClient
-                .requestChannel(source));
+        request = rSocketClient
+            .requestChannel(source);
         break;
     }
 
-    // TODO: has to be nonblocking
-    sampleResult.getExecutionResult().block();
+    // the client waits for an in-flight slot per attempt, none is held during the backoff
+    request = withRetries(request, sampleResult);
+
+    if (connectionMetrics != null) {
+      connectionMetrics.onRequest();
+      request = Flux.from(request).doOnError(__ -> connectionMetrics.onRequestFailed());
+    }
+    sampleResult.setExecutionResult(request);
 
     return sampleResult;
   }
+
+  /**
+   * Composite metadata carries the route and all metadata entries, routing metadata only the
+   * route; any other metadata MIME type sends the value of the first entry as is.
+   */
+  private static ByteBuf encodeMetadata(String metadataMimeType, String route,
+      String[] metadataTypes, PayloadTemplate[] metadataTemplates, String[][] metadataValues) {
+    if (metadataMimeType == null || metadataMimeType
+        .equals(WellKnownMimeType.MESSAGE_RSOCKET_COMPOSITE_METADATA.getString())) {
+      final CompositeByteBuf metadata = ByteBufAllocator.DEFAULT.compositeBuffer();
+      CompositeMetadataCodec.encodeAndAddMetadata(metadata, ByteBufAllocator.DEFAULT,
+          WellKnownMimeType.MESSAGE_RSOCKET_ROUTING,
+          TaggingMetadataCodec
+              .createTaggingContent(ByteBufAllocator.DEFAULT, Collections.singleton(route)));
+      for (int i = 0; i < metadataTypes.length; i++) {
+        CompositeMetadataCodec
+            .encodeAndAddMetadataWithCompression(metadata, ByteBufAllocator.DEFAULT,
+                metadataTypes[i],
+                metadataTemplates[i].write(ByteBufAllocator.DEFAULT, metadataValues[i]));
+      }
+      return metadata;
+    }
+    if (metadataMimeType.equals(WellKnownMimeType.MESSAGE_RSOCKET_ROUTING.getString())) {
+      return TaggingMetadataCodec
+          .createTaggingContent(ByteBufAllocator.DEFAULT, Collections.singleton(route));
+    }
+    return metadataTemplates.length > 0
+        ? metadataTemplates[0].write(ByteBufAllocator.DEFAULT, metadataValues[0])
+        : ByteBufAllocator.DEFAULT.buffer(0);
+  }
 }
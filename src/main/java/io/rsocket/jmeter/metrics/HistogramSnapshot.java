@@ -0,0 +1,121 @@
+package io.rsocket.jmeter.metrics;
+
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Point in time copy of a {@link LatencyHistogram}. Snapshots share the bucket layout of the
+ * histogram, so they can be merged across routes, intervals and engines and still yield
+ * percentiles.
+ */
+public final class HistogramSnapshot implements Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  final long[] counts = new long[LatencyHistogram.BUCKETS];
+
+  long count;
+
+  long sumNanos;
+
+  public long getCount() {
+    return count;
+  }
+
+  public long getSumNanos() {
+    return sumNanos;
+  }
+
+  /**
+   * Records a single value, for snapshots used as single threaded accumulators.
+   */
+  public void record(long nanos) {
+    counts[LatencyHistogram.bucketIndex(TimeUnit.NANOSECONDS.toMicros(nanos))]++;
+    count++;
+    sumNanos += nanos;
+  }
+
+  /**
+   * Adds the counts of the given snapshot to this one.
+   */
+  public void merge(HistogramSnapshot other) {
+    final long[] counts = this.counts;
+    final long[] otherCounts = other.counts;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] += otherCounts[i];
+    }
+    count += other.count;
+    sumNanos += other.sumNanos;
+  }
+
+  /**
+   * Subtracts an earlier snapshot of the same histogram, leaving only what was recorded in
+   * between.
+   */
+  public void subtract(HistogramSnapshot earlier) {
+    final long[] counts = this.counts;
+    final long[] earlierCounts = earlier.counts;
+    for (int i = 0; i < counts.length; i++) {
+      counts[i] -= earlierCounts[i];
+    }
+    count -= earlier.count;
+    sumNanos -= earlier.sumNanos;
+  }
+
+  public void copyFrom(HistogramSnapshot other) {
+    System.arraycopy(other.counts, 0, counts, 0, counts.length);
+    count = other.count;
+    sumNanos = other.sumNanos;
+  }
+
+  public void reset() {
+    Arrays.fill(counts, 0);
+    count = 0;
+    sumNanos = 0;
+  }
+
+  /**
+   * @param percentile value between 0 and 100
+   * @return upper bound of the bucket holding the given percentile, in nanoseconds, 0 if empty
+   */
+  public long percentileNanos(double percentile) {
+    if (count == 0) {
+      return 0;
+    }
+
+    long rank = (long) Math.ceil(percentile / 100.0 * count);
+    if (rank < 1) {
+      rank = 1;
+    }
+
+    long seen = 0;
+    for (int i = 0; i < counts.length; i++) {
+      seen += counts[i];
+      if (seen >= rank) {
+        return TimeUnit.MICROSECONDS.toNanos(LatencyHistogram.bucketUpperBoundMicros(i));
+      }
+    }
+    return TimeUnit.MICROSECONDS
+        .toNanos(LatencyHistogram.bucketUpperBoundMicros(counts.length - 1));
+  }
+
+  public long meanNanos() {
+    return count == 0 ? 0 : sumNanos / count;
+  }
+
+  /**
+   * @return number of recorded values strictly below the given bound, exact when the bound is a
+   * power of two microseconds
+   */
+  public long countBelowMicros(long boundMicros) {
+    long below = 0;
+    for (int i = 0; i < counts.length; i++) {
+      if (LatencyHistogram.bucketUpperBoundMicros(i) > boundMicros) {
+        break;
+      }
+      below += counts[i];
+    }
+    return below;
+  }
+}
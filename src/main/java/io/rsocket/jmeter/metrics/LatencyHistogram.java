@@ -0,0 +1,103 @@
+package io.rsocket.jmeter.metrics;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free latency histogram with log-linear buckets: values are kept in microseconds, each power
+ * of two is split into {@link #SUB_BUCKETS} linear sub-buckets, which bounds the relative error of
+ * reported percentiles to 12.5%. Every bucket is a {@link LongAdder}, so concurrent recorders do
+ * not contend on a single cache line.
+ * <p>
+ * Bucket boundaries are fixed, which makes histograms of different routes, intervals or engines
+ * trivially mergeable through {@link HistogramSnapshot}.
+ */
+public final class LatencyHistogram {
+
+  static final int SUB_BUCKET_BITS = 3;
+
+  static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+  /**
+   * Highest tracked power of two in microseconds, about 17 minutes; larger values are clamped.
+   */
+  static final int MAX_EXPONENT = 30;
+
+  public static final int BUCKETS = (MAX_EXPONENT - SUB_BUCKET_BITS + 2) * SUB_BUCKETS;
+
+  private final LongAdder[] buckets = new LongAdder[BUCKETS];
+
+  private final LongAdder sumNanos = new LongAdder();
+
+  public LatencyHistogram() {
+    for (int i = 0; i < BUCKETS; i++) {
+      buckets[i] = new LongAdder();
+    }
+  }
+
+  public void recordNanos(long nanos) {
+    buckets[bucketIndex(TimeUnit.NANOSECONDS.toMicros(nanos))].increment();
+    sumNanos.add(nanos);
+  }
+
+  /**
+   * Adds all values of the given snapshot, e.g. to merge histograms shipped by remote engines.
+   */
+  public void add(HistogramSnapshot snapshot) {
+    final long[] counts = snapshot.counts;
+    for (int i = 0; i < BUCKETS; i++) {
+      if (counts[i] != 0) {
+        buckets[i].add(counts[i]);
+      }
+    }
+    sumNanos.add(snapshot.sumNanos);
+  }
+
+  /**
+   * Copies the current bucket counts into the given snapshot without allocating.
+   */
+  public void snapshot(HistogramSnapshot into) {
+    final long[] counts = into.counts;
+    long count = 0;
+    for (int i = 0; i < BUCKETS; i++) {
+      long c = buckets[i].sum();
+      counts[i] = c;
+      count += c;
+    }
+    into.count = count;
+    into.sumNanos = sumNanos.sum();
+  }
+
+  public HistogramSnapshot snapshot() {
+    HistogramSnapshot snapshot = new HistogramSnapshot();
+    snapshot(snapshot);
+    return snapshot;
+  }
+
+  static int bucketIndex(long micros) {
+    if (micros < SUB_BUCKETS) {
+      return micros < 0 ? 0 : (int) micros;
+    }
+
+    int exponent = 63 - Long.numberOfLeadingZeros(micros);
+    if (exponent > MAX_EXPONENT) {
+      return BUCKETS - 1;
+    }
+
+    int subBucket = (int) (micros >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+    return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+  }
+
+  /**
+   * @return exclusive upper bound of the given bucket in microseconds
+   */
+  static long bucketUpperBoundMicros(int index) {
+    if (index < SUB_BUCKETS) {
+      return index + 1;
+    }
+
+    int exponent = index / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+    int subBucket = index % SUB_BUCKETS;
+    return (long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS);
+  }
+}
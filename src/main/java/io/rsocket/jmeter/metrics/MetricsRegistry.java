@@ -0,0 +1,136 @@
+package io.rsocket.jmeter.metrics;
+
+import io.rsocket.jmeter.ConnectionMetrics;
+import io.rsocket.jmeter.InFlightLimiter;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Process wide registry of the live statistics exposed by {@link PrometheusEndpoint}.
+ * <p>
+ * Routes are registered once per (route, request type) pair, typically when a sampler starts,
+ * and receive an index into a plain array so the sampling path never hashes strings. Registering
+ * the same pair again returns the existing slot.
+ * <p>
+ * Route counters are cumulative for the lifetime of the JMeter process, so scrapers see monotonic
+ * counters across consecutive test runs. Connections and gauges are registered by their owners
+ * when a test starts and removed when it ends, as are in-flight limiters.
+ */
+public final class MetricsRegistry {
+
+  private static final MetricsRegistry INSTANCE = new MetricsRegistry();
+
+  private final Map<String, RouteMetrics> routesByKey = new ConcurrentHashMap<>();
+
+  private volatile RouteMetrics[] slots = new RouteMetrics[0];
+
+  private final List<ConnectionMetrics> connections = new CopyOnWriteArrayList<>();
+
+  private final List<InFlightLimiter> limiters = new CopyOnWriteArrayList<>();
+
+  private final Map<String, Gauge> gauges = new ConcurrentHashMap<>();
+
+  private MetricsRegistry() {
+  }
+
+  public static MetricsRegistry getInstance() {
+    return INSTANCE;
+  }
+
+  /**
+   * @return the slot index of the given route, registering it if needed
+   */
+  public int register(String route, String requestType) {
+    return route(route, requestType).getSlot();
+  }
+
+  /**
+   * Slow path for routes that are only known at sample time, e.g. because they contain
+   * variables.
+   */
+  public RouteMetrics route(String route, String requestType) {
+    final String key = requestType + ' ' + route;
+    RouteMetrics metrics = routesByKey.get(key);
+    if (metrics != null) {
+      return metrics;
+    }
+
+    synchronized (this) {
+      metrics = routesByKey.get(key);
+      if (metrics == null) {
+        final RouteMetrics[] slots = this.slots;
+        metrics = new RouteMetrics(slots.length, route, requestType);
+        RouteMetrics[] newSlots = Arrays.copyOf(slots, slots.length + 1);
+        newSlots[slots.length] = metrics;
+        this.slots = newSlots;
+        routesByKey.put(key, metrics);
+      }
+      return metrics;
+    }
+  }
+
+  public RouteMetrics slot(int slot) {
+    return slots[slot];
+  }
+
+  /**
+   * @return all registered routes ordered by slot, the returned array must not be modified
+   */
+  public RouteMetrics[] getRoutes() {
+    return slots;
+  }
+
+  public void register(ConnectionMetrics connection) {
+    connections.add(connection);
+  }
+
+  public void unregister(ConnectionMetrics connection) {
+    connections.remove(connection);
+  }
+
+  public List<ConnectionMetrics> getConnections() {
+    return connections;
+  }
+
+  public void register(InFlightLimiter limiter) {
+    limiters.add(limiter);
+  }
+
+  public void unregister(InFlightLimiter limiter) {
+    limiters.remove(limiter);
+  }
+
+  public List<InFlightLimiter> getLimiters() {
+    return limiters;
+  }
+
+  public void registerGauge(String name, String help, LongSupplier value) {
+    gauges.put(name, new Gauge(name, help, value));
+  }
+
+  public void unregisterGauge(String name) {
+    gauges.remove(name);
+  }
+
+  public Collection<Gauge> getGauges() {
+    return gauges.values();
+  }
+
+  public static final class Gauge {
+
+    final String name;
+    final String help;
+    final LongSupplier value;
+
+    Gauge(String name, String help, LongSupplier value) {
+      this.name = name;
+      this.help = help;
+      this.value = value;
+    }
+  }
+}
@@ -0,0 +1,358 @@
+package io.rsocket.jmeter.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import io.rsocket.jmeter.ConnectionMetrics;
+import io.rsocket.jmeter.InFlightLimiter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Minimal HTTP endpoint serving the content of {@link MetricsRegistry} in the Prometheus text
+ * exposition format on {@code /metrics}.
+ * <p>
+ * Scrapes are served one at a time by the server dispatcher thread and reuse the same text and
+ * byte buffers, so a scrape does not allocate in proportion to the number of routes.
+ */
+public final class PrometheusEndpoint implements HttpHandler, Closeable {
+
+  private static final Logger log = LoggerFactory.getLogger(PrometheusEndpoint.class);
+
+  private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+  /**
+   * Exported bucket bounds, powers of two microseconds from 64us to ~33s. They coincide with
+   * {@link LatencyHistogram} bucket boundaries so the exported counts are exact.
+   */
+  private static final long[] BUCKET_BOUNDS_MICROS = new long[20];
+
+  private static final String[] BUCKET_LABELS = new String[BUCKET_BOUNDS_MICROS.length];
+
+  static {
+    for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+      BUCKET_BOUNDS_MICROS[i] = 1L << (i + 6);
+      BUCKET_LABELS[i] = Double.toString(BUCKET_BOUNDS_MICROS[i] / 1_000_000.0);
+    }
+  }
+
+  private final MetricsRegistry registry;
+
+  private final HttpServer server;
+
+  private final StringBuilder text = new StringBuilder(16 * 1024);
+
+  private final HistogramSnapshot snapshot = new HistogramSnapshot();
+
+  private final CharsetEncoder encoder = StandardCharsets.UTF_8.newEncoder();
+
+  private ByteBuffer bytes = ByteBuffer.allocate(64 * 1024);
+
+  private PrometheusEndpoint(MetricsRegistry registry, HttpServer server) {
+    this.registry = registry;
+    this.server = server;
+  }
+
+  public static PrometheusEndpoint start(int port, MetricsRegistry registry) throws IOException {
+    HttpServer server = HttpServer.create(new InetSocketAddress(port), 0);
+    PrometheusEndpoint endpoint = new PrometheusEndpoint(registry, server);
+    server.createContext("/metrics", endpoint);
+    server.start();
+
+    log.info("Serving Prometheus metrics on port {}", port);
+    return endpoint;
+  }
+
+  @Override
+  public synchronized void handle(HttpExchange exchange) throws IOException {
+    try {
+      final StringBuilder text = this.text;
+      text.setLength(0);
+      writeRoutes(text);
+      writeConnections(text);
+      writeLimiters(text);
+      writeGauges(text);
+
+      final int length = encode(text);
+      exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+      exchange.sendResponseHeaders(200, length);
+      try (OutputStream body = exchange.getResponseBody()) {
+        body.write(bytes.array(), 0, length);
+      }
+    } catch (Throwable t) {
+      log.warn("Failed to serve metrics scrape", t);
+      exchange.sendResponseHeaders(500, -1);
+    } finally {
+      exchange.close();
+    }
+  }
+
+  private void writeRoutes(StringBuilder text) {
+    final RouteMetrics[] routes = registry.getRoutes();
+
+    header(text, "rsocket_requests_total", "counter",
+        "Completed requests per route and request type.");
+    for (RouteMetrics route : routes) {
+      routeSample(text, "rsocket_requests_total", route).append(route.getRequests()).append('\n');
+    }
+
+    header(text, "rsocket_errors_total", "counter",
+        "Failed requests per route and request type.");
+    for (RouteMetrics route : routes) {
+      routeSample(text, "rsocket_errors_total", route).append(route.getErrors()).append('\n');
+    }
+
+    header(text, "rsocket_timeouts_total", "counter",
+        "Requests cancelled by their response timeout per route and request type.");
+    for (RouteMetrics route : routes) {
+      routeSample(text, "rsocket_timeouts_total", route).append(route.getTimeouts()).append('\n');
+    }
+
+    header(text, "rsocket_truncated_total", "counter",
+        "Response streams cancelled after reaching a limit per route and request type.");
+    for (RouteMetrics route : routes) {
+      routeSample(text, "rsocket_truncated_total", route).append(route.getTruncated())
+          .append('\n');
+    }
+
+    header(text, "rsocket_retries_total", "counter",
+        "Requests sent again after a failed attempt per route and request type.");
+    for (RouteMetrics route : routes) {
+      routeSample(text, "rsocket_retries_total", route).append(route.getRetries()).append('\n');
+    }
+
+    header(text, "rsocket_received_bytes_total", "counter",
+        "Response data bytes per route and request type.");
+    for (RouteMetrics route : routes) {
+      routeSample(text, "rsocket_received_bytes_total", route)
+          .append(route.getBytesReceived()).append('\n');
+    }
+
+    header(text, "rsocket_sent_bytes_total", "counter",
+        "Request data and metadata bytes per route and request type.");
+    for (RouteMetrics route : routes) {
+      routeSample(text, "rsocket_sent_bytes_total", route)
+          .append(route.getBytesSent()).append('\n');
+    }
+
+    header(text, "rsocket_decompress_seconds_total", "counter",
+        "Time spent decompressing responses per route and request type.");
+    for (RouteMetrics route : routes) {
+      routeSample(text, "rsocket_decompress_seconds_total", route)
+          .append(route.getDecompressNanos() / 1_000_000_000.0).append('\n');
+    }
+
+    header(text, "rsocket_request_duration_seconds", "histogram",
+        "Duration of the requests that were not truncated per route and request type.");
+    for (RouteMetrics route : routes) {
+      histogram(text, "rsocket_request_duration_seconds", route, route.getLatency());
+    }
+
+    header(text, "rsocket_truncated_duration_seconds", "histogram",
+        "Duration of the truncated response streams per route and request type.");
+    for (RouteMetrics route : routes) {
+      histogram(text, "rsocket_truncated_duration_seconds", route, route.getTruncatedLatency());
+    }
+  }
+
+  private void histogram(StringBuilder text, String name, RouteMetrics route,
+      LatencyHistogram latency) {
+    final HistogramSnapshot snapshot = this.snapshot;
+    latency.snapshot(snapshot);
+    for (int i = 0; i < BUCKET_BOUNDS_MICROS.length; i++) {
+      routeLabels(text.append(name).append("_bucket{"), route)
+          .append(",le=\"").append(BUCKET_LABELS[i]).append("\"} ")
+          .append(snapshot.countBelowMicros(BUCKET_BOUNDS_MICROS[i])).append('\n');
+    }
+    routeLabels(text.append(name).append("_bucket{"), route)
+        .append(",le=\"+Inf\"} ").append(snapshot.getCount()).append('\n');
+    routeSample(text, name + "_sum", route)
+        .append(snapshot.getSumNanos() / 1_000_000_000.0).append('\n');
+    routeSample(text, name + "_count", route)
+        .append(snapshot.getCount()).append('\n');
+  }
+
+  private void writeConnections(StringBuilder text) {
+    header(text, "rsocket_connection_up", "gauge", "1 if the connection is established.");
+    for (ConnectionMetrics connection : registry.getConnections()) {
+      sample(text, "rsocket_connection_up", "connection", connection.getName(),
+          connection.isConnected() ? 1 : 0);
+    }
+
+    header(text, "rsocket_connection_reconnect_attempts_total", "counter",
+        "Reconnect attempts after a failed connect.");
+    for (ConnectionMetrics connection : registry.getConnections()) {
+      sample(text, "rsocket_connection_reconnect_attempts_total", "connection",
+          connection.getName(), connection.getReconnectAttempts());
+    }
+
+    header(text, "rsocket_connection_disconnects_total", "counter",
+        "Connection losses, including deliberate recycles.");
+    for (ConnectionMetrics connection : registry.getConnections()) {
+      sample(text, "rsocket_connection_disconnects_total", "connection", connection.getName(),
+          connection.getDisconnects());
+    }
+
+    header(text, "rsocket_connection_recycles_total", "counter",
+        "Deliberate connection recycles.");
+    for (ConnectionMetrics connection : registry.getConnections()) {
+      sample(text, "rsocket_connection_recycles_total", "connection", connection.getName(),
+          connection.getRecycles());
+    }
+
+    header(text, "rsocket_connection_downtime_seconds_total", "counter",
+        "Time spent without connection after a loss.");
+    for (ConnectionMetrics connection : registry.getConnections()) {
+      text.append("rsocket_connection_downtime_seconds_total{connection=\"");
+      escape(text, connection.getName());
+      text.append("\"} ")
+          .append(connection.getOutageDowntimeNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+          .append('\n');
+    }
+
+    header(text, "rsocket_connection_failed_during_outage_total", "counter",
+        "Requests failed while the connection was down.");
+    for (ConnectionMetrics connection : registry.getConnections()) {
+      sample(text, "rsocket_connection_failed_during_outage_total", "connection",
+          connection.getName(), connection.getFailedDuringOutage());
+    }
+  }
+
+  private void writeLimiters(StringBuilder text) {
+    final List<InFlightLimiter> limiters = registry.getLimiters();
+    if (limiters.isEmpty()) {
+      return;
+    }
+
+    header(text, "rsocket_limiter_in_flight", "gauge", "Requests holding a slot.");
+    for (InFlightLimiter limiter : limiters) {
+      sample(text, "rsocket_limiter_in_flight", "limiter", limiter.getName(),
+          limiter.getInFlight());
+    }
+
+    header(text, "rsocket_limiter_waiting", "gauge", "Requests waiting for a slot.");
+    for (InFlightLimiter limiter : limiters) {
+      sample(text, "rsocket_limiter_waiting", "limiter", limiter.getName(),
+          limiter.getWaiting());
+    }
+
+    header(text, "rsocket_limiter_buffered_bytes", "gauge",
+        "Response bytes buffered by outstanding requests.");
+    for (InFlightLimiter limiter : limiters) {
+      sample(text, "rsocket_limiter_buffered_bytes", "limiter", limiter.getName(),
+          limiter.getBufferedBytes());
+    }
+
+    header(text, "rsocket_limiter_queued_total", "counter", "Requests that had to wait.");
+    for (InFlightLimiter limiter : limiters) {
+      sample(text, "rsocket_limiter_queued_total", "limiter", limiter.getName(),
+          limiter.getQueued());
+    }
+
+    header(text, "rsocket_limiter_queue_seconds_total", "counter",
+        "Time requests spent waiting for a slot.");
+    for (InFlightLimiter limiter : limiters) {
+      text.append("rsocket_limiter_queue_seconds_total{limiter=\"");
+      escape(text, limiter.getName());
+      text.append("\"} ")
+          .append(limiter.getQueueNanos() / (double) TimeUnit.SECONDS.toNanos(1))
+          .append('\n');
+    }
+
+    header(text, "rsocket_limiter_shed_total", "counter", "Requests failed for lack of a slot.");
+    for (InFlightLimiter limiter : limiters) {
+      sample(text, "rsocket_limiter_shed_total", "limiter", limiter.getName(),
+          limiter.getShed());
+    }
+
+    header(text, "rsocket_limiter_dropped_bodies_total", "counter",
+        "Responses whose body was dropped for lack of buffer budget.");
+    for (InFlightLimiter limiter : limiters) {
+      sample(text, "rsocket_limiter_dropped_bodies_total", "limiter", limiter.getName(),
+          limiter.getDroppedBodies());
+    }
+  }
+
+  private void writeGauges(StringBuilder text) {
+    for (MetricsRegistry.Gauge gauge : registry.getGauges()) {
+      header(text, gauge.name, "gauge", gauge.help);
+      text.append(gauge.name).append(' ').append(gauge.value.getAsLong()).append('\n');
+    }
+  }
+
+  private static void header(StringBuilder text, String name, String type, String help) {
+    text.append("# HELP ").append(name).append(' ').append(help).append('\n')
+        .append("# TYPE ").append(name).append(' ').append(type).append('\n');
+  }
+
+  private static StringBuilder routeSample(StringBuilder text, String name, RouteMetrics route) {
+    return routeLabels(text.append(name).append('{'), route).append("} ");
+  }
+
+  private static StringBuilder routeLabels(StringBuilder text, RouteMetrics route) {
+    text.append("route=\"");
+    escape(text, route.getRoute());
+    return text.append("\",type=\"").append(route.getRequestType()).append('"');
+  }
+
+  private static void sample(StringBuilder text, String name, String labelName,
+      String labelValue, long value) {
+    text.append(name).append('{').append(labelName).append("=\"");
+    escape(text, labelValue);
+    text.append("\"} ").append(value).append('\n');
+  }
+
+  private static void escape(StringBuilder text, String value) {
+    for (int i = 0; i < value.length(); i++) {
+      char c = value.charAt(i);
+      switch (c) {
+        case '\\':
+          text.append("\\\\");
+          break;
+        case '"':
+          text.append("\\\"");
+          break;
+        case '\n':
+          text.append("\\n");
+          break;
+        default:
+          text.append(c);
+      }
+    }
+  }
+
+  private int encode(StringBuilder text) {
+    for (; ; ) {
+      final ByteBuffer bytes = this.bytes;
+      final CharBuffer chars = CharBuffer.wrap(text);
+      bytes.clear();
+      encoder.reset();
+
+      CoderResult result = encoder.encode(chars, bytes, true);
+      if (!result.isOverflow()) {
+        result = encoder.flush(bytes);
+      }
+      if (result.isOverflow()) {
+        this.bytes = ByteBuffer.allocate(bytes.capacity() * 2);
+        continue;
+      }
+      return bytes.position();
+    }
+  }
+
+  @Override
+  public void close() {
+    server.stop(0);
+  }
+}
@@ -0,0 +1,170 @@
+package io.rsocket.jmeter.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Striped counters and latency histogram of a single (route, request type) pair.
+ */
+public final class RouteMetrics {
+
+  private final int slot;
+
+  private final String route;
+
+  private final String requestType;
+
+  private final LongAdder requests = new LongAdder();
+
+  private final LongAdder errors = new LongAdder();
+
+  private final LongAdder bytesReceived = new LongAdder();
+
+  private final LongAdder bytesSent = new LongAdder();
+
+  private final LongAdder decompressNanos = new LongAdder();
+
+  private final LongAdder timeouts = new LongAdder();
+
+  private final LongAdder truncated = new LongAdder();
+
+  private final LongAdder retries = new LongAdder();
+
+  private final LatencyHistogram latency = new LatencyHistogram();
+
+  // truncated streams end at a limit instead of their last element, kept apart from the others
+  private final LatencyHistogram truncatedLatency = new LatencyHistogram();
+
+  RouteMetrics(int slot, String route, String requestType) {
+    this.slot = slot;
+    this.route = route;
+    this.requestType = requestType;
+  }
+
+  public void record(long elapsedNanos, boolean successful, long received, long sent) {
+    requests.increment();
+    if (!successful) {
+      errors.increment();
+    }
+    if (received > 0) {
+      bytesReceived.add(received);
+    }
+    if (sent > 0) {
+      bytesSent.add(sent);
+    }
+    latency.recordNanos(elapsedNanos);
+  }
+
+  /**
+   * Records time spent decompressing a response, which is not part of the request duration.
+   */
+  public void recordDecompression(long nanos) {
+    decompressNanos.add(nanos);
+  }
+
+  /**
+   * Records a request cancelled by its response timeout, on top of recording it as an error.
+   */
+  public void recordTimeout() {
+    timeouts.increment();
+  }
+
+  /**
+   * Records a response stream cancelled after reaching a limit, the other requests ran to their
+   * end. Its duration goes to {@link #getTruncatedLatency()} instead of the request latency.
+   */
+  public void recordTruncated(long elapsedNanos, boolean successful, long received, long sent) {
+    requests.increment();
+    truncated.increment();
+    if (!successful) {
+      errors.increment();
+    }
+    if (received > 0) {
+      bytesReceived.add(received);
+    }
+    if (sent > 0) {
+      bytesSent.add(sent);
+    }
+    truncatedLatency.recordNanos(elapsedNanos);
+  }
+
+  /**
+   * Records a request sent again after a failed attempt, requests plus retries is the load the
+   * server actually saw.
+   */
+  public void recordRetry() {
+    retries.increment();
+  }
+
+  /**
+   * Adds already aggregated statistics, e.g. shipped by a remote engine.
+   */
+  public void add(long requests, long errors, long received, long sent,
+      HistogramSnapshot latency) {
+    this.requests.add(requests);
+    this.errors.add(errors);
+    bytesReceived.add(received);
+    bytesSent.add(sent);
+    this.latency.add(latency);
+  }
+
+  /**
+   * @return index of this route in {@link MetricsRegistry#slot(int)}
+   */
+  public int getSlot() {
+    return slot;
+  }
+
+  public String getRoute() {
+    return route;
+  }
+
+  public String getRequestType() {
+    return requestType;
+  }
+
+  public long getRequests() {
+    return requests.sum();
+  }
+
+  public long getErrors() {
+    return errors.sum();
+  }
+
+  public long getBytesReceived() {
+    return bytesReceived.sum();
+  }
+
+  public long getBytesSent() {
+    return bytesSent.sum();
+  }
+
+  public long getTimeouts() {
+    return timeouts.sum();
+  }
+
+  public long getTruncated() {
+    return truncated.sum();
+  }
+
+  public long getRetries() {
+    return retries.sum();
+  }
+
+  public long getDecompressNanos() {
+    return decompressNanos.sum();
+  }
+
+  /**
+   * @return durations of the requests that ran to their end or failed
+   */
+  public LatencyHistogram getLatency() {
+    return latency;
+  }
+
+  /**
+   * @return durations of the truncated response streams
+   */
+  public LatencyHistogram getTruncatedLatency() {
+    return truncatedLatency;
+  }
+}
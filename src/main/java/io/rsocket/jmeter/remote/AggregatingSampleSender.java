@@ -0,0 +1,271 @@
+package io.rsocket.jmeter.remote;
+
+import io.rsocket.jmeter.AggregatedSampleResult;
+import io.rsocket.jmeter.ReactiveSampleResult;
+import io.rsocket.jmeter.metrics.HistogramSnapshot;
+import io.rsocket.jmeter.metrics.LatencyHistogram;
+import io.rsocket.jmeter.metrics.RouteMetrics;
+import java.io.ObjectStreamException;
+import java.io.Serializable;
+import java.rmi.RemoteException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import org.apache.jmeter.samplers.RemoteSampleListener;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.samplers.SampleSender;
+import org.apache.jmeter.util.JMeterUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Sample sender for distributed tests which aggregates samples on the engine and ships one
+ * {@link AggregatedSampleResult} per label and interval to the controller instead of every single
+ * {@link SampleEvent}. Each aggregate carries a mergeable latency histogram, from which
+ * {@link io.rsocket.jmeter.ReactiveResultCollector} on the controller computes global percentiles.
+ * <p>
+ * Enable it on the controller with {@code mode=io.rsocket.jmeter.remote.AggregatingSampleSender}.
+ * The interval is read on the engines from {@code rsocket.aggregation.interval} (milliseconds).
+ */
+public class AggregatingSampleSender implements SampleSender, Serializable {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger log = LoggerFactory.getLogger(AggregatingSampleSender.class);
+
+  private static final String INTERVAL = "rsocket.aggregation.interval"; // $NON-NLS-1$
+
+  private static final long INTERVAL_DEFAULT = 1000; // milliseconds
+
+  private final RemoteSampleListener listener;
+
+  private transient ConcurrentHashMap<String, Accumulator> accumulators;
+
+  private transient ScheduledExecutorService flusher;
+
+  private transient long intervalStart;
+
+  /**
+   * Constructor used by {@code SampleSenderFactory} on the controller.
+   */
+  public AggregatingSampleSender(RemoteSampleListener listener) {
+    this.listener = listener;
+  }
+
+  /**
+   * The sender is created on the controller and deserialized on every engine, which is where the
+   * aggregation state has to live.
+   */
+  private Object readResolve() throws ObjectStreamException {
+    final long interval = JMeterUtils.getPropDefault(INTERVAL, INTERVAL_DEFAULT);
+
+    this.accumulators = new ConcurrentHashMap<>();
+    this.intervalStart = System.currentTimeMillis();
+    this.flusher = Executors.newSingleThreadScheduledExecutor(r -> {
+      Thread thread = new Thread(r, "rsocket-aggregating-sender");
+      thread.setDaemon(true);
+      return thread;
+    });
+    this.flusher.scheduleAtFixedRate(this::flush, interval, interval, TimeUnit.MILLISECONDS);
+
+    log.info("Using aggregating sample sender, interval {} ms", interval);
+    return this;
+  }
+
+  @Override
+  public void sampleOccurred(SampleEvent event) {
+    final SampleResult result = event.getResult();
+    if (result instanceof ReactiveSampleResult
+        && ((ReactiveSampleResult) result).getExecutionResult() != null) {
+      final ReactiveSampleResult reactiveResult = (ReactiveSampleResult) result;
+      reactiveResult.getExecutionResult()
+          .subscribe(
+              __ -> {},
+              t -> {
+                if (reactiveResult.isValid()) {
+                  record(event);
+                }
+              },
+              () -> record(event)
+          );
+      return;
+    }
+
+    record(event);
+  }
+
+  private void record(SampleEvent event) {
+    final SampleResult result = event.getResult();
+    final String label = result.getSampleLabel();
+
+    Accumulator accumulator = accumulators.get(label);
+    if (accumulator == null) {
+      accumulator = accumulators
+          .computeIfAbsent(label, __ -> new Accumulator(label, event.getThreadGroup()));
+    }
+    accumulator.record(result);
+  }
+
+  private synchronized void flush() {
+    final long now = System.currentTimeMillis();
+    final List<SampleEvent> batch = new ArrayList<>(accumulators.size());
+    for (Accumulator accumulator : accumulators.values()) {
+      AggregatedSampleResult result = accumulator.drain(intervalStart, now);
+      if (result != null) {
+        batch.add(new SampleEvent(result, accumulator.threadGroup));
+      }
+    }
+    intervalStart = now;
+
+    if (batch.isEmpty()) {
+      return;
+    }
+    try {
+      listener.processBatch(batch);
+    } catch (RemoteException e) {
+      log.error("Failed to ship {} aggregated samples", batch.size(), e);
+    } catch (Throwable t) {
+      log.error("Unexpected failure while shipping aggregated samples", t);
+    }
+  }
+
+  private void stop() {
+    flusher.shutdown();
+    try {
+      flusher.awaitTermination(5, TimeUnit.SECONDS);
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    flush();
+  }
+
+  @Override
+  public void testEnded() {
+    stop();
+    try {
+      listener.testEnded();
+    } catch (RemoteException e) {
+      log.error("Failed to notify test end", e);
+    }
+  }
+
+  @Override
+  public void testEnded(String host) {
+    stop();
+    try {
+      listener.testEnded(host);
+    } catch (RemoteException e) {
+      log.error("Failed to notify test end of [{}]", host, e);
+    }
+  }
+
+  /**
+   * Cumulative statistics of one label. Recording is lock-free; intervals are obtained by
+   * subtracting the previous cumulative state on the flushing thread, so samples recorded while
+   * flushing simply land in the next interval.
+   */
+  static final class Accumulator {
+
+    final String label;
+    final String threadGroup;
+
+    volatile String route;
+    volatile String requestType;
+
+    final LongAdder count = new LongAdder();
+    final LongAdder errors = new LongAdder();
+    final LongAdder elapsed = new LongAdder();
+    final LongAdder latency = new LongAdder();
+    final LongAdder connectTime = new LongAdder();
+    final LongAdder bytes = new LongAdder();
+    final LongAdder sentBytes = new LongAdder();
+    final LatencyHistogram histogram = new LatencyHistogram();
+
+    // flushing thread only
+    final long[] previous = new long[7];
+    final HistogramSnapshot current = new HistogramSnapshot();
+    final HistogramSnapshot previousHistogram = new HistogramSnapshot();
+
+    Accumulator(String label, String threadGroup) {
+      this.label = label;
+      this.threadGroup = threadGroup;
+    }
+
+    void record(SampleResult result) {
+      count.add(result.getSampleCount());
+      if (!result.isSuccessful()) {
+        errors.increment();
+      }
+      elapsed.add(result.getTime());
+      latency.add(result.getLatency());
+      connectTime.add(result.getConnectTime());
+      bytes.add(result.getBytesAsLong());
+      sentBytes.add(result.getSentBytes());
+
+      if (result instanceof ReactiveSampleResult) {
+        ReactiveSampleResult reactiveResult = (ReactiveSampleResult) result;
+        histogram.recordNanos(reactiveResult.getElapsedNanos());
+
+        RouteMetrics routeMetrics = reactiveResult.getRouteMetrics();
+        if (route == null && routeMetrics != null) {
+          requestType = routeMetrics.getRequestType();
+          route = routeMetrics.getRoute();
+        }
+      } else {
+        histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(result.getTime()));
+      }
+    }
+
+    AggregatedSampleResult drain(long start, long end) {
+      final long[] previous = this.previous;
+      final long count = this.count.sum();
+      if (count == previous[0]) {
+        return null;
+      }
+
+      final long errors = this.errors.sum();
+      final long elapsed = this.elapsed.sum();
+      final long latency = this.latency.sum();
+      final long connectTime = this.connectTime.sum();
+      final long bytes = this.bytes.sum();
+      final long sentBytes = this.sentBytes.sum();
+
+      histogram.snapshot(current);
+      HistogramSnapshot interval = new HistogramSnapshot();
+      interval.copyFrom(current);
+      interval.subtract(previousHistogram);
+      previousHistogram.copyFrom(current);
+
+      AggregatedSampleResult result = new AggregatedSampleResult(label);
+      result.set(
+          (int) (count - previous[0]),
+          (int) (errors - previous[1]),
+          elapsed - previous[2],
+          latency - previous[3],
+          connectTime - previous[4],
+          bytes - previous[5],
+          sentBytes - previous[6],
+          start,
+          end,
+          interval);
+      result.setThreadName(threadGroup);
+      if (route != null) {
+        result.setRoute(route, requestType);
+      }
+
+      previous[0] = count;
+      previous[1] = errors;
+      previous[2] = elapsed;
+      previous[3] = latency;
+      previous[4] = connectTime;
+      previous[5] = bytes;
+      previous[6] = sentBytes;
+      return result;
+    }
+  }
+}
@@ -0,0 +1,154 @@
+package io.rsocket.jmeter.results;
+
+import io.rsocket.jmeter.ReactiveSampleResult;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Converts a file written by {@link BinaryResultWriter} into a standard CSV JTL which can be fed
+ * to the JMeter report generator or any other JTL consumer.
+ * <p>
+ * Usage: {@code java -cp rsocket-jmeter-all.jar io.rsocket.jmeter.results.BinaryResultConverter
+ * results.rjtl [results.jtl]}. Without an output file the JTL is written to stdout.
+ */
+public class BinaryResultConverter {
+
+  private static final String CSV_HEADER =
+      "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,"
+          + "failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect";
+
+  public static void main(String[] args) throws IOException {
+    if (args.length < 1 || args.length > 2) {
+      System.err.println("Usage: BinaryResultConverter <input.rjtl> [output.jtl]");
+      System.exit(1);
+    }
+
+    Writer out = args.length == 2
+        ? Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8)
+        : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.UTF_8));
+    try {
+      long records = convert(args[0], out);
+      System.err.println("Converted " + records + " records");
+    } finally {
+      out.close();
+    }
+  }
+
+  /**
+   * @return number of converted records
+   */
+  public static long convert(String fileName, Writer out) throws IOException {
+    List<String> labels = readLabels(fileName);
+
+    try (FileChannel channel = FileChannel.open(Paths.get(fileName), StandardOpenOption.READ)) {
+      ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+      readFully(channel, buffer, BinaryResultWriter.HEADER_SIZE);
+
+      if (buffer.getInt() != BinaryResultWriter.MAGIC) {
+        throw new IOException("[" + fileName + "] is not a binary result file");
+      }
+      short version = buffer.getShort();
+      if (version != BinaryResultWriter.VERSION) {
+        throw new IOException("Unsupported binary result file version [" + version + "]");
+      }
+      short recordSize = buffer.getShort();
+
+      out.write(CSV_HEADER);
+      out.write('\n');
+
+      long records = 0;
+      StringBuilder line = new StringBuilder(128);
+      for (; ; ) {
+        buffer.compact();
+        if (channel.read(buffer) < 0 && buffer.position() < recordSize) {
+          return records;
+        }
+        buffer.flip();
+
+        while (buffer.remaining() >= recordSize) {
+          int start = buffer.position();
+          long timeStamp = buffer.getLong();
+          long elapsedNanos = buffer.getLong();
+          long latencyNanos = buffer.getLong();
+          long connectNanos = buffer.getLong();
+          long bytes = buffer.getLong();
+          long sentBytes = buffer.getLong();
+          int labelId = buffer.getInt();
+          int status = buffer.getInt();
+          buffer.position(start + recordSize);
+
+          String label = labelId >= 0 && labelId < labels.size() ? labels.get(labelId) : null;
+          if (label == null) {
+            // not in the label file, e.g. lost with a crash or a gap in a hand edited file
+            label = "label-" + labelId;
+          }
+          boolean success = status == BinaryResultWriter.STATUS_OK;
+
+          line.setLength(0);
+          line.append(timeStamp).append(',')
+              .append(TimeUnit.NANOSECONDS.toMillis(elapsedNanos)).append(',');
+          appendQuoted(line, label);
+          line.append(',');
+          if (status == BinaryResultWriter.STATUS_TIMEOUT) {
+            line.append(ReactiveSampleResult.TIMEOUT_RESPONSE_CODE);
+          }
+          line.append(",,,,")
+              .append(success).append(",,")
+              .append(bytes).append(',')
+              .append(sentBytes).append(",0,0,,")
+              .append(TimeUnit.NANOSECONDS.toMillis(latencyNanos)).append(",0,")
+              .append(TimeUnit.NANOSECONDS.toMillis(connectNanos)).append('\n');
+          out.append(line);
+          records++;
+        }
+      }
+    }
+  }
+
+  private static void readFully(FileChannel channel, ByteBuffer buffer, int size)
+      throws IOException {
+    buffer.clear().limit(size);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer) < 0) {
+        throw new IOException("Unexpected end of binary result file");
+      }
+    }
+    buffer.flip();
+  }
+
+  private static List<String> readLabels(String fileName) throws IOException {
+    List<String> labels = new ArrayList<>();
+    for (String line : Files
+        .readAllLines(BinaryResultWriter.labelsPath(fileName), StandardCharsets.UTF_8)) {
+      int tab = line.indexOf('\t');
+      if (tab < 0) {
+        continue;
+      }
+      int id = Integer.parseInt(line.substring(0, tab));
+      while (labels.size() <= id) {
+        labels.add(null);
+      }
+      labels.set(id, line.substring(tab + 1));
+    }
+    return labels;
+  }
+
+  private static void appendQuoted(StringBuilder line, String value) {
+    if (value.indexOf(',') < 0 && value.indexOf('"') < 0) {
+      line.append(value);
+      return;
+    }
+    line.append('"').append(value.replace("\"", "\"\"")).append('"');
+  }
+}
@@ -0,0 +1,162 @@
+package io.rsocket.jmeter.results;
+
+import io.rsocket.jmeter.ReactiveSampleResult;
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import org.apache.jmeter.samplers.SampleResult;
+
+/**
+ * Compact binary alternative to the CSV/XML JTL written by the JMeter result collector.
+ * <p>
+ * The file starts with an 8 bytes header ({@link #MAGIC}, {@link #VERSION}, {@link
+ * #RECORD_SIZE}) followed by fixed-width big-endian records:
+ * <pre>
+ *   long timeStamp     sample start, epoch milliseconds
+ *   long elapsedNanos
+ *   long latencyNanos
+ *   long connectNanos
+ *   long bytes         received bytes
+ *   long sentBytes
+ *   int  labelId       index into the label dictionary
+ *   int  status        {@link #STATUS_OK}, {@link #STATUS_ERROR} or {@link #STATUS_TIMEOUT}
+ * </pre>
+ * Labels are written once to the {@code <file>.labels} dictionary as {@code id<TAB>label} lines.
+ * Use {@link BinaryResultConverter} to turn the file into a standard CSV JTL after the run.
+ * <p>
+ * Thread safe, the result writer threads of all collectors writing the same file share one
+ * writer.
+ */
+public class BinaryResultWriter implements Closeable {
+
+  public static final int MAGIC = 0x52534A42; // "RSJB"
+
+  public static final short VERSION = 1;
+
+  public static final int HEADER_SIZE = 8;
+
+  public static final short RECORD_SIZE = 6 * Long.BYTES + 2 * Integer.BYTES;
+
+  public static final String LABELS_SUFFIX = ".labels"; // $NON-NLS-1$
+
+  public static final int STATUS_OK = 0;
+
+  public static final int STATUS_ERROR = 1;
+
+  public static final int STATUS_TIMEOUT = 2;
+
+  private static final int RECORDS_PER_BUFFER = 1024;
+
+  private final FileChannel channel;
+
+  private final ByteBuffer buffer;
+
+  private final BufferedWriter labelsWriter;
+
+  private final Map<String, Integer> labels = new HashMap<>();
+
+  public BinaryResultWriter(String fileName) throws IOException {
+    Path path = Paths.get(fileName);
+    this.channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+        StandardOpenOption.TRUNCATE_EXISTING);
+    this.labelsWriter = Files.newBufferedWriter(labelsPath(fileName), StandardCharsets.UTF_8);
+    this.buffer = ByteBuffer.allocateDirect(HEADER_SIZE + RECORDS_PER_BUFFER * RECORD_SIZE);
+
+    buffer.putInt(MAGIC)
+        .putShort(VERSION)
+        .putShort(RECORD_SIZE);
+  }
+
+  static Path labelsPath(String fileName) {
+    return Paths.get(fileName + LABELS_SUFFIX);
+  }
+
+  public synchronized void write(SampleResult result) throws IOException {
+    if (buffer.remaining() < RECORD_SIZE) {
+      flushBuffer();
+    }
+
+    final long elapsedNanos;
+    final long latencyNanos;
+    final long connectNanos;
+    if (result instanceof ReactiveSampleResult) {
+      ReactiveSampleResult reactiveResult = (ReactiveSampleResult) result;
+      elapsedNanos = reactiveResult.getElapsedNanos();
+      latencyNanos = reactiveResult.getLatencyNanos();
+      connectNanos = reactiveResult.getConnectNanos();
+    } else {
+      elapsedNanos = TimeUnit.MILLISECONDS.toNanos(result.getTime());
+      latencyNanos = TimeUnit.MILLISECONDS.toNanos(result.getLatency());
+      connectNanos = TimeUnit.MILLISECONDS.toNanos(result.getConnectTime());
+    }
+
+    buffer.putLong(result.getTimeStamp())
+        .putLong(elapsedNanos)
+        .putLong(latencyNanos)
+        .putLong(connectNanos)
+        .putLong(result.getBytesAsLong())
+        .putLong(result.getSentBytes())
+        .putInt(labelId(result.getSampleLabel()))
+        .putInt(status(result));
+  }
+
+  private static int status(SampleResult result) {
+    if (result.isSuccessful()) {
+      return STATUS_OK;
+    }
+    if (result instanceof ReactiveSampleResult && ((ReactiveSampleResult) result).isTimedOut()) {
+      return STATUS_TIMEOUT;
+    }
+    return STATUS_ERROR;
+  }
+
+  private int labelId(String label) throws IOException {
+    Integer id = labels.get(label);
+    if (id == null) {
+      id = labels.size();
+      labels.put(label, id);
+      labelsWriter.write(id + "\t" + label.replace('\n', ' ').replace('\r', ' '));
+      labelsWriter.newLine();
+    }
+    return id;
+  }
+
+  /**
+   * Writes buffered records to the file.
+   */
+  public synchronized void flush() throws IOException {
+    flushBuffer();
+    labelsWriter.flush();
+  }
+
+  private void flushBuffer() throws IOException {
+    buffer.flip();
+    while (buffer.hasRemaining()) {
+      channel.write(buffer);
+    }
+    buffer.clear();
+  }
+
+  @Override
+  public synchronized void close() throws IOException {
+    try {
+      flush();
+    } finally {
+      try {
+        labelsWriter.close();
+      } finally {
+        channel.close();
+      }
+    }
+  }
+}
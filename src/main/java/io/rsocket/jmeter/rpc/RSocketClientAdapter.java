@@ -0,0 +1,63 @@
+package io.rsocket.jmeter.rpc;
+
+import io.rsocket.Payload;
+import io.rsocket.RSocket;
+import io.rsocket.core.RSocketClient;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Presents the shared {@link RSocketClient} of an RSocket Setup as the {@link RSocket} generated
+ * rsocket-rpc clients are built on. Every request goes through the client, so stubs follow
+ * reconnects and connection recycling. Disposing the adapter leaves the connection open, it
+ * belongs to the setup.
+ */
+final class RSocketClientAdapter implements RSocket {
+
+  private final RSocketClient client;
+
+  RSocketClientAdapter(RSocketClient client) {
+    this.client = client;
+  }
+
+  @Override
+  public Mono<Void> fireAndForget(Payload payload) {
+    return client.fireAndForget(Mono.just(payload));
+  }
+
+  @Override
+  public Mono<Payload> requestResponse(Payload payload) {
+    return client.requestResponse(Mono.just(payload));
+  }
+
+  @Override
+  public Flux<Payload> requestStream(Payload payload) {
+    return client.requestStream(Mono.just(payload));
+  }
+
+  @Override
+  public Flux<Payload> requestChannel(Publisher<Payload> payloads) {
+    return client.requestChannel(payloads);
+  }
+
+  @Override
+  public Mono<Void> metadataPush(Payload payload) {
+    return client.metadataPush(Mono.just(payload));
+  }
+
+  @Override
+  public Mono<Void> onClose() {
+    return client.source().flatMap(RSocket::onClose);
+  }
+
+  @Override
+  public void dispose() {
+    // the connection belongs to the RSocket Setup
+  }
+
+  @Override
+  public boolean isDisposed() {
+    return client.isDisposed();
+  }
+}
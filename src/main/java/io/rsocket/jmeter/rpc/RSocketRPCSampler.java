@@ -0,0 +1,231 @@
+package io.rsocket.jmeter.rpc;
+
+import static io.rsocket.jmeter.RSocketSetup.VAR_CLIENT;
+import static io.rsocket.jmeter.RSocketSetup.VAR_CONNECTION_METRICS;
+import static io.rsocket.jmeter.RSocketSetup.VAR_LIMITER;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.protobuf.Message;
+import com.google.protobuf.MessageLite;
+import com.google.protobuf.util.JsonFormat;
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.Unpooled;
+import io.rsocket.Payload;
+import io.rsocket.core.RSocketClient;
+import io.rsocket.frame.FrameType;
+import io.rsocket.jmeter.ConnectionMetrics;
+import io.rsocket.jmeter.InFlightLimiter;
+import io.rsocket.jmeter.PayloadTemplate;
+import io.rsocket.jmeter.ReactiveSampleResult;
+import io.rsocket.jmeter.ReactiveSampler;
+import io.rsocket.jmeter.codec.PayloadCodecs;
+import io.rsocket.jmeter.config.RSocketRPCConfig;
+import io.rsocket.jmeter.metrics.MetricsRegistry;
+import io.rsocket.jmeter.metrics.RouteMetrics;
+import io.rsocket.util.ByteBufPayload;
+import java.lang.invoke.MethodHandle;
+import java.nio.charset.StandardCharsets;
+import org.apache.jmeter.protocol.java.sampler.JavaSampler;
+import org.apache.jmeter.samplers.AbstractSampler;
+import org.apache.jmeter.samplers.Entry;
+import org.apache.jmeter.samplers.SampleResult;
+import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.reactivestreams.Publisher;
+import reactor.core.Exceptions;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Calls a method of a generated rsocket-rpc client over the connection of the RSocket Setup in
+ * scope. The client class and method are bound once per thread, the request message is given as
+ * protobuf JSON: static messages are parsed once, messages with variables are written through a
+ * {@link PayloadTemplate} and parsed per sample.
+ */
+public class RSocketRPCSampler extends AbstractSampler implements ReactiveSampler, ThreadListener {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final JsonFormat.Parser PARSER = JsonFormat.parser();
+
+  private transient RpcMethod rpcMethod;
+
+  private transient RouteMetrics routeMetrics;
+
+  private transient PayloadTemplate messageTemplate;
+
+  // set when the message has no variables
+  private transient Message staticMessage;
+
+  // client the stub below was created for
+  private transient RSocketClient boundClient;
+
+  private transient MethodHandle call;
+
+  public String getClassname() {
+    return getPropertyAsString(JavaSampler.CLASSNAME);
+  }
+
+  public String getMethodName() {
+    return getPropertyAsString(RSocketRPCConfig.METHOD);
+  }
+
+  /**
+   * Binding waits for the first sample, the class and method may come from a config element
+   * merged into the sampler only then.
+   */
+  @Override
+  public void threadStarted() {
+    this.rpcMethod = null;
+  }
+
+  @Override
+  public void threadFinished() {
+  }
+
+  private void bind() {
+    final RpcMethod rpcMethod;
+    try {
+      rpcMethod = RpcMethod.bind(getClassname(), getMethodName());
+    } catch (ReflectiveOperationException | LinkageError e) {
+      throw new IllegalArgumentException("Cannot bind [" + getClassname() + "."
+          + getMethodName() + "] of sampler [" + getName() + "]", e);
+    }
+
+    final PayloadTemplate messageTemplate =
+        PayloadTemplate.compile(getProperty(RSocketRPCConfig.MESSAGE));
+    this.staticMessage = messageTemplate.isStatic()
+        ? parse(rpcMethod, getPropertyAsString(RSocketRPCConfig.MESSAGE))
+        : null;
+    this.messageTemplate = messageTemplate;
+    this.routeMetrics = MetricsRegistry.getInstance()
+        .route(rpcMethod.getRoute(), rpcMethod.getRequestType().name());
+    this.boundClient = null;
+    this.rpcMethod = rpcMethod;
+  }
+
+  private static Message parse(RpcMethod rpcMethod, String json) {
+    try {
+      final Message.Builder builder = rpcMethod.newBuilder();
+      if (!json.trim().isEmpty()) {
+        PARSER.merge(json, builder);
+      }
+      return builder.build();
+    } catch (InvalidProtocolBufferException e) {
+      throw new IllegalArgumentException(
+          "Invalid " + rpcMethod.getRequestClass().getSimpleName() + " message", e);
+    } catch (Throwable t) {
+      throw Exceptions.propagate(t);
+    }
+  }
+
+  /**
+   * @return the method bound to a stub of the given client, created again when the client
+   * changes, e.g. in a new test
+   */
+  private MethodHandle call(RSocketClient client) {
+    MethodHandle call = this.call;
+    if (call == null || boundClient != client) {
+      try {
+        call = rpcMethod.bindTo(rpcMethod.createClient(new RSocketClientAdapter(client)));
+      } catch (Throwable t) {
+        throw Exceptions.propagate(t);
+      }
+      this.call = call;
+      this.boundClient = client;
+    }
+    return call;
+  }
+
+  @Override
+  public SampleResult sample(Entry e) {
+    final ReactiveSampleResult sampleResult;
+    try {
+      sampleResult = sampleAsync(getThreadContext().getVariables());
+    } catch (IllegalArgumentException ex) {
+      // e.g. a class or method that cannot be bound, fails the sample instead of the thread
+      final SampleResult failed = new SampleResult();
+      failed.setSampleLabel(getName());
+      failed.sampleStart();
+      failed.setResponseMessage(ex.getMessage());
+      failed.setSuccessful(false);
+      failed.sampleEnd();
+      return failed;
+    }
+
+    sampleResult.awaitResult();
+
+    return sampleResult;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public ReactiveSampleResult sampleAsync(JMeterVariables variables) {
+    if (rpcMethod == null) {
+      bind();
+    }
+    final RpcMethod rpcMethod = this.rpcMethod;
+    final RSocketClient rSocketClient = (RSocketClient) variables.getObject(VAR_CLIENT);
+    final ConnectionMetrics connectionMetrics =
+        (ConnectionMetrics) variables.getObject(VAR_CONNECTION_METRICS);
+    final MethodHandle call = call(rSocketClient);
+
+    final ReactiveSampleResult sampleResult = new ReactiveSampleResult();
+    sampleResult.setSampleLabel(getName());
+    sampleResult.setRoute(rpcMethod.getRoute());
+    sampleResult.setRouteMetrics(routeMetrics);
+    sampleResult.setConnectionMetrics(connectionMetrics);
+    sampleResult.setLimiter((InFlightLimiter) variables.getObject(VAR_LIMITER));
+    sampleResult.setResponseCodec(PayloadCodecs.forMimeType("application/protobuf"),
+        StandardCharsets.UTF_8);
+
+    // look variables up now, the message may be built later on another thread
+    final Message staticMessage = this.staticMessage;
+    final PayloadTemplate messageTemplate = this.messageTemplate;
+    final String[] values = staticMessage == null
+        ? messageTemplate.resolve(variables)
+        : null;
+
+    Publisher<?> request = Flux.defer(() -> {
+      final Message message;
+      if (staticMessage != null) {
+        message = staticMessage;
+      } else {
+        final ByteBuf json = messageTemplate.write(ByteBufAllocator.DEFAULT, values);
+        try {
+          message = parse(rpcMethod, json.toString(StandardCharsets.UTF_8));
+        } finally {
+          json.release();
+        }
+      }
+      sampleResult.setSentBytes(message.getSerializedSize());
+
+      final Object argument = rpcMethod.getRequestType() == FrameType.REQUEST_CHANNEL
+          ? Mono.just(message)
+          : message;
+      try {
+        return (Publisher<Object>) call.invokeExact(argument);
+      } catch (Throwable t) {
+        throw Exceptions.propagate(t);
+      }
+    }).map(RSocketRPCSampler::toPayload);
+
+    if (connectionMetrics != null) {
+      connectionMetrics.onRequest();
+      request = Flux.from(request).doOnError(__ -> connectionMetrics.onRequestFailed());
+    }
+    sampleResult.setExecutionResult(request);
+
+    return sampleResult;
+  }
+
+  /**
+   * Generated clients hand out parsed messages, serialize them again for the sample result.
+   */
+  private static Payload toPayload(Object response) {
+    return ByteBufPayload.create(response instanceof MessageLite
+        ? Unpooled.wrappedBuffer(((MessageLite) response).toByteArray())
+        : Unpooled.EMPTY_BUFFER);
+  }
+}
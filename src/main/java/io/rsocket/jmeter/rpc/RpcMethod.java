@@ -0,0 +1,226 @@
+package io.rsocket.jmeter.rpc;
+
+import com.google.protobuf.Message;
+import io.rsocket.RSocket;
+import io.rsocket.frame.FrameType;
+import java.lang.annotation.Annotation;
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.util.ArrayList;
+import java.util.List;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+
+/**
+ * A method of a generated rsocket-rpc client, looked up by reflection once and invoked through
+ * {@link MethodHandle}s afterwards, so sampling does no reflective calls.
+ * <p>
+ * Generated clients are recognized by their {@value #GENERATED} annotation of type {@code
+ * CLIENT}, only by name, so the plugin does not depend on a particular rsocket-rpc version.
+ */
+public final class RpcMethod {
+
+  static final String GENERATED = "io.rsocket.rpc.annotations.internal.Generated";
+
+  private static final MethodHandles.Lookup LOOKUP = MethodHandles.publicLookup();
+
+  private final String route;
+
+  private final FrameType requestType;
+
+  private final Class<?> requestClass;
+
+  // () -> Message.Builder
+  private final MethodHandle newBuilder;
+
+  // (RSocket) -> client
+  private final MethodHandle clientFactory;
+
+  // (client, Object) -> Publisher
+  private final MethodHandle invoker;
+
+  private RpcMethod(String route, FrameType requestType, Class<?> requestClass,
+      MethodHandle newBuilder, MethodHandle clientFactory, MethodHandle invoker) {
+    this.route = route;
+    this.requestType = requestType;
+    this.requestClass = requestClass;
+    this.newBuilder = newBuilder;
+    this.clientFactory = clientFactory;
+    this.invoker = invoker;
+  }
+
+  /**
+   * @param className  generated client class
+   * @param methodName service method, taking the request message or a publisher of them
+   */
+  public static RpcMethod bind(String className, String methodName)
+      throws ReflectiveOperationException {
+    final Class<?> clientClass =
+        Class.forName(className, true, Thread.currentThread().getContextClassLoader());
+    final Method method = findMethod(clientClass, methodName);
+
+    final boolean channel = Publisher.class.isAssignableFrom(method.getParameterTypes()[0]);
+    final Class<?> requestClass = channel
+        ? typeArgument(method.getGenericParameterTypes()[0])
+        : method.getParameterTypes()[0];
+    if (!Message.class.isAssignableFrom(requestClass)) {
+      throw new NoSuchMethodException(
+          "Request of " + className + "." + methodName + " is not a protobuf message");
+    }
+
+    final FrameType requestType;
+    if (channel) {
+      requestType = FrameType.REQUEST_CHANNEL;
+    } else if (Flux.class.isAssignableFrom(method.getReturnType())) {
+      requestType = FrameType.REQUEST_STREAM;
+    } else if (typeArgument(method.getGenericReturnType()) == Void.class) {
+      requestType = FrameType.REQUEST_FNF;
+    } else {
+      requestType = FrameType.REQUEST_RESPONSE;
+    }
+
+    final MethodHandle newBuilder = LOOKUP
+        .findStatic(requestClass, "newBuilder",
+            MethodType.methodType(requestClass.getMethod("newBuilder").getReturnType()))
+        .asType(MethodType.methodType(Message.Builder.class));
+    final MethodHandle clientFactory = LOOKUP
+        .findConstructor(clientClass, MethodType.methodType(void.class, RSocket.class))
+        .asType(MethodType.methodType(Object.class, RSocket.class));
+    final MethodHandle invoker = LOOKUP.unreflect(method)
+        .asType(MethodType.methodType(Publisher.class, Object.class, Object.class));
+
+    return new RpcMethod(serviceName(clientClass) + "." + methodName, requestType, requestClass,
+        newBuilder, clientFactory, invoker);
+  }
+
+  private static Method findMethod(Class<?> clientClass, String methodName)
+      throws NoSuchMethodException {
+    for (Method method : clientClass.getMethods()) {
+      // the overloads taking metadata as well are not used
+      if (method.getName().equals(methodName) && method.getParameterCount() == 1
+          && Publisher.class.isAssignableFrom(method.getReturnType())) {
+        return method;
+      }
+    }
+    throw new NoSuchMethodException(clientClass.getName() + "." + methodName);
+  }
+
+  private static Class<?> typeArgument(Type type) {
+    if (type instanceof ParameterizedType) {
+      final Type argument = ((ParameterizedType) type).getActualTypeArguments()[0];
+      if (argument instanceof Class) {
+        return (Class<?>) argument;
+      }
+      if (argument instanceof ParameterizedType) {
+        return (Class<?>) ((ParameterizedType) argument).getRawType();
+      }
+    }
+    return Object.class;
+  }
+
+  /**
+   * @return the annotation marking the given class as a generated rsocket-rpc client, or null
+   */
+  static Annotation clientAnnotation(Class<?> type) {
+    for (Annotation annotation : type.getAnnotations()) {
+      if (annotation.annotationType().getName().equals(GENERATED)) {
+        try {
+          final Object resourceType = annotation.annotationType().getMethod("type")
+              .invoke(annotation);
+          return "CLIENT".equals(String.valueOf(resourceType)) ? annotation : null;
+        } catch (ReflectiveOperationException e) {
+          return null;
+        }
+      }
+    }
+    return null;
+  }
+
+  /**
+   * @return the service methods of the given generated client, for the GUI
+   */
+  public static List<String> methodNames(String className) throws ClassNotFoundException {
+    final Class<?> clientClass =
+        Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+    final List<String> names = new ArrayList<>();
+    for (Method method : clientClass.getMethods()) {
+      if (method.getDeclaringClass() != Object.class && method.getParameterCount() == 1
+          && Publisher.class.isAssignableFrom(method.getReturnType())
+          && !names.contains(method.getName())) {
+        names.add(method.getName());
+      }
+    }
+    return names;
+  }
+
+  /**
+   * @return whether the given class is a generated rsocket-rpc client, for the GUI
+   */
+  public static boolean isClient(String className) {
+    try {
+      final Class<?> type =
+          Class.forName(className, false, Thread.currentThread().getContextClassLoader());
+      return !type.getSimpleName().startsWith("Blocking") && clientAnnotation(type) != null;
+    } catch (ClassNotFoundException | LinkageError e) {
+      return false;
+    }
+  }
+
+  /**
+   * Prefers the {@code SERVICE} constant generated into the service interface, which is the name
+   * rsocket-rpc routes by.
+   */
+  private static String serviceName(Class<?> clientClass) {
+    final Annotation annotation = clientAnnotation(clientClass);
+    if (annotation != null) {
+      try {
+        final Class<?> idlClass =
+            (Class<?>) annotation.annotationType().getMethod("idlClass").invoke(annotation);
+        final Field service = idlClass.getField("SERVICE");
+        if (Modifier.isStatic(service.getModifiers())) {
+          return String.valueOf(service.get(null));
+        }
+      } catch (ReflectiveOperationException ignored) {
+        // fall back to the client name
+      }
+    }
+    return clientClass.getSimpleName();
+  }
+
+  public String getRoute() {
+    return route;
+  }
+
+  public FrameType getRequestType() {
+    return requestType;
+  }
+
+  public Class<?> getRequestClass() {
+    return requestClass;
+  }
+
+  public Message.Builder newBuilder() throws Throwable {
+    return (Message.Builder) newBuilder.invokeExact();
+  }
+
+  /**
+   * @return a new generated client sending its requests through the given RSocket
+   */
+  public Object createClient(RSocket rSocket) throws Throwable {
+    return clientFactory.invokeExact(rSocket);
+  }
+
+  /**
+   * @return a handle taking the request, a message or a publisher of messages, and returning the
+   * response publisher of the given client
+   */
+  public MethodHandle bindTo(Object client) {
+    return invoker.bindTo(client);
+  }
+}
@@ -0,0 +1,39 @@
+package io.rsocket.jmeter.threads;
+
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.ThreadGroup;
+
+/**
+ * Properties shared by the thread groups of this plugin, stored under the same names as those of
+ * JMeter's {@link ThreadGroup}.
+ */
+public abstract class AbstractUserGroup extends AbstractThreadGroup {
+
+  private static final long serialVersionUID = 1L;
+
+  public static final String RAMP_TIME = ThreadGroup.RAMP_TIME;
+
+  public static final String DURATION = ThreadGroup.DURATION;
+
+  public void setRampUp(int rampUp) {
+    setProperty(RAMP_TIME, rampUp);
+  }
+
+  /**
+   * @return ramp up period in seconds
+   */
+  public int getRampUp() {
+    return getPropertyAsInt(RAMP_TIME, 0);
+  }
+
+  public void setDuration(long duration) {
+    setProperty(DURATION, duration);
+  }
+
+  /**
+   * @return test duration in seconds, 0 to run until the loop controller is done
+   */
+  public long getDuration() {
+    return getPropertyAsLong(DURATION, 0);
+  }
+}
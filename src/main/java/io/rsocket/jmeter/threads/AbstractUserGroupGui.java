@@ -0,0 +1,118 @@
+package io.rsocket.jmeter.threads;
+
+import java.awt.BorderLayout;
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.control.gui.LoopControlPanel;
+import org.apache.jmeter.gui.util.VerticalPanel;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.AbstractThreadGroup;
+import org.apache.jmeter.threads.gui.AbstractThreadGroupGui;
+
+/**
+ * Common GUI of the thread groups extending {@link AbstractUserGroup}.
+ */
+public abstract class AbstractUserGroupGui extends AbstractThreadGroupGui {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final String DEFAULT_THREADS = "1";
+  private static final String DEFAULT_RAMP_UP = "1";
+  private static final String DEFAULT_DURATION = "0";
+
+  private LoopControlPanel loopPanel;
+  private JTextField threadsField;
+  private JTextField rampUpField;
+  private JTextField durationField;
+
+  protected AbstractUserGroupGui() {
+    init();
+  }
+
+  @Override
+  public String getLabelResource() {
+    return "threadgroup"; // $NON-NLS-1$
+  }
+
+  @Override
+  public void modifyTestElement(TestElement el) {
+    super.configureTestElement(el);
+
+    AbstractUserGroup threadGroup = (AbstractUserGroup) el;
+
+    threadGroup.setSamplerController((LoopController) loopPanel.createTestElement());
+    try {
+      threadGroup.setNumThreads(Integer.parseInt(threadsField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      threadGroup.setRampUp(Integer.parseInt(rampUpField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      threadGroup.setDuration(Long.parseLong(durationField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+  }
+
+  @Override
+  public void configure(TestElement el) {
+    super.configure(el);
+
+    AbstractUserGroup threadGroup = (AbstractUserGroup) el;
+
+    threadsField.setText(String.valueOf(threadGroup.getNumThreads()));
+    rampUpField.setText(String.valueOf(threadGroup.getRampUp()));
+    durationField.setText(String.valueOf(threadGroup.getDuration()));
+    loopPanel.configure(
+        (TestElement) threadGroup.getProperty(AbstractThreadGroup.MAIN_CONTROLLER).getObjectValue());
+  }
+
+  private void init() { // WARNING: called from ctor so must not be overridden (i.e. must be private or final)
+    VerticalPanel threadPropsPanel = new VerticalPanel();
+    threadPropsPanel.setBorder(BorderFactory.createTitledBorder("Virtual User Properties"));
+
+    Box threadsPanel = Box.createHorizontalBox();
+    threadsPanel.add(new JLabel("Number of Virtual Users"));//$NON-NLS-1$
+    threadsField = new JTextField(6);
+    threadsField.setText(DEFAULT_THREADS);
+    threadsPanel.add(threadsField);
+
+    Box rampUpPanel = Box.createHorizontalBox();
+    rampUpPanel.add(new JLabel("Ramp-up Period (s)"));//$NON-NLS-1$
+    rampUpField = new JTextField(6);
+    rampUpField.setText(DEFAULT_RAMP_UP);
+    rampUpPanel.add(rampUpField);
+
+    Box durationPanel = Box.createHorizontalBox();
+    durationPanel.add(new JLabel("Duration (s), 0 for unlimited"));//$NON-NLS-1$
+    durationField = new JTextField(6);
+    durationField.setText(DEFAULT_DURATION);
+    durationPanel.add(durationField);
+
+    loopPanel = new LoopControlPanel(false);
+    LoopController looper = (LoopController) loopPanel.createTestElement();
+    looper.setLoops(1);
+    loopPanel.configure(looper);
+
+    threadPropsPanel.add(threadsPanel);
+    threadPropsPanel.add(rampUpPanel);
+    threadPropsPanel.add(loopPanel);
+    threadPropsPanel.add(durationPanel);
+
+    add(threadPropsPanel, BorderLayout.CENTER);
+  }
+
+  @Override
+  public void clearGui() {
+    super.clearGui();
+
+    threadsField.setText(DEFAULT_THREADS);
+    rampUpField.setText(DEFAULT_RAMP_UP);
+    durationField.setText(DEFAULT_DURATION);
+    loopPanel.clearGui();
+  }
+}
@@ -0,0 +1,349 @@
+package io.rsocket.jmeter.threads;
+
+import io.rsocket.jmeter.RSocketSetup;
+import io.rsocket.jmeter.ReactiveSampleResult;
+import io.rsocket.jmeter.ReactiveSampler;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jmeter.control.Controller;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.engine.TreeCloner;
+import org.apache.jmeter.samplers.SampleEvent;
+import org.apache.jmeter.samplers.SampleListener;
+import org.apache.jmeter.samplers.Sampler;
+import org.apache.jmeter.testelement.ThreadListener;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterThread;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.apache.jmeter.threads.ListenerNotifier;
+import org.apache.jmeter.threads.SamplePackage;
+import org.apache.jmeter.threads.TestCompiler;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.HashTree;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.apache.jorphan.collections.SearchByClass;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.Disposables;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Thread group running its virtual users as Reactor pipelines instead of threads. Every user
+ * loops over the {@link ReactiveSampler}s of the group in tree order and sends the next request
+ * once the previous response has terminated. Waiting for a response occupies no thread, so a few
+ * event loops drive any number of users.
+ * <p>
+ * The group understands a subset of a regular test plan: the first {@link RSocketSetup} provides
+ * the connection, {@link ReactiveSampler}s are executed with controllers flattened and the config
+ * elements in their scope merged, and sample listeners are notified of every completed sample.
+ * Timers, pre and post processors and assertions are not applied.
+ * <p>
+ * Like the threads of a regular group, every user runs its own clone of the group's tree, so the
+ * per-thread state of samplers is never shared between users on different event loops.
+ */
+public class ReactiveThreadGroup extends AbstractUserGroup {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger log = LoggerFactory.getLogger(ReactiveThreadGroup.class);
+
+  private static final long WAIT_TO_DIE =
+      JMeterUtils.getPropDefault("jmeterengine.threadstop.wait", 5 * 1000); // $NON-NLS-1$
+
+  final transient AtomicInteger activeUsers = new AtomicInteger();
+
+  transient volatile boolean running;
+
+  transient Disposable.Composite users;
+
+  private transient ListenerNotifier notifier;
+
+  private transient List<SampleListener> listeners;
+
+  private transient ListedHashTree threadGroupTree;
+
+  @Override
+  public void start(int groupNumber, ListenerNotifier notifier, ListedHashTree threadGroupTree,
+      StandardJMeterEngine engine) {
+    final RSocketSetup setup = prepare(notifier, threadGroupTree);
+    if (setup == null) {
+      return;
+    }
+    final int numUsers = getNumThreads();
+    final long rampUp = getRampUp() * 1000L;
+    final long duration = getDuration();
+    final int loops = getLoops();
+    final Mono<Long> end = duration > 0
+        ? Mono.delay(Duration.ofSeconds(duration)).cache()
+        : Mono.never();
+
+    log.info("Starting {} reactive users of [{}], {} loops", numUsers, getName(), loops);
+
+    for (int i = 0; running && i < numUsers; i++) {
+      final VirtualUser user = new VirtualUser(i, getName() + " " + groupNumber + "-" + (i + 1));
+
+      Flux<Void> iterations = Flux.defer(() -> iterate(user));
+      if (loops < 0) {
+        iterations = iterations.repeat();
+      } else if (loops > 1) {
+        iterations = iterations.repeat(loops - 1);
+      }
+
+      activeUsers.incrementAndGet();
+      users.add(Mono.delay(Duration.ofMillis(rampUp * i / numUsers))
+          .doOnNext(__ -> {
+            initialize(user, setup);
+            user.started = true;
+            JMeterContextService.incrNumberOfThreads();
+          })
+          .thenMany(iterations)
+          .takeUntilOther(end)
+          .doFinally(__ -> {
+            finish(user);
+            userFinished(user);
+          })
+          .subscribe(null, t -> log.error("User [{}] failed", user.name, t)));
+    }
+  }
+
+  /**
+   * Looks up the connection and listeners of the group.
+   *
+   * @return the setup providing the connection, null if the group cannot start
+   */
+  RSocketSetup prepare(ListenerNotifier notifier, ListedHashTree threadGroupTree) {
+    this.running = true;
+    this.notifier = notifier;
+    this.listeners = find(threadGroupTree, SampleListener.class);
+    this.users = Disposables.composite();
+
+    final List<RSocketSetup> setups = find(threadGroupTree, RSocketSetup.class);
+    if (setups.isEmpty()) {
+      log.error("Thread group [{}] has no RSocket Setup, not starting any user", getName());
+      return null;
+    }
+
+    if (find(threadGroupTree, ReactiveSampler.class).isEmpty()) {
+      log.warn("Thread group [{}] has no reactive samplers, not starting any user", getName());
+      return null;
+    }
+    this.threadGroupTree = threadGroupTree;
+    return setups.get(0);
+  }
+
+  /**
+   * Gives the user its own clone of the group's tree, compiled so the config elements in scope
+   * of a sampler are merged into it per sample, and starts its samplers.
+   */
+  void initialize(VirtualUser user, RSocketSetup setup) {
+    final TreeCloner cloner = new TreeCloner(true);
+    threadGroupTree.traverse(cloner);
+    final ListedHashTree tree = cloner.getClonedTree();
+    final TestCompiler compiler = new TestCompiler(tree);
+    tree.traverse(compiler);
+
+    user.compiler = compiler;
+    user.samplers = find(tree, ReactiveSampler.class).toArray(new ReactiveSampler[0]);
+    setup.putVariables(user.variables);
+
+    setUpContext(user);
+    for (ReactiveSampler sampler : user.samplers) {
+      if (sampler instanceof ThreadListener) {
+        ((ThreadListener) sampler).threadStarted();
+      }
+    }
+  }
+
+  /**
+   * Ends the samplers of the user, like a regular thread does when it exits.
+   */
+  void finish(VirtualUser user) {
+    final ReactiveSampler[] samplers = user.samplers;
+    if (samplers == null) {
+      return;
+    }
+    user.samplers = null;
+    setUpContext(user);
+    for (ReactiveSampler sampler : samplers) {
+      if (sampler instanceof ThreadListener) {
+        try {
+          ((ThreadListener) sampler).threadFinished();
+        } catch (Throwable t) {
+          log.warn("Sampler [{}] of user [{}] failed to finish", sampler, user.name, t);
+        }
+      }
+    }
+  }
+
+  private void setUpContext(VirtualUser user) {
+    final JMeterContext context = JMeterContextService.getContext();
+    context.setVariables(user.variables);
+    context.setThreadNum(user.number);
+    context.setThreadGroup(this);
+  }
+
+  private int getLoops() {
+    final Controller controller = getSamplerController();
+    return controller instanceof LoopController ? ((LoopController) controller).getLoops() : 1;
+  }
+
+  Flux<Void> iterate(VirtualUser user) {
+    final ReactiveSampler[] samplers = user.samplers;
+    if (!running || samplers == null) {
+      return Flux.empty();
+    }
+    user.variables.incIteration();
+    return Flux.fromArray(samplers).concatMap(sampler -> sample(user, sampler), 1);
+  }
+
+  private Mono<Void> sample(VirtualUser user, ReactiveSampler sampler) {
+    if (!running) {
+      return Mono.empty();
+    }
+
+    // sampleAsync resolves properties before it returns, on this event loop, whose context is
+    // set up for the user; the config elements stay merged until then
+    setUpContext(user);
+    final SamplePackage pack = user.compiler.configureSampler((Sampler) sampler);
+    JMeterContextService.getContext().setCurrentSampler((Sampler) sampler);
+
+    final ReactiveSampleResult result;
+    try {
+      result = sampler.sampleAsync(user.variables);
+    } catch (Throwable t) {
+      log.error("Sampler [{}] of user [{}] failed", sampler, user.name, t);
+      return Mono.empty();
+    } finally {
+      user.compiler.done(pack);
+    }
+    result.setThreadName(user.name);
+
+    return result.getExecutionResult()
+        .onErrorResume(__ -> Mono.empty())
+        .doOnCancel(result::cancel)
+        .then(Mono.fromRunnable(() -> sampleOccurred(user, result)));
+  }
+
+  private void sampleOccurred(VirtualUser user, ReactiveSampleResult result) {
+    // before the next sampler of the user, which may reference the variables
+    result.applyExtraction(user.variables);
+    // the group consumed the execution result, listeners see an already completed sample
+    result.detachExecutionResult();
+    result.setAllThreads(JMeterContextService.getNumberOfThreads());
+    result.setGroupThreads(activeUsers.get());
+
+    notifier.notifyListeners(new SampleEvent(result, getName(), user.variables), listeners);
+  }
+
+  void userFinished(VirtualUser user) {
+    if (user.started) {
+      JMeterContextService.decrNumberOfThreads();
+    }
+    if (activeUsers.decrementAndGet() == 0) {
+      synchronized (activeUsers) {
+        activeUsers.notifyAll();
+      }
+    }
+    log.debug("User [{}] finished", user.name);
+  }
+
+  private static <T> List<T> find(HashTree tree, Class<T> type) {
+    SearchByClass<T> search = new SearchByClass<>(type);
+    tree.traverse(search);
+    return new ArrayList<>(search.getSearchResults());
+  }
+
+  @Override
+  public JMeterThread addNewThread(int delay, StandardJMeterEngine engine) {
+    log.warn("Thread group [{}] does not support adding users at runtime", getName());
+    return null;
+  }
+
+  @Override
+  public boolean stopThread(String threadName, boolean now) {
+    return false;
+  }
+
+  @Override
+  public void threadFinished(JMeterThread thread) {
+    // users are not threads
+  }
+
+  @Override
+  public void tellThreadsToStop() {
+    running = false;
+    final Disposable.Composite users = this.users;
+    if (users != null) {
+      // cancels outstanding requests
+      users.dispose();
+    }
+  }
+
+  @Override
+  public void stop() {
+    // users stop before their next request
+    running = false;
+  }
+
+  @Override
+  public int numberOfActiveThreads() {
+    return activeUsers.get();
+  }
+
+  @Override
+  public boolean verifyThreadsStopped() {
+    boolean stopped = awaitUsers(TimeUnit.MILLISECONDS.toNanos(WAIT_TO_DIE));
+    if (!stopped) {
+      log.warn("{} users of [{}] won't exit", activeUsers.get(), getName());
+    }
+    return stopped;
+  }
+
+  @Override
+  public void waitThreadsStopped() {
+    while (!awaitUsers(TimeUnit.MILLISECONDS.toNanos(WAIT_TO_DIE))) {
+      log.debug("Waiting for {} users of [{}] to stop", activeUsers.get(), getName());
+    }
+  }
+
+  private boolean awaitUsers(long timeoutNanos) {
+    final long deadline = System.nanoTime() + timeoutNanos;
+    try {
+      synchronized (activeUsers) {
+        long remaining;
+        while (activeUsers.get() > 0 && (remaining = deadline - System.nanoTime()) > 0) {
+          TimeUnit.NANOSECONDS.timedWait(activeUsers, remaining);
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+    }
+    return activeUsers.get() == 0;
+  }
+
+  static final class VirtualUser {
+
+    final int number;
+    final String name;
+    final JMeterVariables variables = new JMeterVariables();
+
+    volatile boolean started;
+
+    // the user's clone of the group's tree, set once it started
+    volatile TestCompiler compiler;
+
+    volatile ReactiveSampler[] samplers;
+
+    VirtualUser(int number, String name) {
+      this.number = number;
+      this.name = name;
+    }
+  }
+}
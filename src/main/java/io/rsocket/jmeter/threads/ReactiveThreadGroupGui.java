@@ -0,0 +1,23 @@
+package io.rsocket.jmeter.threads;
+
+import org.apache.jmeter.testelement.TestElement;
+
+/**
+ * The GUI for {@link ReactiveThreadGroup}.
+ */
+public class ReactiveThreadGroupGui extends AbstractUserGroupGui {
+
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  public String getStaticLabel() {
+    return "RSocket Reactive Thread Group";
+  }
+
+  @Override
+  public TestElement createTestElement() {
+    ReactiveThreadGroup threadGroup = new ReactiveThreadGroup();
+    modifyTestElement(threadGroup);
+    return threadGroup;
+  }
+}
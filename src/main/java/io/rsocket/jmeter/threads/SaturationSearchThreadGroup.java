@@ -0,0 +1,546 @@
+package io.rsocket.jmeter.threads;
+
+import io.rsocket.jmeter.RSocketSetup;
+import io.rsocket.jmeter.ReactiveSampler;
+import io.rsocket.jmeter.metrics.HistogramSnapshot;
+import io.rsocket.jmeter.metrics.MetricsRegistry;
+import io.rsocket.jmeter.metrics.RouteMetrics;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.services.FileServer;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.ListenerNotifier;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+
+/**
+ * Thread group searching the highest arrival rate a service sustains under a latency SLO. Instead
+ * of a fixed number of users looping, every arrival sends the requests of the group's {@link
+ * ReactiveSampler}s once, at a rate that does not slow down with the responses, so queueing on the
+ * server shows up as latency instead of as fewer requests.
+ * <p>
+ * Each step runs one rate for the step duration, waits for its responses and compares the p99 and
+ * error rate of the route histograms recorded over the step against the SLO. The step search
+ * raises the rate by a fixed increment until a step fails, the binary search bisects between the
+ * start and the max rate. Every step is appended to a CSV report, the rate/latency curve.
+ * <p>
+ * The route histograms are shared by the whole engine, other groups running at the same time skew
+ * the measurements.
+ */
+public class SaturationSearchThreadGroup extends ReactiveThreadGroup {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger log = LoggerFactory.getLogger(SaturationSearchThreadGroup.class);
+
+  //+ JMX names - do not change
+  private static final String MODE = "SaturationSearch.mode"; // $NON-NLS-1$
+
+  private static final String START_RATE = "SaturationSearch.start_rate"; // $NON-NLS-1$
+
+  private static final String RATE_STEP = "SaturationSearch.rate_step"; // $NON-NLS-1$
+
+  private static final String MAX_RATE = "SaturationSearch.max_rate"; // $NON-NLS-1$
+
+  private static final String PRECISION = "SaturationSearch.precision"; // $NON-NLS-1$
+
+  private static final String STEP_DURATION = "SaturationSearch.step_duration"; // $NON-NLS-1$
+
+  private static final String SLO_P99 = "SaturationSearch.slo_p99"; // $NON-NLS-1$
+
+  private static final String MAX_ERROR_PERCENT =
+      "SaturationSearch.max_error_percent"; // $NON-NLS-1$
+
+  private static final String MAX_OUTSTANDING = "SaturationSearch.max_outstanding"; // $NON-NLS-1$
+
+  private static final String REPORT_FILE = "SaturationSearch.report_file"; // $NON-NLS-1$
+  //- JMX names
+
+  public static final double MAX_ERROR_PERCENT_DEFAULT = 1.0;
+
+  public static final int MAX_OUTSTANDING_DEFAULT = 10000;
+
+  public static final String REPORT_FILE_DEFAULT = "saturation.csv"; // $NON-NLS-1$
+
+  private static final String GAUGE_RATE = "rsocket_saturation_rate";
+
+  private static final String GAUGE_SUSTAINED_RATE = "rsocket_saturation_sustained_rate";
+
+  // arrivals are released in batches, finer ticks do not make the rate more precise
+  private static final Duration TICK = Duration.ofMillis(10);
+
+  public enum Mode {
+    /**
+     * Raises the rate by a fixed step until a step fails.
+     */
+    STEP,
+    /**
+     * Bisects between the start and the max rate until within the precision.
+     */
+    BINARY
+  }
+
+  private final transient AtomicInteger outstanding = new AtomicInteger();
+
+  private final transient AtomicInteger numbers = new AtomicInteger();
+
+  // users of arrivals that terminated, reused so their variables and trees are set up once
+  private transient Queue<VirtualUser> idle;
+
+  // every user created by the search, finished once it ends
+  private transient Queue<VirtualUser> created;
+
+  private transient Thread driver;
+
+  private transient volatile long currentRate;
+
+  private transient volatile long sustainedRate;
+
+  @Override
+  public void start(int groupNumber, ListenerNotifier notifier, ListedHashTree threadGroupTree,
+      StandardJMeterEngine engine) {
+    final RSocketSetup setup = prepare(notifier, threadGroupTree);
+    if (setup == null) {
+      return;
+    }
+
+    this.idle = new ConcurrentLinkedQueue<>();
+    this.created = new ConcurrentLinkedQueue<>();
+    this.currentRate = 0;
+    this.sustainedRate = 0;
+    outstanding.set(0);
+    numbers.set(0);
+
+    final MetricsRegistry registry = MetricsRegistry.getInstance();
+    registry.registerGauge(GAUGE_RATE, "Arrival rate of the current search step.",
+        () -> currentRate);
+    registry.registerGauge(GAUGE_SUSTAINED_RATE,
+        "Highest arrival rate meeting the SLO so far.", () -> sustainedRate);
+
+    // the search counts as a user so the engine waits for it
+    activeUsers.incrementAndGet();
+    final Thread driver = new Thread(() -> {
+      try {
+        search(setup, groupNumber);
+      } catch (Throwable t) {
+        log.error("Saturation search of [{}] failed", getName(), t);
+      } finally {
+        for (VirtualUser user : created) {
+          finish(user);
+        }
+        registry.unregisterGauge(GAUGE_RATE);
+        registry.unregisterGauge(GAUGE_SUSTAINED_RATE);
+        userFinished(new VirtualUser(-1, getName()));
+      }
+    }, "rsocket-saturation-" + getName());
+    driver.setDaemon(true);
+    this.driver = driver;
+    driver.start();
+  }
+
+  private void search(RSocketSetup setup, int groupNumber) throws IOException {
+    final Mode mode = Mode.valueOf(getMode());
+    final long startRate = Math.max(1, getStartRate());
+    final long maxRate = Math.max(startRate, getMaxRate());
+    final File report = FileServer.getFileServer().getResolvedFile(getReportFile());
+
+    log.info("Searching the saturation of [{}] by {}, {} to {} req/s, p99 SLO {} ms, report [{}]",
+        getName(), mode, startRate, maxRate, getSloP99(), report);
+
+    try (Writer writer = Files.newBufferedWriter(report.toPath(), StandardCharsets.UTF_8)) {
+      writer.write("step,target_rate,achieved_rate,requests,errors,error_percent,"
+          + "mean_ms,p50_ms,p90_ms,p99_ms,p999_ms,skipped,backlog,sustained\n");
+      writer.flush();
+
+      final Search search = new Search(setup, groupNumber, writer);
+      long sustained = 0;
+      if (search.step(startRate)) {
+        sustained = startRate;
+        if (mode == Mode.BINARY) {
+          sustained = bisect(search, startRate, maxRate);
+        } else {
+          final long rateStep = Math.max(1, getRateStep());
+          for (long rate = startRate + rateStep; running && rate <= maxRate; rate += rateStep) {
+            if (!search.step(rate)) {
+              break;
+            }
+            sustained = rate;
+          }
+        }
+      }
+
+      if (sustained > 0) {
+        log.info("[{}] sustains {} req/s with p99 under {} ms", getName(), sustained,
+            getSloP99());
+      } else {
+        log.warn("[{}] does not meet the p99 SLO of {} ms at {} req/s", getName(), getSloP99(),
+            startRate);
+      }
+    }
+  }
+
+  private long bisect(Search search, long low, long high) throws IOException {
+    if (high <= low || search.step(high)) {
+      return high;
+    }
+    final long precision = Math.max(1, getPrecision());
+    // low passed and high failed
+    while (running && high - low > precision) {
+      final long rate = low + (high - low) / 2;
+      if (search.step(rate)) {
+        low = rate;
+      } else {
+        high = rate;
+      }
+    }
+    return low;
+  }
+
+  /**
+   * Runs the steps of a search and appends them to the report.
+   */
+  private final class Search {
+
+    final RSocketSetup setup;
+
+    final String namePrefix;
+
+    final Writer report;
+
+    int steps;
+
+    Search(RSocketSetup setup, int groupNumber, Writer report) {
+      this.setup = setup;
+      this.namePrefix = getName() + " " + groupNumber + "-";
+      this.report = report;
+    }
+
+    /**
+     * @return whether the rate met the SLO
+     */
+    boolean step(long rate) throws IOException {
+      if (!running) {
+        return false;
+      }
+      steps++;
+      currentRate = rate;
+
+      final RouteMetrics[] routesBefore = MetricsRegistry.getInstance().getRoutes();
+      final HistogramSnapshot latency = latency(routesBefore);
+      final long requestsBefore = requests(routesBefore);
+      final long errorsBefore = errors(routesBefore);
+
+      final long stepNanos = TimeUnit.SECONDS.toNanos(Math.max(1, getStepDuration()));
+      final Arrivals arrivals = new Arrivals(rate);
+      final Disposable ticks = Flux.interval(TICK, TICK)
+          .subscribe(__ -> arrivals.release(this));
+      users.add(ticks);
+      final long start = arrivals.startNanos;
+      try {
+        await(() -> false, start + stepNanos);
+      } finally {
+        ticks.dispose();
+        users.remove(ticks);
+      }
+      final long elapsed = System.nanoTime() - start;
+      // responses to the step's arrivals belong to the step, give them as long again
+      await(() -> outstanding.get() == 0, System.nanoTime() + stepNanos);
+      final int backlog = outstanding.get();
+
+      final RouteMetrics[] routes = MetricsRegistry.getInstance().getRoutes();
+      final HistogramSnapshot stepLatency = latency(routes);
+      stepLatency.subtract(latency);
+      final long requests = requests(routes) - requestsBefore;
+      final long errors = errors(routes) - errorsBefore;
+      final double errorPercent = requests == 0 ? 0 : errors * 100.0 / requests;
+      final long p99Nanos = stepLatency.percentileNanos(99);
+
+      final boolean sustained = running
+          && requests > 0
+          && arrivals.skipped == 0
+          && backlog == 0
+          && p99Nanos <= TimeUnit.MILLISECONDS.toNanos(getSloP99())
+          && errorPercent <= getMaxErrorPercent();
+      if (sustained) {
+        sustainedRate = Math.max(sustainedRate, rate);
+      }
+
+      report.write(String.format(Locale.ROOT,
+          "%d,%d,%.1f,%d,%d,%.3f,%.3f,%.3f,%.3f,%.3f,%.3f,%d,%d,%b%n",
+          steps, rate, requests * (double) TimeUnit.SECONDS.toNanos(1) / elapsed, requests,
+          errors, errorPercent, millis(stepLatency.meanNanos()),
+          millis(stepLatency.percentileNanos(50)), millis(stepLatency.percentileNanos(90)),
+          millis(p99Nanos), millis(stepLatency.percentileNanos(99.9)), arrivals.skipped,
+          backlog, sustained));
+      report.flush();
+
+      log.info("Step {} of [{}] at {} req/s: {} requests, {} errors, p99 {} ms, {}", steps,
+          getName(), rate, requests, errors, millis(p99Nanos),
+          sustained ? "sustained" : "not sustained");
+      return sustained;
+    }
+
+    void arrive() {
+      VirtualUser user = idle.poll();
+      if (user == null) {
+        final int number = numbers.getAndIncrement();
+        user = new VirtualUser(number, namePrefix + (number + 1));
+        initialize(user, setup);
+        created.offer(user);
+      }
+
+      final VirtualUser arrival = user;
+      outstanding.incrementAndGet();
+      activeUsers.incrementAndGet();
+      arrival.started = true;
+      JMeterContextService.incrNumberOfThreads();
+
+      Flux.defer(() -> iterate(arrival))
+          .doFinally(__ -> {
+            userFinished(arrival);
+            outstanding.decrementAndGet();
+            idle.offer(arrival);
+          })
+          .subscribe(null, t -> log.error("Arrival [{}] failed", arrival.name, t));
+    }
+  }
+
+  /**
+   * Releases the arrivals due at the step's rate on every tick, catching up on late ticks.
+   */
+  private final class Arrivals {
+
+    final long rate;
+
+    final long startNanos = System.nanoTime();
+
+    // ticks are delivered one at a time
+    long released;
+
+    volatile long skipped;
+
+    Arrivals(long rate) {
+      this.rate = rate;
+    }
+
+    void release(Search search) {
+      final long due = (long) ((System.nanoTime() - startNanos) / 1e9 * rate) - released;
+      final int maxOutstanding = getMaxOutstanding();
+      for (long i = 0; i < due && running; i++) {
+        released++;
+        if (outstanding.get() >= maxOutstanding) {
+          // the service cannot keep up, growing the backlog only measures the generator
+          skipped++;
+          continue;
+        }
+        search.arrive();
+      }
+    }
+  }
+
+  private interface Condition {
+
+    boolean met();
+  }
+
+  /**
+   * Waits until the condition is met, the deadline has passed or the group is stopped.
+   */
+  private void await(Condition condition, long deadlineNanos) {
+    long remaining;
+    while (running && !condition.met() && (remaining = deadlineNanos - System.nanoTime()) > 0) {
+      try {
+        Thread.sleep(Math.min(TimeUnit.NANOSECONDS.toMillis(remaining) + 1, 10));
+      } catch (InterruptedException e) {
+        // stopped
+        return;
+      }
+    }
+  }
+
+  private static HistogramSnapshot latency(RouteMetrics[] routes) {
+    final HistogramSnapshot latency = new HistogramSnapshot();
+    for (RouteMetrics route : routes) {
+      latency.merge(route.getLatency().snapshot());
+    }
+    return latency;
+  }
+
+  private static long requests(RouteMetrics[] routes) {
+    long requests = 0;
+    for (RouteMetrics route : routes) {
+      requests += route.getRequests();
+    }
+    return requests;
+  }
+
+  private static long errors(RouteMetrics[] routes) {
+    long errors = 0;
+    for (RouteMetrics route : routes) {
+      errors += route.getErrors();
+    }
+    return errors;
+  }
+
+  private static double millis(long nanos) {
+    return nanos / (double) TimeUnit.MILLISECONDS.toNanos(1);
+  }
+
+  @Override
+  public void tellThreadsToStop() {
+    super.tellThreadsToStop();
+    interruptDriver();
+  }
+
+  @Override
+  public void stop() {
+    super.stop();
+    interruptDriver();
+  }
+
+  private void interruptDriver() {
+    final Thread driver = this.driver;
+    if (driver != null) {
+      driver.interrupt();
+    }
+  }
+
+  /**
+   * @return the highest rate meeting the SLO in the last search, 0 if none did
+   */
+  public long getSustainedRate() {
+    return sustainedRate;
+  }
+
+  /**
+   * @param mode name of a {@link Mode}
+   */
+  public void setMode(String mode) {
+    setProperty(MODE, mode, Mode.STEP.name());
+  }
+
+  public String getMode() {
+    return getPropertyAsString(MODE, Mode.STEP.name());
+  }
+
+  /**
+   * @param rate requests per second of the first step
+   */
+  public void setStartRate(long rate) {
+    setProperty(START_RATE, rate);
+  }
+
+  public long getStartRate() {
+    return getPropertyAsLong(START_RATE, 10);
+  }
+
+  /**
+   * @param rate requests per second added by each step of the step search
+   */
+  public void setRateStep(long rate) {
+    setProperty(RATE_STEP, rate);
+  }
+
+  public long getRateStep() {
+    return getPropertyAsLong(RATE_STEP, 10);
+  }
+
+  public void setMaxRate(long rate) {
+    setProperty(MAX_RATE, rate);
+  }
+
+  public long getMaxRate() {
+    return getPropertyAsLong(MAX_RATE, 1000);
+  }
+
+  /**
+   * @param rate difference in requests per second at which the binary search stops
+   */
+  public void setPrecision(long rate) {
+    setProperty(PRECISION, rate);
+  }
+
+  public long getPrecision() {
+    return getPropertyAsLong(PRECISION, 10);
+  }
+
+  /**
+   * @param seconds time each rate is held for
+   */
+  public void setStepDuration(long seconds) {
+    setProperty(STEP_DURATION, seconds);
+  }
+
+  public long getStepDuration() {
+    return getPropertyAsLong(STEP_DURATION, 30);
+  }
+
+  /**
+   * @param millis p99 latency a sustained rate stays under
+   */
+  public void setSloP99(long millis) {
+    setProperty(SLO_P99, millis);
+  }
+
+  public long getSloP99() {
+    return getPropertyAsLong(SLO_P99, 100);
+  }
+
+  public void setMaxErrorPercent(String percent) {
+    setProperty(MAX_ERROR_PERCENT, percent, String.valueOf(MAX_ERROR_PERCENT_DEFAULT));
+  }
+
+  /**
+   * @return share of failed requests a sustained rate stays under, in percent
+   */
+  public double getMaxErrorPercent() {
+    final String percent = getPropertyAsString(MAX_ERROR_PERCENT);
+    if (percent.trim().isEmpty()) {
+      return MAX_ERROR_PERCENT_DEFAULT;
+    }
+    try {
+      return Double.parseDouble(percent.trim());
+    } catch (NumberFormatException e) {
+      log.warn("Invalid max error percent [{}] of [{}], using {}", percent, getName(),
+          MAX_ERROR_PERCENT_DEFAULT);
+      return MAX_ERROR_PERCENT_DEFAULT;
+    }
+  }
+
+  /**
+   * @param arrivals arrivals waiting for their responses at once, further arrivals are skipped
+   *                 and fail the step
+   */
+  public void setMaxOutstanding(int arrivals) {
+    setProperty(MAX_OUTSTANDING, arrivals, MAX_OUTSTANDING_DEFAULT);
+  }
+
+  public int getMaxOutstanding() {
+    return getPropertyAsInt(MAX_OUTSTANDING, MAX_OUTSTANDING_DEFAULT);
+  }
+
+  /**
+   * @param file CSV file the steps are written to, relative paths are resolved against the test
+   *             plan directory
+   */
+  public void setReportFile(String file) {
+    setProperty(REPORT_FILE, file, REPORT_FILE_DEFAULT);
+  }
+
+  public String getReportFile() {
+    return getPropertyAsString(REPORT_FILE, REPORT_FILE_DEFAULT);
+  }
+}
@@ -0,0 +1,196 @@
+package io.rsocket.jmeter.threads;
+
+import java.awt.BorderLayout;
+import javax.swing.BorderFactory;
+import javax.swing.Box;
+import javax.swing.JComboBox;
+import javax.swing.JLabel;
+import javax.swing.JTextField;
+import org.apache.jmeter.control.LoopController;
+import org.apache.jmeter.control.gui.LoopControlPanel;
+import org.apache.jmeter.gui.util.VerticalPanel;
+import org.apache.jmeter.testelement.TestElement;
+import org.apache.jmeter.threads.gui.AbstractThreadGroupGui;
+
+/**
+ * The GUI for {@link SaturationSearchThreadGroup}.
+ */
+public class SaturationSearchThreadGroupGui extends AbstractThreadGroupGui {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final String DEFAULT_START_RATE = "10";
+  private static final String DEFAULT_RATE_STEP = "10";
+  private static final String DEFAULT_MAX_RATE = "1000";
+  private static final String DEFAULT_PRECISION = "10";
+  private static final String DEFAULT_STEP_DURATION = "30";
+  private static final String DEFAULT_SLO_P99 = "100";
+
+  private JComboBox<String> modeField;
+  private JTextField startRateField;
+  private JTextField rateStepField;
+  private JTextField maxRateField;
+  private JTextField precisionField;
+  private JTextField stepDurationField;
+  private JTextField sloP99Field;
+  private JTextField maxErrorPercentField;
+  private JTextField maxOutstandingField;
+  private JTextField reportFileField;
+
+  public SaturationSearchThreadGroupGui() {
+    init();
+  }
+
+  @Override
+  public String getStaticLabel() {
+    return "RSocket Saturation Search Thread Group";
+  }
+
+  @Override
+  public String getLabelResource() {
+    return "threadgroup"; // $NON-NLS-1$
+  }
+
+  @Override
+  public TestElement createTestElement() {
+    SaturationSearchThreadGroup threadGroup = new SaturationSearchThreadGroup();
+    modifyTestElement(threadGroup);
+    return threadGroup;
+  }
+
+  @Override
+  public void modifyTestElement(TestElement el) {
+    super.configureTestElement(el);
+
+    SaturationSearchThreadGroup threadGroup = (SaturationSearchThreadGroup) el;
+
+    // arrivals run the samplers once, the controller only holds the tree
+    LoopController controller = new LoopController();
+    controller.setLoops(1);
+    controller.setProperty(TestElement.GUI_CLASS, LoopControlPanel.class.getName());
+    controller.setProperty(TestElement.TEST_CLASS, LoopController.class.getName());
+    threadGroup.setSamplerController(controller);
+
+    threadGroup.setMode(String.valueOf(modeField.getSelectedItem()));
+    try {
+      threadGroup.setStartRate(Long.parseLong(startRateField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      threadGroup.setRateStep(Long.parseLong(rateStepField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      threadGroup.setMaxRate(Long.parseLong(maxRateField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      threadGroup.setPrecision(Long.parseLong(precisionField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      threadGroup.setStepDuration(Long.parseLong(stepDurationField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    try {
+      threadGroup.setSloP99(Long.parseLong(sloP99Field.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    threadGroup.setMaxErrorPercent(maxErrorPercentField.getText().trim());
+    try {
+      threadGroup.setMaxOutstanding(Integer.parseInt(maxOutstandingField.getText()));
+    } catch (NumberFormatException ignored) {
+    }
+    threadGroup.setReportFile(reportFileField.getText().trim());
+  }
+
+  @Override
+  public void configure(TestElement el) {
+    super.configure(el);
+
+    SaturationSearchThreadGroup threadGroup = (SaturationSearchThreadGroup) el;
+
+    modeField.setSelectedItem(threadGroup.getMode());
+    startRateField.setText(String.valueOf(threadGroup.getStartRate()));
+    rateStepField.setText(String.valueOf(threadGroup.getRateStep()));
+    maxRateField.setText(String.valueOf(threadGroup.getMaxRate()));
+    precisionField.setText(String.valueOf(threadGroup.getPrecision()));
+    stepDurationField.setText(String.valueOf(threadGroup.getStepDuration()));
+    sloP99Field.setText(String.valueOf(threadGroup.getSloP99()));
+    maxErrorPercentField.setText(String.valueOf(threadGroup.getMaxErrorPercent()));
+    maxOutstandingField.setText(String.valueOf(threadGroup.getMaxOutstanding()));
+    reportFileField.setText(threadGroup.getReportFile());
+  }
+
+  private void init() { // WARNING: called from ctor so must not be overridden (i.e. must be private or final)
+    VerticalPanel searchPanel = new VerticalPanel();
+    searchPanel.setBorder(BorderFactory.createTitledBorder("Saturation Search"));
+
+    Box modePanel = Box.createHorizontalBox();
+    modePanel.add(new JLabel("Search"));//$NON-NLS-1$
+    modeField = new JComboBox<>(new String[]{
+        SaturationSearchThreadGroup.Mode.STEP.name(),
+        SaturationSearchThreadGroup.Mode.BINARY.name()});
+    modePanel.add(modeField);
+    modePanel.add(new JLabel("Step Duration (s)"));//$NON-NLS-1$
+    stepDurationField = new JTextField(DEFAULT_STEP_DURATION, 6);
+    modePanel.add(stepDurationField);
+
+    Box ratePanel = Box.createHorizontalBox();
+    ratePanel.add(new JLabel("Start Rate (req/s)"));//$NON-NLS-1$
+    startRateField = new JTextField(DEFAULT_START_RATE, 6);
+    ratePanel.add(startRateField);
+    ratePanel.add(new JLabel("Step"));//$NON-NLS-1$
+    rateStepField = new JTextField(DEFAULT_RATE_STEP, 6);
+    ratePanel.add(rateStepField);
+    ratePanel.add(new JLabel("Max Rate"));//$NON-NLS-1$
+    maxRateField = new JTextField(DEFAULT_MAX_RATE, 6);
+    ratePanel.add(maxRateField);
+    ratePanel.add(new JLabel("Binary Precision"));//$NON-NLS-1$
+    precisionField = new JTextField(DEFAULT_PRECISION, 6);
+    ratePanel.add(precisionField);
+
+    Box sloPanel = Box.createHorizontalBox();
+    sloPanel.add(new JLabel("p99 SLO (ms)"));//$NON-NLS-1$
+    sloP99Field = new JTextField(DEFAULT_SLO_P99, 6);
+    sloPanel.add(sloP99Field);
+    sloPanel.add(new JLabel("Max Errors (%)"));//$NON-NLS-1$
+    maxErrorPercentField = new JTextField(
+        String.valueOf(SaturationSearchThreadGroup.MAX_ERROR_PERCENT_DEFAULT), 6);
+    sloPanel.add(maxErrorPercentField);
+    sloPanel.add(new JLabel("Max Outstanding"));//$NON-NLS-1$
+    maxOutstandingField = new JTextField(
+        String.valueOf(SaturationSearchThreadGroup.MAX_OUTSTANDING_DEFAULT), 6);
+    sloPanel.add(maxOutstandingField);
+
+    Box reportPanel = Box.createHorizontalBox();
+    reportPanel.add(new JLabel("Report File (CSV)"));//$NON-NLS-1$
+    reportFileField = new JTextField(SaturationSearchThreadGroup.REPORT_FILE_DEFAULT, 20);
+    reportPanel.add(reportFileField);
+
+    searchPanel.add(modePanel);
+    searchPanel.add(ratePanel);
+    searchPanel.add(sloPanel);
+    searchPanel.add(reportPanel);
+
+    add(searchPanel, BorderLayout.CENTER);
+  }
+
+  @Override
+  public void clearGui() {
+    super.clearGui();
+
+    modeField.setSelectedItem(SaturationSearchThreadGroup.Mode.STEP.name());
+    startRateField.setText(DEFAULT_START_RATE);
+    rateStepField.setText(DEFAULT_RATE_STEP);
+    maxRateField.setText(DEFAULT_MAX_RATE);
+    precisionField.setText(DEFAULT_PRECISION);
+    stepDurationField.setText(DEFAULT_STEP_DURATION);
+    sloP99Field.setText(DEFAULT_SLO_P99);
+    maxErrorPercentField.setText(
+        String.valueOf(SaturationSearchThreadGroup.MAX_ERROR_PERCENT_DEFAULT));
+    maxOutstandingField.setText(
+        String.valueOf(SaturationSearchThreadGroup.MAX_OUTSTANDING_DEFAULT));
+    reportFileField.setText(SaturationSearchThreadGroup.REPORT_FILE_DEFAULT);
+  }
+}
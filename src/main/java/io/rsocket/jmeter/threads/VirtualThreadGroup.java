@@ -0,0 +1,202 @@
+package io.rsocket.jmeter.threads;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import org.apache.jmeter.engine.StandardJMeterEngine;
+import org.apache.jmeter.engine.TreeCloner;
+import org.apache.jmeter.threads.JMeterContext;
+import org.apache.jmeter.threads.JMeterContextService;
+import org.apache.jmeter.threads.JMeterThread;
+import org.apache.jmeter.threads.ListenerNotifier;
+import org.apache.jmeter.util.JMeterUtils;
+import org.apache.jorphan.collections.ListedHashTree;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Thread group running every virtual user on its own virtual thread when started on Java 21 or
+ * later. Samplers keep their blocking style: a sampler waiting for its RSocket response parks the
+ * virtual thread and releases the carrier, so the number of users is no longer bound by OS
+ * threads and their stacks. On older runtimes the group falls back to platform threads.
+ * <p>
+ * All users are started right away and spread over the ramp up through their initial delay,
+ * since a sleeping virtual thread costs next to nothing.
+ */
+public class VirtualThreadGroup extends AbstractUserGroup {
+
+  private static final long serialVersionUID = 1L;
+
+  private static final Logger log = LoggerFactory.getLogger(VirtualThreadGroup.class);
+
+  private static final long WAIT_TO_DIE =
+      JMeterUtils.getPropDefault("jmeterengine.threadstop.wait", 5 * 1000); // $NON-NLS-1$
+
+  private final transient Map<JMeterThread, Thread> allThreads = new ConcurrentHashMap<>();
+
+  private final transient Object addThreadLock = new Object();
+
+  private transient volatile boolean running;
+
+  private transient int groupNumber;
+
+  private transient long startTime;
+
+  private transient ListenerNotifier notifier;
+
+  private transient ListedHashTree threadGroupTree;
+
+  @Override
+  public void start(int groupNumber, ListenerNotifier notifier, ListedHashTree threadGroupTree,
+      StandardJMeterEngine engine) {
+    this.running = true;
+    this.groupNumber = groupNumber;
+    this.notifier = notifier;
+    this.threadGroupTree = threadGroupTree;
+    this.startTime = System.currentTimeMillis();
+
+    final int numThreads = getNumThreads();
+    final long rampUp = getRampUp() * 1000L;
+    final JMeterContext context = JMeterContextService.getContext();
+
+    if (VirtualThreads.isSupported()) {
+      log.info("Starting {} virtual users of [{}] on virtual threads", numThreads, getName());
+    } else {
+      log.warn("Virtual threads require Java 21, starting {} users of [{}] on platform threads",
+          numThreads, getName());
+    }
+
+    for (int i = 0; running && i < numThreads; i++) {
+      JMeterThread jmThread = makeThread(engine, i, context);
+      jmThread.setInitialDelay((int) (rampUp * i / numThreads));
+      startThread(jmThread);
+    }
+  }
+
+  private JMeterThread makeThread(StandardJMeterEngine engine, int threadNumber,
+      JMeterContext context) {
+    JMeterThread jmThread = new JMeterThread(cloneThreadTree(threadGroupTree), this, notifier,
+        isSameUserOnNextIteration());
+    jmThread.setThreadNum(threadNumber);
+    jmThread.setThreadGroup(this);
+    jmThread.setInitialContext(context);
+    jmThread.setThreadName(getName() + " " + groupNumber + "-" + (threadNumber + 1));
+    jmThread.setEngine(engine);
+    jmThread.setOnErrorStopTest(getOnErrorStopTest());
+    jmThread.setOnErrorStopTestNow(getOnErrorStopTestNow());
+    jmThread.setOnErrorStopThread(getOnErrorStopThread());
+    jmThread.setOnErrorStartNextLoop(getOnErrorStartNextLoop());
+
+    long duration = getDuration();
+    if (duration > 0) {
+      jmThread.setEndTime(startTime + duration * 1000L);
+    }
+    return jmThread;
+  }
+
+  private void startThread(JMeterThread jmThread) {
+    Thread thread = VirtualThreads.newThread(jmThread.getThreadName(), jmThread);
+    allThreads.put(jmThread, thread);
+    thread.start();
+  }
+
+  private static ListedHashTree cloneThreadTree(ListedHashTree tree) {
+    TreeCloner cloner = new TreeCloner(true);
+    tree.traverse(cloner);
+    return cloner.getClonedTree();
+  }
+
+  @Override
+  public JMeterThread addNewThread(int delay, StandardJMeterEngine engine) {
+    if (!running) {
+      return null;
+    }
+
+    int numThreads;
+    synchronized (addThreadLock) {
+      numThreads = getNumThreads();
+      setNumThreads(numThreads + 1);
+    }
+    JMeterThread jmThread = makeThread(engine, numThreads, JMeterContextService.getContext());
+    jmThread.setInitialDelay(delay);
+    startThread(jmThread);
+    log.info("Started new thread [{}] in group [{}]", jmThread.getThreadName(), getName());
+    return jmThread;
+  }
+
+  @Override
+  public boolean stopThread(String threadName, boolean now) {
+    for (Map.Entry<JMeterThread, Thread> entry : allThreads.entrySet()) {
+      JMeterThread jmThread = entry.getKey();
+      if (jmThread.getThreadName().equals(threadName)) {
+        jmThread.stop();
+        jmThread.interrupt();
+        if (now) {
+          entry.getValue().interrupt();
+        }
+        return true;
+      }
+    }
+    return false;
+  }
+
+  @Override
+  public void threadFinished(JMeterThread thread) {
+    allThreads.remove(thread);
+  }
+
+  @Override
+  public void tellThreadsToStop() {
+    running = false;
+    for (Map.Entry<JMeterThread, Thread> entry : allThreads.entrySet()) {
+      entry.getKey().stop();
+      entry.getKey().interrupt();
+      // wakes up samplers parked on a response, which cancels the request
+      entry.getValue().interrupt();
+    }
+  }
+
+  @Override
+  public void stop() {
+    running = false;
+    for (JMeterThread jmThread : allThreads.keySet()) {
+      jmThread.stop();
+    }
+  }
+
+  @Override
+  public int numberOfActiveThreads() {
+    return allThreads.size();
+  }
+
+  @Override
+  public boolean verifyThreadsStopped() {
+    boolean stopped = true;
+    for (Thread thread : allThreads.values()) {
+      if (!join(thread)) {
+        log.warn("Thread won't exit: {}", thread.getName());
+        stopped = false;
+      }
+    }
+    return stopped;
+  }
+
+  @Override
+  public void waitThreadsStopped() {
+    for (Thread thread : allThreads.values()) {
+      while (!join(thread)) {
+        log.debug("Waiting for thread {} to stop", thread.getName());
+      }
+    }
+  }
+
+  private static boolean join(Thread thread) {
+    if (thread.isAlive()) {
+      try {
+        thread.join(WAIT_TO_DIE);
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+      }
+    }
+    return !thread.isAlive();
+  }
+}
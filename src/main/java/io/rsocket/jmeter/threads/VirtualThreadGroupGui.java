@@ -0,0 +1,23 @@
+package io.rsocket.jmeter.threads;
+
+import org.apache.jmeter.testelement.TestElement;
+
+/**
+ * The GUI for {@link VirtualThreadGroup}.
+ */
+public class VirtualThreadGroupGui extends AbstractUserGroupGui {
+
+  private static final long serialVersionUID = 1L;
+
+  @Override
+  public String getStaticLabel() {
+    return "RSocket Virtual Thread Group";
+  }
+
+  @Override
+  public TestElement createTestElement() {
+    VirtualThreadGroup threadGroup = new VirtualThreadGroup();
+    modifyTestElement(threadGroup);
+    return threadGroup;
+  }
+}
@@ -0,0 +1,26 @@
+package io.rsocket.jmeter.threads;
+
+/**
+ * Creates the threads of {@link VirtualThreadGroup}. This is the Java 8 variant, which falls
+ * back to platform threads; the multi-release jar replaces it with a variant backed by virtual
+ * threads on Java 21 and later.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return whether {@link #newThread(String, Runnable)} creates virtual threads
+   */
+  public static boolean isSupported() {
+    return false;
+  }
+
+  /**
+   * @return a new, unstarted thread running the given task
+   */
+  public static Thread newThread(String name, Runnable task) {
+    return new Thread(task, name);
+  }
+}
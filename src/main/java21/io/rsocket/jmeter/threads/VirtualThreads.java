@@ -0,0 +1,25 @@
+package io.rsocket.jmeter.threads;
+
+/**
+ * Creates the threads of {@link VirtualThreadGroup} as virtual threads. Loaded from {@code
+ * META-INF/versions/21} of the multi-release jar in place of the Java 8 variant.
+ */
+public final class VirtualThreads {
+
+  private VirtualThreads() {
+  }
+
+  /**
+   * @return whether {@link #newThread(String, Runnable)} creates virtual threads
+   */
+  public static boolean isSupported() {
+    return true;
+  }
+
+  /**
+   * @return a new, unstarted virtual thread running the given task
+   */
+  public static Thread newThread(String name, Runnable task) {
+    return Thread.ofVirtual().name(name).unstarted(task);
+  }
+}
@@ -0,0 +1,221 @@
+package io.rsocket.jmeter;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufAllocator;
+import io.netty.buffer.ByteBufUtil;
+import io.rsocket.jmeter.codec.Compression;
+import io.rsocket.jmeter.codec.PayloadCodec;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.apache.jmeter.testelement.property.FunctionProperty;
+import org.apache.jmeter.testelement.property.StringProperty;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+class PayloadTemplateTest {
+
+  @AfterEach
+  void releaseBinaries() {
+    PayloadTemplate.releaseBinaries();
+  }
+
+  @Test
+  void segmentsAndSlots() {
+    final PayloadTemplate template =
+        PayloadTemplate.compile("Hello ${name}, you are ${age}!", StandardCharsets.UTF_8);
+    assertFalse(template.isStatic());
+    assertEquals("Hello Bob, you are 42!", write(template, "Bob", "42"));
+    assertEquals("Hello , you are 42!", write(template, "", "42"));
+  }
+
+  @Test
+  void adjacentSlots() {
+    final PayloadTemplate template = PayloadTemplate.compile("${a}${b}", StandardCharsets.UTF_8);
+    assertEquals("12", write(template, "1", "2"));
+  }
+
+  @Test
+  void undefinedVariablesAreWrittenAsReferences() {
+    final PayloadTemplate template =
+        PayloadTemplate.compile("Hello ${name}, you are ${age}!", StandardCharsets.UTF_8);
+    final JMeterVariables variables = new JMeterVariables();
+    variables.put("age", "42");
+
+    final String[] values = template.resolve(variables);
+    assertArrayEquals(new String[]{null, "42"}, values);
+    assertEquals("Hello ${name}, you are 42!", write(template, values));
+  }
+
+  @Test
+  void staticText() {
+    final PayloadTemplate template =
+        PayloadTemplate.compile(new StringProperty("data", "{\"id\":1} ${unterminated"));
+    assertTrue(template.isStatic());
+    assertFalse(template.isBinary());
+    assertEquals("{\"id\":1} ${unterminated", write(template));
+  }
+
+  @Test
+  void otherCharsets() {
+    final PayloadTemplate template =
+        PayloadTemplate.compile("\u00e9${v}", StandardCharsets.ISO_8859_1);
+    final ByteBuf buffer = template.write(ByteBufAllocator.DEFAULT, new String[]{"\u00fc"});
+    try {
+      assertArrayEquals(new byte[]{(byte) 0xE9, (byte) 0xFC}, ByteBufUtil.getBytes(buffer));
+    } finally {
+      buffer.release();
+    }
+  }
+
+  @Test
+  void functionsAndEscapesAreLeftToJMeter() {
+    assertNull(PayloadTemplate.compile("${__Random(1,10)}", StandardCharsets.UTF_8));
+    assertNull(PayloadTemplate.compile("${__time()}", StandardCharsets.UTF_8));
+    assertNull(PayloadTemplate.compile("a\\${b}", StandardCharsets.UTF_8));
+    assertNull(PayloadTemplate.compile("${a,b}", StandardCharsets.UTF_8));
+  }
+
+  @Test
+  void evaluatesFunctionsAsJMeterWould() {
+    final FunctionProperty property = new FunctionProperty() {
+      @Override
+      public Object getObjectValue() {
+        return "${__time()}";
+      }
+
+      @Override
+      public String getStringValue() {
+        return "evaluated";
+      }
+    };
+    final PayloadTemplate template = PayloadTemplate.compile(property);
+    assertFalse(template.isStatic());
+    assertEquals("evaluated", write(template, template.resolve(new JMeterVariables())));
+  }
+
+  @Test
+  void binary() {
+    final PayloadTemplate template = PayloadTemplate.hex("cafe babe");
+    assertTrue(template.isBinary());
+    final ByteBuf first = template.write(ByteBufAllocator.DEFAULT, new String[0]);
+    final ByteBuf second = template.write(ByteBufAllocator.DEFAULT, new String[0]);
+    first.readByte();
+    // independent indexes over the same bytes
+    assertEquals(3, first.readableBytes());
+    assertEquals("cafebabe", ByteBufUtil.hexDump(second));
+    first.release();
+    second.release();
+
+    assertEquals("cafebabe", ByteBufUtil.hexDump(PayloadTemplate.base64("yv66vg==")
+        .write(ByteBufAllocator.DEFAULT, new String[0])));
+  }
+
+  @Test
+  void staticTextIsConvertedOnce() {
+    final CountingCodec codec = new CountingCodec();
+    final PayloadTemplate first =
+        PayloadTemplate.compile("static text", StandardCharsets.UTF_8).withCodec(codec);
+    final PayloadTemplate second =
+        PayloadTemplate.compile("static text", StandardCharsets.UTF_8).withCodec(codec);
+    assertTrue(first.isBinary());
+    assertEquals("STATIC TEXT", write(first));
+    assertEquals("STATIC TEXT", write(second));
+    assertEquals(1, codec.encoded.get());
+  }
+
+  @Test
+  void textWithVariablesIsConvertedPerWrite() {
+    final CountingCodec codec = new CountingCodec();
+    final PayloadTemplate template =
+        PayloadTemplate.compile("hello ${name}", StandardCharsets.UTF_8).withCodec(codec);
+    assertEquals("HELLO BOB", write(template, "bob"));
+    assertEquals("HELLO ALICE", write(template, "alice"));
+    assertEquals(2, codec.encoded.get());
+  }
+
+  @Test
+  void codecsNotEncodingTextAreSkipped() {
+    final PayloadTemplate template = PayloadTemplate.compile("${a}", StandardCharsets.UTF_8);
+    final CountingCodec codec = new CountingCodec() {
+      @Override
+      public boolean encodesText() {
+        return false;
+      }
+    };
+    assertSame(template, template.withCodec(codec));
+    assertSame(template, template.withCodec(null));
+    assertSame(template, template.withCompression(Compression.NONE));
+  }
+
+  @Test
+  void compression() throws IOException {
+    final String text = "compressible compressible compressible compressible";
+    final PayloadTemplate compressed =
+        PayloadTemplate.compile(text, StandardCharsets.UTF_8).withCompression(Compression.GZIP);
+    assertTrue(compressed.isBinary());
+    assertEquals(text, decompress(Compression.GZIP, compressed));
+
+    final PayloadTemplate chained = PayloadTemplate.compile("${a} ${a}", StandardCharsets.UTF_8)
+        .withCodec(new CountingCodec())
+        .withCompression(Compression.DEFLATE);
+    assertEquals("X X", decompress(Compression.DEFLATE, chained, "x"));
+  }
+
+  private static String decompress(Compression compression, PayloadTemplate template,
+      String... values) throws IOException {
+    final ByteBuf buffer = template.write(ByteBufAllocator.DEFAULT, values);
+    try {
+      return new String(compression.decompress(ByteBufUtil.getBytes(buffer)),
+          StandardCharsets.UTF_8);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  private static String write(PayloadTemplate template, String... values) {
+    final ByteBuf buffer = template.write(ByteBufAllocator.DEFAULT, values);
+    try {
+      return buffer.toString(StandardCharsets.UTF_8);
+    } finally {
+      buffer.release();
+    }
+  }
+
+  private static class CountingCodec implements PayloadCodec {
+
+    final AtomicInteger encoded = new AtomicInteger();
+
+    @Override
+    public String getMimeType() {
+      return "text/x-upper-case";
+    }
+
+    @Override
+    public boolean encodesText() {
+      return true;
+    }
+
+    @Override
+    public ByteBuf encode(ByteBufAllocator allocator, ByteBuf text, Charset charset) {
+      encoded.incrementAndGet();
+      final byte[] bytes = text.toString(charset).toUpperCase(Locale.ROOT).getBytes(charset);
+      return allocator.buffer(bytes.length).writeBytes(bytes);
+    }
+
+    @Override
+    public String decode(byte[] data, Charset charset) {
+      return new String(data, charset);
+    }
+  }
+}
@@ -0,0 +1,109 @@
+package io.rsocket.jmeter.assertions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.junit.jupiter.api.Test;
+
+class ByteBufAssertionTest {
+
+  @Test
+  void notConfigured() {
+    assertNull(ByteBufAssertion.from(new ConfigTestElement(), null));
+  }
+
+  @Test
+  void reusesTheCompiledAssertion() {
+    final ConfigTestElement element = element(ByteBufAssertion.CONTAINS, "abc");
+    final ByteBufAssertion assertion = ByteBufAssertion.from(element, null);
+    assertSame(assertion, ByteBufAssertion.from(element, assertion));
+  }
+
+  @Test
+  void containsAcrossBuffers() {
+    final ByteBufAssertion assertion =
+        ByteBufAssertion.from(element(ByteBufAssertion.CONTAINS, "aab"), null);
+    // a partial match of the first buffer falls back to a shorter one within the second
+    assertNull(verify(assertion, "xaa", "ab"));
+    assertNull(verify(assertion, "a", "a", "b"));
+    assertNull(verify(assertion, "abaa", "ba", "ab"));
+    assertEquals("Response does not contain expected bytes", verify(assertion, "ab", "ba"));
+    assertEquals("Response does not contain expected bytes", verify(assertion, "aa"));
+  }
+
+  @Test
+  void containsWithRepeatedPattern() {
+    final ByteBufAssertion assertion =
+        ByteBufAssertion.from(element(ByteBufAssertion.CONTAINS, "abab"), null);
+    assertNull(verify(assertion, "aba", "bab"));
+    assertNull(verify(assertion, "abaaba", "b"));
+    assertEquals("Response does not contain expected bytes", verify(assertion, "aba", "aba"));
+  }
+
+  @Test
+  void prefixAcrossBuffers() {
+    final ByteBufAssertion assertion =
+        ByteBufAssertion.from(element(ByteBufAssertion.PREFIX, "hello"), null);
+    assertNull(verify(assertion, "he", "llo world"));
+    assertNull(verify(assertion, "h", "e", "l", "l", "o"));
+    assertEquals("Response does not start with expected prefix",
+        verify(assertion, "he", "lp"));
+    assertEquals("Response does not start with expected prefix", verify(assertion, "hell"));
+  }
+
+  @Test
+  void crc32cAcrossBuffers() {
+    final ByteBufAssertion assertion =
+        ByteBufAssertion.from(element(ByteBufAssertion.CRC32C, "e3069283"), null);
+    assertNull(verify(assertion, "1234", "56789"));
+    assertEquals("Response CRC32C 6087809a differs from e3069283",
+        verify(assertion, "1234", "5678"));
+  }
+
+  @Test
+  void lengthAndElements() {
+    final ConfigTestElement element = element(ByteBufAssertion.MAX_LENGTH, "5");
+    element.setProperty(ByteBufAssertion.MIN_ELEMENTS, "2");
+    final ByteBufAssertion assertion = ByteBufAssertion.from(element, null);
+    assertNull(verify(assertion, "ab", "cde"));
+    assertEquals("Response length 6 is above 5", verify(assertion, "abc", "def"));
+    assertEquals("Response has 1 elements, expected at least 2", verify(assertion, "abc"));
+  }
+
+  @Test
+  void leavesTheIndexesUntouched() {
+    final ByteBufAssertion assertion =
+        ByteBufAssertion.from(element(ByteBufAssertion.CONTAINS, "cd"), null);
+    final ByteBuf data = Unpooled.copiedBuffer("abcdef", StandardCharsets.US_ASCII);
+    data.readerIndex(2);
+    final ByteBufAssertion.Check check = assertion.newCheck();
+    check.onNext(data);
+    assertNull(check.verify());
+    assertEquals(2, data.readerIndex());
+    data.release();
+  }
+
+  private static ConfigTestElement element(String name, String value) {
+    final ConfigTestElement element = new ConfigTestElement();
+    element.setProperty(name, value);
+    return element;
+  }
+
+  private static String verify(ByteBufAssertion assertion, String... elements) {
+    final ByteBufAssertion.Check check = assertion.newCheck();
+    for (String element : elements) {
+      final ByteBuf data = Unpooled.copiedBuffer(element, StandardCharsets.US_ASCII);
+      try {
+        check.onNext(data);
+      } finally {
+        data.release();
+      }
+    }
+    return check.verify();
+  }
+}
@@ -0,0 +1,41 @@
+package io.rsocket.jmeter.assertions;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import org.junit.jupiter.api.Test;
+
+class Crc32cTest {
+
+  @Test
+  void checkValue() {
+    assertEquals(0xE3069283L, crc("123456789".getBytes(StandardCharsets.US_ASCII)));
+  }
+
+  @Test
+  void empty() {
+    assertEquals(0, crc(new byte[0]));
+  }
+
+  @Test
+  void zeros() {
+    // RFC 3720, B.4
+    assertEquals(0x8A9136AAL, crc(new byte[32]));
+  }
+
+  @Test
+  void ones() {
+    final byte[] data = new byte[32];
+    Arrays.fill(data, (byte) 0xFF);
+    assertEquals(0x62A8AB43L, crc(data));
+  }
+
+  private static long crc(byte[] data) {
+    final Crc32c crc = new Crc32c();
+    for (byte b : data) {
+      crc.process(b);
+    }
+    return crc.getValue();
+  }
+}
@@ -0,0 +1,143 @@
+package io.rsocket.jmeter.extractor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.Unpooled;
+import java.nio.charset.StandardCharsets;
+import org.apache.jmeter.config.Argument;
+import org.apache.jmeter.config.Arguments;
+import org.apache.jmeter.config.ConfigTestElement;
+import org.apache.jmeter.testelement.property.TestElementProperty;
+import org.apache.jmeter.threads.JMeterVariables;
+import org.junit.jupiter.api.Test;
+
+class ResponseExtractorTest {
+
+  private static final String JSON =
+      "{\"id\":7,\"a\":{\"d\":5,\"b\":[10,{\"c\":\"x\"}]},\"d\":\"top\",\"e\":[1,[2,3]]}";
+
+  @Test
+  void notConfigured() {
+    assertNull(ResponseExtractor.from(new ConfigTestElement(), null));
+  }
+
+  @Test
+  void reusesTheCompiledExtractor() {
+    final ConfigTestElement element = element("id", "json:/id");
+    final ResponseExtractor extractor = ResponseExtractor.from(element, null);
+    assertSame(extractor, ResponseExtractor.from(element, extractor));
+  }
+
+  @Test
+  void invalidExpression() {
+    assertThrows(IllegalArgumentException.class,
+        () -> ResponseExtractor.from(element("id", "xpath:/id"), null));
+  }
+
+  @Test
+  void jsonPointerToScalars() {
+    final JMeterVariables variables =
+        extract(element("id", "json:/id", "c", "json:/a/b/1/c", "d", "json:/d"), JSON);
+    assertEquals("7", variables.get("id"));
+    assertEquals("x", variables.get("c"));
+    // a nested field of the same name is not on the pointer path
+    assertEquals("top", variables.get("d"));
+  }
+
+  @Test
+  void jsonPointerToContainers() {
+    final JMeterVariables variables =
+        extract(element("a", "json:/a", "e", "json:/e/1"), JSON);
+    assertEquals("{\"d\":5,\"b\":[10,{\"c\":\"x\"}]}", variables.get("a"));
+    assertEquals("[2,3]", variables.get("e"));
+  }
+
+  @Test
+  void jsonPointerAcrossBuffers() {
+    final ResponseExtractor extractor =
+        ResponseExtractor.from(element("c", "json:/a/b/1/c", "a", "json:/a"), null);
+    final ResponseExtractor.Extraction extraction =
+        extractor.newExtraction(StandardCharsets.UTF_8);
+    final byte[] bytes = JSON.getBytes(StandardCharsets.UTF_8);
+    for (int i = 0; i < bytes.length; i++) {
+      // alternating heap and direct buffers of a single byte each
+      final ByteBuf data = i % 2 == 0
+          ? Unpooled.wrappedBuffer(bytes, i, 1)
+          : Unpooled.directBuffer(1).writeByte(bytes[i]);
+      try {
+        extraction.onNext(data);
+      } finally {
+        data.release();
+      }
+    }
+
+    final JMeterVariables variables = new JMeterVariables();
+    extraction.apply(variables);
+    assertEquals("x", variables.get("c"));
+    assertEquals("{\"d\":5,\"b\":[10,{\"c\":\"x\"}]}", variables.get("a"));
+  }
+
+  @Test
+  void missingValuesAreRemoved() {
+    final ResponseExtractor extractor =
+        ResponseExtractor.from(element("missing", "json:/a/b/5", "notJson", "json:/x"), null);
+    final JMeterVariables variables = new JMeterVariables();
+    variables.put("missing", "stale");
+    variables.put("notJson", "stale");
+
+    ResponseExtractor.Extraction extraction = extractor.newExtraction(StandardCharsets.UTF_8);
+    onNext(extraction, JSON);
+    extraction.apply(variables);
+    assertNull(variables.get("missing"));
+
+    variables.put("notJson", "stale");
+    extraction = extractor.newExtraction(StandardCharsets.UTF_8);
+    onNext(extraction, "not json");
+    extraction.apply(variables);
+    assertNull(variables.get("notJson"));
+  }
+
+  @Test
+  void bytesAndRegex() {
+    final JMeterVariables variables = extract(
+        element("range", "bytes:2:3", "token", "regex:token=(\\w+)"),
+        "xxabcyy token=42 ", "token=43");
+    assertEquals("616263", variables.get("range"));
+    assertEquals("42", variables.get("token"));
+  }
+
+  private static ConfigTestElement element(String... variablesAndExpressions) {
+    final Arguments arguments = new Arguments();
+    for (int i = 0; i < variablesAndExpressions.length; i += 2) {
+      arguments.addArgument(new Argument(variablesAndExpressions[i],
+          variablesAndExpressions[i + 1]));
+    }
+    final ConfigTestElement element = new ConfigTestElement();
+    element.setProperty(new TestElementProperty(ResponseExtractor.EXTRACTIONS, arguments));
+    return element;
+  }
+
+  private static JMeterVariables extract(ConfigTestElement element, String... elements) {
+    final ResponseExtractor.Extraction extraction =
+        ResponseExtractor.from(element, null).newExtraction(StandardCharsets.UTF_8);
+    for (String data : elements) {
+      onNext(extraction, data);
+    }
+    final JMeterVariables variables = new JMeterVariables();
+    extraction.apply(variables);
+    return variables;
+  }
+
+  private static void onNext(ResponseExtractor.Extraction extraction, String text) {
+    final ByteBuf data = Unpooled.copiedBuffer(text, StandardCharsets.UTF_8);
+    try {
+      extraction.onNext(data);
+    } finally {
+      data.release();
+    }
+  }
+}
@@ -0,0 +1,96 @@
+package io.rsocket.jmeter.metrics;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.concurrent.TimeUnit;
+import org.junit.jupiter.api.Test;
+
+class LatencyHistogramTest {
+
+  @Test
+  void smallValuesHaveABucketOfTheirOwn() {
+    for (int micros = 0; micros < LatencyHistogram.SUB_BUCKETS; micros++) {
+      assertEquals(micros, LatencyHistogram.bucketIndex(micros));
+      assertEquals(micros + 1, LatencyHistogram.bucketUpperBoundMicros(micros));
+    }
+    assertEquals(0, LatencyHistogram.bucketIndex(-5));
+  }
+
+  @Test
+  void bucketsBoundValuesWithinOneEighth() {
+    int previous = 0;
+    for (long micros = 1; micros < 1L << LatencyHistogram.MAX_EXPONENT; micros += micros / 7 + 1) {
+      final int index = LatencyHistogram.bucketIndex(micros);
+      final long upperBound = LatencyHistogram.bucketUpperBoundMicros(index);
+      assertTrue(index >= previous, "buckets are ordered at " + micros);
+      assertTrue(upperBound > micros, "upper bound above " + micros);
+      assertTrue(upperBound <= micros + micros / 8 + 1, "upper bound close to " + micros);
+      previous = index;
+    }
+  }
+
+  @Test
+  void largeValuesAreClamped() {
+    assertEquals(LatencyHistogram.BUCKETS - 1, LatencyHistogram.bucketIndex(Long.MAX_VALUE));
+    assertEquals(LatencyHistogram.BUCKETS - 1,
+        LatencyHistogram.bucketIndex(1L << (LatencyHistogram.MAX_EXPONENT + 1)));
+  }
+
+  @Test
+  void percentilesOfRecordedValues() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    for (int millis = 1; millis <= 100; millis++) {
+      histogram.recordNanos(TimeUnit.MILLISECONDS.toNanos(millis));
+    }
+
+    final HistogramSnapshot snapshot = histogram.snapshot();
+    assertEquals(100, snapshot.getCount());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(5050), snapshot.getSumNanos());
+    assertEquals(TimeUnit.MILLISECONDS.toNanos(5050) / 100, snapshot.meanNanos());
+    assertWithinOneEighth(TimeUnit.MILLISECONDS.toNanos(50), snapshot.percentileNanos(50));
+    assertWithinOneEighth(TimeUnit.MILLISECONDS.toNanos(99), snapshot.percentileNanos(99));
+    assertWithinOneEighth(TimeUnit.MILLISECONDS.toNanos(100), snapshot.percentileNanos(100));
+    assertWithinOneEighth(TimeUnit.MILLISECONDS.toNanos(1), snapshot.percentileNanos(0));
+  }
+
+  @Test
+  void emptySnapshot() {
+    final HistogramSnapshot snapshot = new LatencyHistogram().snapshot();
+    assertEquals(0, snapshot.getCount());
+    assertEquals(0, snapshot.percentileNanos(99));
+    assertEquals(0, snapshot.meanNanos());
+  }
+
+  @Test
+  void snapshotsMergeAndSubtract() {
+    final LatencyHistogram histogram = new LatencyHistogram();
+    histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(3));
+    final HistogramSnapshot baseline = histogram.snapshot();
+    histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(100));
+    histogram.recordNanos(TimeUnit.MICROSECONDS.toNanos(200));
+
+    final HistogramSnapshot interval = histogram.snapshot();
+    interval.subtract(baseline);
+    assertEquals(2, interval.getCount());
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(300), interval.getSumNanos());
+    assertEquals(0, interval.countBelowMicros(64));
+    assertEquals(2, interval.countBelowMicros(256));
+
+    final HistogramSnapshot merged = new HistogramSnapshot();
+    merged.record(TimeUnit.MICROSECONDS.toNanos(3));
+    merged.merge(interval);
+    assertEquals(3, merged.getCount());
+    assertEquals(1, merged.countBelowMicros(4));
+
+    final LatencyHistogram remote = new LatencyHistogram();
+    remote.add(merged);
+    assertEquals(3, remote.snapshot().getCount());
+    assertEquals(TimeUnit.MICROSECONDS.toNanos(303), remote.snapshot().getSumNanos());
+  }
+
+  private static void assertWithinOneEighth(long expected, long actual) {
+    assertTrue(actual >= expected && actual <= expected + expected / 8,
+        "expected " + actual + " within 12.5% above " + expected);
+  }
+}
@@ -0,0 +1,100 @@
+package io.rsocket.jmeter.results;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import org.apache.jmeter.samplers.SampleResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+class BinaryResultConverterTest {
+
+  private static final String HEADER =
+      "timeStamp,elapsed,label,responseCode,responseMessage,threadName,dataType,success,"
+          + "failureMessage,bytes,sentBytes,grpThreads,allThreads,URL,Latency,IdleTime,Connect\n";
+
+  @TempDir
+  Path directory;
+
+  @Test
+  void roundTrip() throws IOException {
+    final String file = directory.resolve("results.rjtl").toString();
+    try (BinaryResultWriter writer = new BinaryResultWriter(file)) {
+      writer.write(result(1000, 25, "get", true, 100, 10, 5, 2));
+      writer.write(result(1010, 30, "post \"a,b\"", false, 0, 20, 30, 0));
+      writer.write(result(1020, 7, "get", true, 50, 10, 3, 0));
+    }
+
+    final StringWriter out = new StringWriter();
+    assertEquals(3, BinaryResultConverter.convert(file, out));
+    assertEquals(HEADER
+            + "1000,25,get,,,,,true,,100,10,0,0,,5,0,2\n"
+            + "1010,30,\"post \"\"a,b\"\"\",,,,,false,,0,20,0,0,,30,0,0\n"
+            + "1020,7,get,,,,,true,,50,10,0,0,,3,0,0\n",
+        out.toString());
+  }
+
+  @Test
+  void manyRecords() throws IOException {
+    // more records than fit the buffers of the writer and the converter
+    final int count = 10_000;
+    final String file = directory.resolve("many.rjtl").toString();
+    try (BinaryResultWriter writer = new BinaryResultWriter(file)) {
+      for (int i = 0; i < count; i++) {
+        writer.write(result(i, i % 100, "label-" + i % 3, i % 7 != 0, i, 1, 0, 0));
+      }
+    }
+
+    final StringWriter out = new StringWriter();
+    assertEquals(count, BinaryResultConverter.convert(file, out));
+    final String[] lines = out.toString().split("\n");
+    assertEquals(count + 1, lines.length);
+    assertEquals("9999,99,label-0,,,,,true,,9999,1,0,0,,0,0,0", lines[count]);
+  }
+
+  @Test
+  void labelMissingFromTheLabelFile() throws IOException {
+    final String file = directory.resolve("lost.rjtl").toString();
+    try (BinaryResultWriter writer = new BinaryResultWriter(file)) {
+      writer.write(result(1000, 1, "first", true, 0, 0, 0, 0));
+      writer.write(result(1001, 1, "second", true, 0, 0, 0, 0));
+    }
+    Files.write(BinaryResultWriter.labelsPath(file),
+        "1\tsecond\n".getBytes(StandardCharsets.UTF_8));
+
+    final StringWriter out = new StringWriter();
+    assertEquals(2, BinaryResultConverter.convert(file, out));
+    assertEquals(HEADER
+            + "1000,1,label-0,,,,,true,,0,0,0,0,,0,0,0\n"
+            + "1001,1,second,,,,,true,,0,0,0,0,,0,0,0\n",
+        out.toString());
+  }
+
+  @Test
+  void notABinaryResultFile() throws IOException {
+    final Path file = directory.resolve("results.jtl");
+    Files.write(file, "timeStamp,elapsed\n".getBytes(StandardCharsets.UTF_8));
+    Files.write(BinaryResultWriter.labelsPath(file.toString()), new byte[0]);
+
+    assertThrows(IOException.class,
+        () -> BinaryResultConverter.convert(file.toString(), new StringWriter()));
+  }
+
+  private static SampleResult result(long timeStamp, long elapsed, String label,
+      boolean successful, long bytes, long sentBytes, long latency, long connectTime) {
+    final SampleResult result = new SampleResult();
+    result.setStampAndTime(timeStamp, elapsed);
+    result.setSampleLabel(label);
+    result.setSuccessful(successful);
+    result.setBytes(bytes);
+    result.setSentBytes(sentBytes);
+    result.setLatency(latency);
+    result.setConnectTime(connectTime);
+    return result;
+  }
+}